@@ -0,0 +1,50 @@
+package com.lincolnrobotics.api2018;
+
+/**
+ * A two-motor, one-extension robot with mocked motors: encoders advance by the power last written on every read,
+ * and writes only store the power. Hardware access costs next to nothing, leaving the cost of the code around it.
+ */
+public class BenchmarkRobot extends AbstractRobotAutonomousControl
+{
+    private final int[] encoders = new int[2];
+    private int extension;
+    private double leftPower, rightPower, extensionPower;
+
+    public BenchmarkRobot(ControlLoop controlLoop)
+    {
+        super(controlLoop, 2, 1, 0, 0, 1);
+    }
+
+    @Override
+    protected int readMotorEncoder(int id)
+    {
+        encoders[id] += (int) (10 * (id == 0 ? leftPower : rightPower));
+        return encoders[id];
+    }
+
+    @Override
+    protected int readExtensionValue(int id)
+    {
+        extension += (int) (10 * extensionPower);
+        return extension;
+    }
+
+    @Override
+    protected int readColorSensor(int id)
+    {
+        throw new ArrayIndexOutOfBoundsException();
+    }
+
+    @Override
+    protected void writeDrivePower(double leftPower, double rightPower)
+    {
+        this.leftPower = leftPower;
+        this.rightPower = rightPower;
+    }
+
+    @Override
+    protected void writeExtensionPower(int id, double power)
+    {
+        this.extensionPower = power;
+    }
+}
@@ -0,0 +1,70 @@
+package com.lincolnrobotics.api2018;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of classifying a color reading by table lookup, against converting it to hue and saturation on every reading.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ColorClassifierBenchmark
+{
+    private static final int READINGS = 1024;
+
+    private ColorClassifier classifier;
+    private final int[] readings = new int[READINGS];
+    private int next;
+
+    @Setup
+    public void setUp()
+    {
+        classifier = new ColorClassifier.Builder()
+                .addClass("red tape", 340, 20, 0.5, 0.2, 1)
+                .addClass("blue tape", 200, 250, 0.5, 0.2, 1)
+                .addClass("gray tile", 0, 360, 0, 0.2, 0.2, 0.9)
+                .build();
+        Random random = new Random(0);
+        for (int i = 0; i < READINGS; i++)
+        {
+            readings[i] = random.nextInt(0x1000000);
+        }
+    }
+
+    private int nextReading()
+    {
+        next = (next + 1) & (READINGS - 1);
+        return readings[next];
+    }
+
+    @Benchmark
+    public int lookup()
+    {
+        return classifier.classify(nextReading());
+    }
+
+    @Benchmark
+    public boolean computed()
+    {
+        int packed = nextReading();
+        float red = RgbColor.red(packed), green = RgbColor.green(packed), blue = RgbColor.blue(packed);
+        float max = Math.max(red, Math.max(green, blue));
+        float chroma = max - Math.min(red, Math.min(green, blue));
+        float hue = chroma == 0 ? 0 : max == red ? 60 * (green - blue) / chroma : max == green ? 60 * (blue - red) / chroma + 120 : 60 * (red - green) / chroma + 240;
+        if (hue < 0)
+        {
+            hue += 360;
+        }
+        float saturation = max == 0 ? 0 : chroma / max;
+        return hue >= 200 && hue <= 250 && saturation >= 0.5f && max >= 0.2f * 255;
+    }
+}
@@ -0,0 +1,68 @@
+package com.lincolnrobotics.api2018;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of a full control tick (sensor reads, terminator evaluation, power control and power writes), measured by
+ * running queued commands with {@link RobotAutonomousControl#go()} against mocked motors. The loop runs on a
+ * {@link VirtualClock}, so no time is spent waiting between ticks; results are per tick, with the cost of handing
+ * each batch to the control thread spread over its ticks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ControlLoopBenchmark
+{
+    private static final int TICKS = 1000;
+    private static final double FREQUENCY = 100;
+
+    private BenchmarkRobot robot;
+    private BenchmarkRobot rampingRobot;
+
+    @Setup
+    public void setUp()
+    {
+        robot = new BenchmarkRobot(new ControlLoop(FREQUENCY, new VirtualClock()));
+        rampingRobot = new BenchmarkRobot(new ControlLoop(FREQUENCY, new VirtualClock()));
+        rampingRobot.setDrivePowerControl(new RampingMotorPowerControl(new BasicMotorPowerControl(), 0.01),
+                new RampingMotorPowerControl(new BasicMotorPowerControl(), 0.01));
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        robot.getExecutor().shutdown();
+        rampingRobot.getExecutor().shutdown();
+    }
+
+    private static void drive(BenchmarkRobot robot)
+    {
+        robot.driveForward().requestSpeed(1)
+                .until(Terminators.timeLimit(Math.round(TICKS * 1000 / FREQUENCY), TimeUnit.MILLISECONDS), Terminators.distanceAtLeast(0, Double.MAX_VALUE))
+                .go();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TICKS)
+    public void driveTick()
+    {
+        drive(robot);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TICKS)
+    public void rampingDriveTick()
+    {
+        drive(rampingRobot);
+    }
+}
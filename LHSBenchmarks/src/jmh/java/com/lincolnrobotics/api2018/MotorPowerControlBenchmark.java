@@ -0,0 +1,77 @@
+package com.lincolnrobotics.api2018;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of a single {@link MotorPowerControl#calculateMotorPower(double, double)} call, as made for each drive side on every tick.
+ * Each decorator chain is paired with the {@link FusedMotorPowerControl} producing the same outputs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MotorPowerControlBenchmark
+{
+    private MotorPowerControl basic;
+    private MotorPowerControl pid;
+    private MotorPowerControl ramping;
+    private MotorPowerControl rampingChain;
+    private MotorPowerControl fusedRamping;
+    private MotorPowerControl fusedChain;
+    private double power;
+
+    @Setup
+    public void setUp()
+    {
+        basic = new BasicMotorPowerControl();
+        pid = new PIDMotorPowerControl(1, 0.2, 0.01, 0.05);
+        ramping = new RampingMotorPowerControl(new BasicMotorPowerControl(), 0.05);
+        rampingChain = new RampingMotorPowerControl(new RampingMotorPowerControl(new PIDMotorPowerControl(1, 0.2, 0.01, 0.05), 0.1), 0.05);
+        fusedRamping = new MotorPowerPipeline().slewLimit(0.05).build();
+        fusedChain = new MotorPowerPipeline().pid(1, 0.2, 0.01, 0.05).slewLimit(0.05).build();
+        power = 0.25;
+    }
+
+    @Benchmark
+    public double basic()
+    {
+        return basic.calculateMotorPower(power, 1);
+    }
+
+    @Benchmark
+    public double pid()
+    {
+        return pid.calculateMotorPower(power, 1);
+    }
+
+    @Benchmark
+    public double ramping()
+    {
+        return ramping.calculateMotorPower(power, 1);
+    }
+
+    @Benchmark
+    public double rampingChain()
+    {
+        return rampingChain.calculateMotorPower(power, 1);
+    }
+
+    @Benchmark
+    public double fusedRamping()
+    {
+        return fusedRamping.calculateMotorPower(power, 1);
+    }
+
+    @Benchmark
+    public double fusedChain()
+    {
+        return fusedChain.calculateMotorPower(power, 1);
+    }
+}
@@ -0,0 +1,35 @@
+package com.lincolnrobotics.api2018;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of converting between motor power and wheel speed with {@link StandardRobotMovementControl}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MovementControlBenchmark
+{
+    private final StandardRobotMovementControl movementControl = new StandardRobotMovementControl(1080, 1440, 5);
+    private double power = 0.6;
+    private double speed = 85;
+
+    @Benchmark
+    public double powerToSpeed()
+    {
+        return movementControl.robotPowerToMovementSpeed(power);
+    }
+
+    @Benchmark
+    public double speedToPower()
+    {
+        return movementControl.movementSpeedToRobotPower(speed);
+    }
+}
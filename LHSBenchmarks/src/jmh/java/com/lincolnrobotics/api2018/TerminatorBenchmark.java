@@ -0,0 +1,73 @@
+package com.lincolnrobotics.api2018;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of evaluating a command's terminators once, as done on every tick, including the update of the robot's
+ * index of thresholds. None of the terminators fire, so every one of them is evaluated.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TerminatorBenchmark
+{
+    private BenchmarkRobot robot;
+    private TerminatorSet single;
+    private TerminatorSet typical;
+    private TerminatorSet lambdas;
+    private final ThresholdIndex singleIndex = new ThresholdIndex();
+    private final ThresholdIndex typicalIndex = new ThresholdIndex();
+
+    @Setup
+    public void setUp()
+    {
+        robot = new BenchmarkRobot(new ControlLoop(ControlLoop.DEFAULT_FREQUENCY, new VirtualClock()));
+
+        single = new TerminatorSet();
+        single.add(Terminators.distanceAtLeast(0, Double.MAX_VALUE));
+
+        typical = new TerminatorSet();
+        typical.addAll(Terminators.distanceAtLeast(0, Double.MAX_VALUE),
+                Terminators.extensionAtMost(0, -Double.MAX_VALUE),
+                Terminators.timeLimit(1, TimeUnit.HOURS),
+                Terminators.any(Terminators.distanceAtLeast(1, Double.MAX_VALUE), Terminators.stall(1, 1, TimeUnit.HOURS)));
+
+        lambdas = new TerminatorSet();
+        lambdas.addAll(r -> r.getDistanceTravelled(0) >= Double.MAX_VALUE,
+                r -> r.getExtensionValue(0) <= Integer.MIN_VALUE);
+
+        single.reset();
+        typical.reset();
+        lambdas.reset();
+        single.register(singleIndex, robot);
+        typical.register(typicalIndex, robot);
+    }
+
+    @Benchmark
+    public int single()
+    {
+        singleIndex.update(robot);
+        return single.evaluate(robot);
+    }
+
+    @Benchmark
+    public int typical()
+    {
+        typicalIndex.update(robot);
+        return typical.evaluate(robot);
+    }
+
+    @Benchmark
+    public int lambdas()
+    {
+        return lambdas.evaluate(robot);
+    }
+}
@@ -0,0 +1,1405 @@
+package com.lincolnrobotics.api2018;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.signum;
+
+/**
+ * A partial implementation of {@link RobotAutonomousControl} for a robot with a left and a right drive side.
+ * Every command issued through the fluent interface is added to a queue, and {@link #go()} runs the whole queue
+ * back-to-back on the robot's {@link ControlLoopExecutor}. Queued commands can also be taken as a {@link Command}
+ * with {@link #toCommand()} and combined with others through {@link Commands}, so that, for example, an extension
+ * moves while the robot drives. Where two consecutive drive commands move each side in the same
+ * direction, the robot is not stopped between them; the drive power is instead carried from one command into the
+ * next through the drive {@link MotorPowerControl}s.
+ * Subclasses only provide access to the hardware: reading sensors and writing motor power.
+ */
+public abstract class AbstractRobotAutonomousControl implements RobotAutonomousControl
+{
+    // The number of motion profiles kept for reuse; far more than the distinct moves of an autonomous routine
+    private static final int PROFILE_CACHE_SIZE = 64;
+
+    private final ControlLoopExecutor executor;
+    private final ControlLoopMetrics metrics;
+    private final SensorSnapshot sensors;
+    // The thresholds ending every running command, compared once per tick
+    private final ThresholdIndex thresholds = new ThresholdIndex();
+    private final int leftEncoder, rightEncoder;
+    private final int motorCount, extensionCount, colorSensorCount;
+    private final int[] motorBaseline;
+
+    private final List<Segment> queue = new ArrayList<>();
+    private Segment pending = null;
+    private final List<Execution> executions = new ArrayList<>();
+    private boolean segmentBlending = true;
+    private long defaultTimeoutNanos = 0;
+    private long watchdogNanos = 0;
+    private volatile Terminator lastTerminator = null;
+    private volatile FlightRecorder flightRecorder = null;
+    private volatile PositionControl positionControl = null;
+    private volatile ColorSampler colorSampler = null;
+    private StoppingModel stoppingModel = null;
+    private StoppingModel turnStoppingModel = null;
+    private int tickSegment = 0;
+    private int tickTerminator = -1;
+
+    private MotorPowerControl leftPowerControl = new BasicMotorPowerControl();
+    private MotorPowerControl rightPowerControl = new BasicMotorPowerControl();
+    private MultiMotorPIDControl drivePID = null;
+    private StandardRobotMovementControl profileMovementControl = null;
+    private final MotionProfileCache profileCache = new MotionProfileCache(PROFILE_CACHE_SIZE);
+    private double profilePositionGain;
+    private final double[] drivePower = new double[2], driveTarget = new double[2], driveOutput = new double[2];
+    private double leftTarget, rightTarget;
+    private double leftPower, rightPower;
+    private final double[] extensionPower;
+
+    /**
+     * A single queued command: what to drive, when to stop, and what to do afterward.
+     */
+    private static final class Segment
+    {
+        final int requirements;
+        final int metricsSlot;
+        final boolean drives;
+        final double leftDirection, rightDirection;
+        final int extensionId;
+        double extensionDirection;
+        double extensionTarget = Double.NaN;
+        final Runnable onStart;
+        final TerminatorSet terminators = new TerminatorSet();
+        double speed = -1;
+        MotionProfile profile;
+        long profileStartNanos;
+        PurePursuit pursuit;
+        Brake brake;
+        Runnable postExec;
+        boolean stopsAfter;
+
+        Segment(int metricsSlot, double leftDirection, double rightDirection, Runnable onStart, Runnable postExec)
+        {
+            this.requirements = Command.DRIVE;
+            this.metricsSlot = metricsSlot;
+            this.drives = true;
+            this.leftDirection = leftDirection;
+            this.rightDirection = rightDirection;
+            this.extensionId = -1;
+            this.extensionDirection = 0;
+            this.onStart = onStart;
+            this.postExec = postExec;
+            this.stopsAfter = true;
+        }
+
+        Segment(int metricsSlot, int extensionId, double extensionDirection, Runnable postExec)
+        {
+            this.requirements = Command.extension(extensionId);
+            this.metricsSlot = metricsSlot;
+            this.drives = false;
+            this.leftDirection = this.rightDirection = 0;
+            this.extensionId = extensionId;
+            this.extensionDirection = extensionDirection;
+            this.onStart = () -> {};
+            this.postExec = postExec;
+            this.stopsAfter = false;
+        }
+    }
+
+    /**
+     * Constructs an instance with the given hardware layout.
+     * @param controlLoop The loop on which queued commands are run. The robot runs it on its own control thread.
+     * @param motorCount The number of drive motors.
+     * @param extensionCount The number of extensions.
+     * @param colorSensorCount The number of color sensors.
+     * @param leftEncoder The ID number of the motor used to measure distance on the left drive side.
+     * @param rightEncoder The ID number of the motor used to measure distance on the right drive side.
+     */
+    protected AbstractRobotAutonomousControl(ControlLoop controlLoop, int motorCount, int extensionCount, int colorSensorCount, int leftEncoder, int rightEncoder)
+    {
+        this.executor = new ControlLoopExecutor(controlLoop, this::beginTick, this::endTick);
+        this.metrics = executor.getMetrics();
+        this.motorCount = motorCount;
+        this.extensionCount = extensionCount;
+        this.extensionPower = new double[extensionCount];
+        this.colorSensorCount = colorSensorCount;
+        this.leftEncoder = leftEncoder;
+        this.rightEncoder = rightEncoder;
+        this.motorBaseline = new int[motorCount];
+        this.sensors = new SensorSnapshot(new HardwareSensorSource(), motorCount, extensionCount, colorSensorCount);
+    }
+
+    /**
+     * Reads the encoder of a drive motor from the hardware.
+     * @param id The ID number of the motor, arbitrarily assigned.
+     * @return The current encoder position, in ticks.
+     */
+    protected abstract int readMotorEncoder(int id);
+
+    /**
+     * Reads the value of an extension from the hardware.
+     * @param id The ID number of the extension, arbitrarily assigned.
+     * @return The current value of the extension.
+     */
+    protected abstract int readExtensionValue(int id);
+
+    /**
+     * Reads a color sensor from the hardware.
+     * @param id The ID number of the color sensor, arbitrarily assigned.
+     * @return The color currently read, packed as 0xRRGGBB.
+     */
+    protected abstract int readColorSensor(int id);
+
+    /**
+     * Writes power to the drive motors.
+     * @param leftPower The power of every motor on the left side.
+     * @param rightPower The power of every motor on the right side.
+     */
+    protected abstract void writeDrivePower(double leftPower, double rightPower);
+
+    /**
+     * Writes power to the motor of an extension.
+     * @param id The ID number of the extension, arbitrarily assigned.
+     * @param power The power of the extension motor; positive extends, negative retracts.
+     */
+    protected abstract void writeExtensionPower(int id, double power);
+
+    /**
+     * Sends power written since the last call to the hardware. Called at the end of every control tick and straight after
+     * the robot is stopped, so that implementations which buffer their writes (e.g. through an {@link OutputCache}) send
+     * each tick's changes together. Does nothing by default, for implementations which write immediately.
+     */
+    protected void flushOutputs()
+    {
+    }
+
+    private class HardwareSensorSource implements SensorSnapshot.Source
+    {
+        @Override
+        public int readEncoder(int id)
+        {
+            long start = metrics.start();
+            int value = readMotorEncoder(id);
+            metrics.record(ControlLoopMetrics.ENCODER_READ, start);
+            return value;
+        }
+
+        @Override
+        public int readExtension(int id)
+        {
+            return readExtensionValue(id);
+        }
+
+        @Override
+        public int readColor(int id)
+        {
+            ColorSampler sampler = colorSampler;
+            return sampler != null ? sampler.getColor(id) : readColorSensor(id);
+        }
+    }
+
+    /**
+     * Sets the controls through which the drive power is brought to the power requested by the running command.
+     * With the default {@link BasicMotorPowerControl}, power changes immediately; a {@link RampingMotorPowerControl}
+     * will instead ramp the drive power from one blended command into the next.
+     * @param left The power control for the left drive side.
+     * @param right The power control for the right drive side.
+     */
+    public void setDrivePowerControl(MotorPowerControl left, MotorPowerControl right)
+    {
+        this.leftPowerControl = left;
+        this.rightPowerControl = right;
+        this.drivePID = null;
+    }
+
+    /**
+     * Sets a single PID controller through which both drive sides are brought to the power requested by the running command,
+     * using one time sample per tick for both sides. Replaces any per-side controls.
+     * @param control The controller, with motor 0 being the left side and motor 1 the right side.
+     */
+    public void setDrivePowerControl(MultiMotorPIDControl control)
+    {
+        if (control.getMotorCount() != 2)
+        {
+            throw new IllegalArgumentException("Drive PID controller must control 2 sides, not " + control.getMotorCount());
+        }
+        this.drivePID = control;
+    }
+
+    /**
+     * Enables profiled moves, which follow a {@link MotionProfile} rather than driving at a fixed power.
+     * On every tick, each drive side is given the power of the profile's planned velocity, plus a correction for how far
+     * the side is from the profile's planned position.
+     * @param movementControl The conversion between motor power and wheel speed of the robot, also used to convert encoder ticks to centimeters.
+     * @param positionGain The power added per centimeter a side is behind its planned position.
+     */
+    public void setProfileFollowing(StandardRobotMovementControl movementControl, double positionGain)
+    {
+        this.profileMovementControl = movementControl;
+        this.profilePositionGain = positionGain;
+    }
+
+    /**
+     * @return true if {@link #setProfileFollowing(StandardRobotMovementControl, double)} has enabled profiled moves
+     */
+    boolean isProfileFollowing()
+    {
+        return profileMovementControl != null;
+    }
+
+    /**
+     * Sets whether consecutive drive commands moving each side in the same direction run into each other without stopping.
+     * Enabled by default.
+     * @param segmentBlending true to blend compatible commands, false to stop after every command.
+     */
+    public void setSegmentBlending(boolean segmentBlending)
+    {
+        this.segmentBlending = segmentBlending;
+    }
+
+    /**
+     * Sets a time limit which is attached to every command issued from now on, in addition to its own terminators.
+     * @param time The maximum time any single command may run for, or 0 for no default limit.
+     * @param unit The unit of the time.
+     */
+    public void setDefaultTimeout(long time, TimeUnit unit)
+    {
+        this.defaultTimeoutNanos = unit.toNanos(time);
+    }
+
+    /**
+     * Starts reading the color sensors in the background, each on its own thread. From then on, color sensors are read
+     * from the latest sampled value, so neither the control loop nor {@link #senseColor(int)} waits on the sensors.
+     * Replaces any sampling already running.
+     * @param period The time between reads of each sensor, normally the rate at which the sensor produces new readings.
+     * @param unit The unit of the period.
+     * @param averageWindow The number of most recent reads averaged into each value; 1 uses every read as it is.
+     * @return The new sampler.
+     */
+    public ColorSampler enableColorSampling(long period, TimeUnit unit, int averageWindow)
+    {
+        disableColorSampling();
+        ColorSampler sampler = new ColorSampler(this::readColorSensor, colorSensorCount, unit.toNanos(period), averageWindow);
+        sampler.start();
+        colorSampler = sampler;
+        return sampler;
+    }
+
+    /**
+     * Stops reading the color sensors in the background, going back to reading them when asked for.
+     */
+    public void disableColorSampling()
+    {
+        ColorSampler sampler = colorSampler;
+        colorSampler = null;
+        if (sampler != null)
+        {
+            sampler.stop();
+        }
+    }
+
+    /**
+     * @return The background reader of the color sensors, or null if sampling is not enabled.
+     */
+    public ColorSampler getColorSampler()
+    {
+        return colorSampler;
+    }
+
+    /**
+     * Makes {@link #driveForward(double)}, {@link #driveBackward(double)}, {@link #turnRight(double)} and {@link #turnLeft(double)}
+     * brake early: each estimates the robot's speed from its encoders and cuts power once the distance the model predicts the robot
+     * will coast covers the rest of the move. The command then ends once the robot has stopped, and the stop is recorded in the model.
+     * Drives and turns share the model; see {@link #setStoppingModel(StoppingModel, StoppingModel)} to learn them separately.
+     * @param stoppingModel The model of the robot's stopping distance, or null to cut power only once the target is reached.
+     */
+    public void setStoppingModel(StoppingModel stoppingModel)
+    {
+        setStoppingModel(stoppingModel, stoppingModel);
+    }
+
+    /**
+     * Makes moves brake early as {@link #setStoppingModel(StoppingModel)} does, with separate models for drives and turns,
+     * as a turning robot coasts differently from one driving straight.
+     * @param driveModel The model of the robot's stopping distance when driving, or null to cut power only once the target is reached.
+     * @param turnModel The model of the robot's stopping distance when turning, in encoder ticks of each side, or null to cut power only once the target is reached.
+     */
+    public void setStoppingModel(StoppingModel driveModel, StoppingModel turnModel)
+    {
+        this.stoppingModel = driveModel;
+        this.turnStoppingModel = turnModel;
+    }
+
+    /**
+     * @return The model of the robot's stopping distance when driving, or null if drives do not brake early.
+     */
+    public StoppingModel getStoppingModel()
+    {
+        return stoppingModel;
+    }
+
+    /**
+     * @return The model of the robot's stopping distance when turning, or null if turns do not brake early.
+     */
+    public StoppingModel getTurnStoppingModel()
+    {
+        return turnStoppingModel;
+    }
+
+    /**
+     * Sets a watchdog on every batch of commands run by {@link #go()} or {@link #goAsync()}.
+     * If a batch runs for longer than the watchdog time, the running command's post-execution action is run,
+     * the robot is stopped, the rest of the batch is dropped and the batch fails with a {@link TerminationException}.
+     * @param time The maximum time any batch of commands may run for, or 0 to disable the watchdog.
+     * @param unit The unit of the time.
+     */
+    public void setWatchdog(long time, TimeUnit unit)
+    {
+        this.watchdogNanos = unit.toNanos(time);
+    }
+
+    /**
+     * @return The terminator whose condition ended the most recently finished command, or null if no command has finished normally.
+     */
+    public Terminator getLastTerminator()
+    {
+        return lastTerminator;
+    }
+
+    /**
+     * @return The sensor values read on the most recent control tick.
+     */
+    public SensorSnapshot getSensorSnapshot()
+    {
+        return sensors;
+    }
+
+    /**
+     * @return The timing histograms of the control loop, broken down by the name of the command running (e.g. "driveForward").
+     */
+    public ControlLoopMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Starts recording the state of the robot on every control tick, keeping the most recent ticks.
+     * @param capacity The number of ticks to keep.
+     * @return The new recorder.
+     */
+    public FlightRecorder enableFlightRecorder(int capacity)
+    {
+        flightRecorder = new FlightRecorder(capacity, motorCount, extensionCount);
+        return flightRecorder;
+    }
+
+    /**
+     * @return The recorder of the robot's state on every tick, or null if recording is not enabled.
+     */
+    public FlightRecorder getFlightRecorder()
+    {
+        return flightRecorder;
+    }
+
+    /**
+     * Writes the ticks held by the flight recorder to a binary file, to be converted with {@link FlightRecordDecoder}.
+     * Must not be called while commands are running.
+     * @param file The file to write.
+     * @throws IOException if the file could not be written
+     * @throws IllegalStateException if recording is not enabled
+     */
+    public void writeFlightRecord(File file) throws IOException
+    {
+        if (flightRecorder == null)
+        {
+            throw new IllegalStateException("Flight recorder is not enabled");
+        }
+        String[] names = metrics.getCommandNames();
+        names[0] = "none";
+        flightRecorder.writeTo(file, names);
+    }
+
+    /**
+     * Sets the estimator of the robot's position on the field, which is updated on every control tick after the sensors are read.
+     * @param positionControl The estimator, or null to stop tracking the position.
+     */
+    public void setPositionControl(PositionControl positionControl)
+    {
+        this.positionControl = positionControl;
+    }
+
+    @Override
+    public PositionControl getPositionControl()
+    {
+        return positionControl;
+    }
+
+    /**
+     * @return The loop on which commands are run, e.g. to read its timing statistics.
+     */
+    public ControlLoop getControlLoop()
+    {
+        return executor.getControlLoop();
+    }
+
+    @Override
+    public Clock getClock()
+    {
+        return executor.getControlLoop().getClock();
+    }
+
+    /**
+     * @return The executor which runs this robot's commands on its control thread.
+     */
+    public ControlLoopExecutor getExecutor()
+    {
+        return executor;
+    }
+
+    private void queueDrive(String name, double leftDirection, double rightDirection, Runnable onStart)
+    {
+        queueSegment(new Segment(metrics.slotFor(name), leftDirection, rightDirection, onStart, this::stop));
+    }
+
+    private void queueSegment(Segment segment)
+    {
+        if (pending != null)
+        {
+            queue.add(pending);
+        }
+        if (defaultTimeoutNanos > 0)
+        {
+            segment.terminators.add(Terminators.timeLimit(defaultTimeoutNanos, TimeUnit.NANOSECONDS));
+        }
+        pending = segment;
+    }
+
+    private Segment pending()
+    {
+        if (pending == null)
+        {
+            throw new IllegalStateException("No command has been issued");
+        }
+        return pending;
+    }
+
+    @Override
+    public RobotAutonomousControl driveForward()
+    {
+        queueDrive("driveForward", 1, 1, () -> {});
+        return this;
+    }
+
+    @Override
+    public RobotAutonomousControl driveBackward()
+    {
+        queueDrive("driveBackward", -1, -1, () -> {});
+        return this;
+    }
+
+    @Override
+    public RobotAutonomousControl driveForward(double distance)
+    {
+        if (stoppingModel != null)
+        {
+            return queueBraked("driveForward", 1, 1, distance, stoppingModel);
+        }
+        queueDrive("driveForward", 1, 1, () -> resetMotorDistance(leftEncoder));
+        until(Terminators.distanceAtLeast(leftEncoder, distance));
+        return this;
+    }
+
+    @Override
+    public RobotAutonomousControl driveBackward(double distance)
+    {
+        if (stoppingModel != null)
+        {
+            return queueBraked("driveBackward", -1, -1, distance, stoppingModel);
+        }
+        queueDrive("driveBackward", -1, -1, () -> resetMotorDistance(leftEncoder));
+        until(Terminators.distanceAtMost(leftEncoder, -distance));
+        return this;
+    }
+
+    // Queues a move which cuts power early enough for the robot to coast to a stop on target, as predicted by the stopping model
+    private RobotAutonomousControl queueBraked(String name, double leftDirection, double rightDirection, double distance, StoppingModel model)
+    {
+        queueDrive(name, leftDirection, rightDirection, () -> resetMotorDistance(leftEncoder, rightEncoder));
+        Brake brake = new Brake(abs(distance), model);
+        pending.brake = brake;
+        until(new BrakeTerminator(brake));
+        return this;
+    }
+
+    /**
+     * Issues a command to the robot to drive forward for a certain distance, following a motion profile so that it reaches
+     * the distance without overshooting. Unlike {@link #driveForward(double)}, the distance is measured in centimeters.
+     * Requires {@link #setProfileFollowing(StandardRobotMovementControl, double)}.
+     * @param distance The distance to drive, in centimeters. If negative, the robot drives backward.
+     * @param limits The limits on the robot's speed.
+     * @return This object (to allow method chaining).
+     */
+    public AbstractRobotAutonomousControl driveProfiled(double distance, MotionLimits limits)
+    {
+        return driveProfiled(profileCache.get(distance, limits, getControlLoop().getPeriodNanos()));
+    }
+
+    /**
+     * Issues a command to the robot to drive forward along a motion profile generated in advance.
+     * @param profile The profile to follow. Its setpoints should be spaced by the period of the robot's control loop.
+     * @return This object (to allow method chaining).
+     */
+    public AbstractRobotAutonomousControl driveProfiled(MotionProfile profile)
+    {
+        queueProfiled("driveProfiled", 1, 1, profile);
+        return this;
+    }
+
+    /**
+     * Issues a command to the robot to point turn right (clockwise), following a motion profile.
+     * Requires {@link #setProfileFollowing(StandardRobotMovementControl, double)}.
+     * @param wheelDistance The distance each wheel travels around the turn, in centimeters. If negative, the robot turns left.
+     * @param limits The limits on the speed of each wheel.
+     * @return This object (to allow method chaining).
+     */
+    public AbstractRobotAutonomousControl turnProfiled(double wheelDistance, MotionLimits limits)
+    {
+        return turnProfiled(profileCache.get(wheelDistance, limits, getControlLoop().getPeriodNanos()));
+    }
+
+    /**
+     * Generates the profiles of planned moves ahead of time (e.g. during the OpMode's init phase), so that issuing those moves
+     * later only looks their profiles up. Profiles are shared between drives and turns of the same distance.
+     * @param limits The limits on the speed of the moves.
+     * @param distances The distances of the moves, in centimeters.
+     */
+    public void preloadProfiles(MotionLimits limits, double... distances)
+    {
+        profileCache.preload(limits, getControlLoop().getPeriodNanos(), distances);
+    }
+
+    /**
+     * @return The cache of motion profiles used by profiled moves, e.g. to read its hit count.
+     */
+    public MotionProfileCache getProfileCache()
+    {
+        return profileCache;
+    }
+
+    /**
+     * Issues a command to the robot to point turn right (clockwise) along a motion profile generated in advance.
+     * @param profile The profile followed by each wheel. Its setpoints should be spaced by the period of the robot's control loop.
+     * @return This object (to allow method chaining).
+     */
+    public AbstractRobotAutonomousControl turnProfiled(MotionProfile profile)
+    {
+        queueProfiled("turnProfiled", 1, -1, profile);
+        return this;
+    }
+
+    private void queueProfiled(String name, double leftDirection, double rightDirection, MotionProfile profile)
+    {
+        if (profileMovementControl == null)
+        {
+            throw new IllegalStateException("Profiled moves require setProfileFollowing() to be called first");
+        }
+        Segment segment = new Segment(metrics.slotFor(name), leftDirection, rightDirection, () -> resetMotorDistance(leftEncoder, rightEncoder), this::stop);
+        segment.profile = profile;
+        segment.speed = 1;
+        queueSegment(segment);
+        until(new ProfileTerminator(segment));
+    }
+
+    /**
+     * Issues a command to the robot to drive along a curved path, steering towards a point ahead of it on the path,
+     * until it comes within the given distance of the end of the path. The speed requested for the command is the power of the faster side.
+     * Requires {@link #setPositionControl(PositionControl)}.
+     * @param follower The follower of the path.
+     * @param tolerance The distance from the end of the path at which the command ends, in centimeters.
+     * @return This object (to allow method chaining).
+     */
+    public AbstractRobotAutonomousControl followPath(PurePursuit follower, double tolerance)
+    {
+        if (positionControl == null)
+        {
+            throw new IllegalStateException("Following a path requires setPositionControl() to be called first");
+        }
+        Segment segment = new Segment(metrics.slotFor("followPath"), 1, 1, () -> {}, this::stop);
+        segment.pursuit = follower;
+        segment.speed = 1;
+        queueSegment(segment);
+        Path path = follower.getPath();
+        int end = path.getWaypointCount() - 1;
+        until(Terminators.positionWithin(path.getX(end), path.getY(end), tolerance));
+        return this;
+    }
+
+    @Override
+    public RobotAutonomousControl turnRight()
+    {
+        queueDrive("turnRight", 1, -1, () -> {});
+        return this;
+    }
+
+    @Override
+    public RobotAutonomousControl turnLeft()
+    {
+        queueDrive("turnLeft", -1, 1, () -> {});
+        return this;
+    }
+
+    @Override
+    public RobotAutonomousControl turnRight(double angle)
+    {
+        StoppingModel model = turnStoppingModel;
+        if (model != null)
+        {
+            return angle > 0 ? queueBraked("turnRight", 1, -1, angle, model) : queueBraked("turnLeft", -1, 1, angle, model);
+        }
+        Runnable reset = () -> resetMotorDistance(leftEncoder, rightEncoder);
+        if (angle > 0)
+        {
+            queueDrive("turnRight", 1, -1, reset);
+        } else
+        {
+            queueDrive("turnLeft", -1, 1, reset);
+        }
+        double wheelDistance = abs(angle);
+        until(robot -> abs(robot.getDistanceTravelled(leftEncoder)) >= wheelDistance && abs(robot.getDistanceTravelled(rightEncoder)) >= wheelDistance);
+        return this;
+    }
+
+    @Override
+    public RobotAutonomousControl turnLeft(double angle)
+    {
+        return turnRight(-angle);
+    }
+
+    @Override
+    public RobotAutonomousControl extend(int id)
+    {
+        queueSegment(new Segment(metrics.slotFor("extend"), id, 1, () -> stopExtension(id)));
+        return this;
+    }
+
+    @Override
+    public RobotAutonomousControl retract(int id)
+    {
+        queueSegment(new Segment(metrics.slotFor("retract"), id, -1, () -> stopExtension(id)));
+        return this;
+    }
+
+    @Override
+    public RobotAutonomousControl extendTo(int id, double pos)
+    {
+        // Whether to extend or retract is decided when the command starts, from where the commands before it left the extension
+        Segment segment = new Segment(metrics.slotFor("extendTo"), id, 0, () -> stopExtension(id));
+        segment.extensionTarget = pos;
+        queueSegment(segment);
+        until(robot -> segment.extensionDirection > 0 ? robot.getExtensionValue(id) >= pos : robot.getExtensionValue(id) <= pos);
+        return this;
+    }
+
+    @Override
+    public RobotAutonomousControl pauseRobot()
+    {
+        queueDrive("pauseRobot", 0, 0, () -> {});
+        return this;
+    }
+
+    @Override
+    public RobotAutonomousControl until(Terminator terminator)
+    {
+        pending().terminators.add(terminator);
+        return this;
+    }
+
+    @Override
+    public RobotAutonomousControl until(Terminator... terminators)
+    {
+        pending().terminators.addAll(terminators);
+        return this;
+    }
+
+    @Override
+    public RobotAutonomousControl requestSpeed(double speed)
+    {
+        pending().speed = speed;
+        return this;
+    }
+
+    @Override
+    public RobotAutonomousControl afterExecution(Runnable postExec)
+    {
+        Segment segment = pending();
+        segment.postExec = postExec;
+        segment.stopsAfter = false;
+        return this;
+    }
+
+    @Override
+    public int getExtensionCount()
+    {
+        return extensionCount;
+    }
+
+    @Override
+    public int getExtensionValue(int id)
+    {
+        if (!executor.isRunning())
+        {
+            sensors.refreshExtension(id);
+        }
+        return sensors.getExtension(id);
+    }
+
+    @Override
+    public RgbColor senseColor(int id)
+    {
+        if (!executor.isRunning())
+        {
+            sensors.refreshColor(id);
+        }
+        return sensors.getRgbColor(id);
+    }
+
+    @Override
+    public int senseColorPacked(int id)
+    {
+        if (!executor.isRunning())
+        {
+            sensors.refreshColor(id);
+        }
+        return sensors.getColor(id);
+    }
+
+    @Override
+    public int getColorSensorCount()
+    {
+        return colorSensorCount;
+    }
+
+    @Override
+    public double getDistanceTravelled(int id)
+    {
+        return readEncoder(id) - motorBaseline[id];
+    }
+
+    @Override
+    public void resetMotorDistance(int... id)
+    {
+        for(int i : id) {
+            motorBaseline[i] = readEncoder(i);
+        }
+    }
+
+    @Override
+    public void resetAllMotorDistances()
+    {
+        for (int i = 0; i < getMotorCount(); i++)
+        {
+            resetMotorDistance(i);
+        }
+    }
+
+    @Override
+    public int getMotorCount()
+    {
+        return motorCount;
+    }
+
+    // While a command is running, sensor values come from the snapshot taken at the start of the tick.
+    // Outside of a command there is no tick, so the single value asked for is read directly.
+    private int readEncoder(int id)
+    {
+        if (!executor.isRunning())
+        {
+            sensors.refreshEncoder(id);
+        }
+        return sensors.getEncoder(id);
+    }
+
+    private void stop()
+    {
+        leftTarget = rightTarget = 0;
+        leftPower = rightPower = 0;
+        long start = metrics.start();
+        writeDrivePower(0, 0);
+        flushOutputs();
+        metrics.record(ControlLoopMetrics.DRIVE_WRITE, start);
+    }
+
+    private void stopExtension(int id)
+    {
+        setExtensionPower(id, 0);
+        flushOutputs();
+    }
+
+    private void stopExtensions()
+    {
+        for (int i = 0; i < extensionCount; i++)
+        {
+            setExtensionPower(i, 0);
+        }
+        flushOutputs();
+    }
+
+    // Writes an extension's power, keeping it for the flight recorder
+    private void setExtensionPower(int id, double power)
+    {
+        extensionPower[id] = power;
+        writeExtensionPower(id, power);
+    }
+
+    private void start(Segment segment)
+    {
+        metrics.setCurrentCommand(segment.metricsSlot);
+        segment.onStart.run();
+        segment.terminators.reset();
+        segment.terminators.register(thresholds, this);
+        if (segment.profile != null)
+        {
+            segment.profileStartNanos = getClock().nanoTime();
+            followProfile(segment);
+        }
+        else if (segment.pursuit != null)
+        {
+            segment.pursuit.reset();
+            followPath(segment);
+        }
+        else if (segment.drives)
+        {
+            leftTarget = segment.leftDirection * segment.speed;
+            rightTarget = segment.rightDirection * segment.speed;
+            if (segment.brake != null)
+            {
+                segment.brake.reset();
+                followBrake(segment);
+            }
+        }
+        else
+        {
+            if (!Double.isNaN(segment.extensionTarget))
+            {
+                segment.extensionDirection = sensors.getExtension(segment.extensionId) < segment.extensionTarget ? 1 : -1;
+            }
+            setExtensionPower(segment.extensionId, segment.extensionDirection * segment.speed);
+        }
+    }
+
+    // Returns true if any of the segment's terminators return true, recording which one did
+    private boolean isTerminated(Segment segment)
+    {
+        long start = metrics.start();
+        int fired = segment.terminators.evaluate(this);
+        metrics.record(ControlLoopMetrics.TERMINATORS, start);
+        if (fired < 0)
+        {
+            return false;
+        }
+        tickTerminator = fired;
+        lastTerminator = segment.terminators.get(fired);
+        return true;
+    }
+
+    // Sets the drive targets to the profile's planned velocity, corrected by each side's distance from the planned position
+    private void followProfile(Segment segment)
+    {
+        MotionProfile profile = segment.profile;
+        int sample = profile.sampleAt(getClock().nanoTime() - segment.profileStartNanos);
+        double position = profile.getPosition(sample);
+        double feedforward = profileMovementControl.movementSpeedToRobotPower(profile.getVelocity(sample));
+        double ticksPerCentimeter = profileMovementControl.getTicksPerCentimeter();
+        double left = segment.leftDirection * getDistanceTravelled(leftEncoder) / ticksPerCentimeter;
+        double right = segment.rightDirection * getDistanceTravelled(rightEncoder) / ticksPerCentimeter;
+        leftTarget = segment.leftDirection * clampPower(feedforward + profilePositionGain * (position - left));
+        rightTarget = segment.rightDirection * clampPower(feedforward + profilePositionGain * (position - right));
+    }
+
+    // Sets the drive targets to the arc towards the path's lookahead point from the robot's current position
+    private void followPath(Segment segment)
+    {
+        PositionControl position = positionControl;
+        PurePursuit pursuit = segment.pursuit;
+        pursuit.update(position.getX(), position.getY(), position.getHeading());
+        leftTarget = pursuit.getLeftPower(segment.speed);
+        rightTarget = pursuit.getRightPower(segment.speed);
+    }
+
+    private static double clampPower(double power)
+    {
+        return power > 1 ? 1 : power < -1 ? -1 : power;
+    }
+
+    /**
+     * Ends a profiled move once the profile is over and both sides have settled at its end, or after a grace period.
+     */
+    private final class ProfileTerminator implements Terminator
+    {
+        private static final double TOLERANCE_CENTIMETERS = 1;
+        private static final long SETTLE_NANOS = 1_000_000_000L;
+
+        private final Segment segment;
+
+        ProfileTerminator(Segment segment)
+        {
+            this.segment = segment;
+        }
+
+        @Override
+        public boolean shouldTerminate(RobotAutonomousControl robot)
+        {
+            MotionProfile profile = segment.profile;
+            long elapsed = getClock().nanoTime() - segment.profileStartNanos;
+            if (elapsed < profile.getDurationNanos())
+            {
+                return false;
+            }
+            if (elapsed >= profile.getDurationNanos() + SETTLE_NANOS)
+            {
+                return true;
+            }
+            double ticksPerCentimeter = profileMovementControl.getTicksPerCentimeter();
+            double left = segment.leftDirection * getDistanceTravelled(leftEncoder) / ticksPerCentimeter;
+            double right = segment.rightDirection * getDistanceTravelled(rightEncoder) / ticksPerCentimeter;
+            return abs(profile.getDistance() - left) <= TOLERANCE_CENTIMETERS && abs(profile.getDistance() - right) <= TOLERANCE_CENTIMETERS;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "profile(" + segment.profile.getDistance() + " cm)";
+        }
+    }
+
+    /**
+     * The state of a move which cuts the drive power once the distance the robot is predicted to coast covers the rest of
+     * the move, and which ends once the robot has stopped, recording the stop in the stopping model.
+     * Travel is measured along the commanded direction of each side, averaged over both sides.
+     */
+    private static final class Brake
+    {
+        // Smoothed speed, in encoder ticks per second, at or below which the robot counts as stopped, whatever the loop rate
+        private static final double STOPPED_SPEED = 20;
+        private static final long SETTLE_TIMEOUT_NANOS = 1_000_000_000L;
+        // Time constant of the speed estimate, so that it is smoothed over the same time at any loop rate; at high rates a side
+        // moves a whole encoder tick only every few loops, and a per-loop estimate jumps between zero and several times the true speed
+        private static final double VELOCITY_TIME_CONSTANT_NANOS = 30_000_000;
+
+        final double target;
+        final StoppingModel model;
+        boolean started, braking, finished;
+        double lastTravel, velocity;
+        long lastNanos;
+        double brakeTravel, brakeVelocity;
+        long brakeNanos;
+
+        Brake(double target, StoppingModel model)
+        {
+            this.target = target;
+            this.model = model;
+        }
+
+        void reset()
+        {
+            started = braking = finished = false;
+            lastTravel = velocity = 0;
+        }
+
+        // Updates the speed estimate, deciding when to cut power and noting when the robot has stopped
+        void update(double travel, long now)
+        {
+            double delta = travel - lastTravel;
+            if (!started)
+            {
+                started = true;
+                delta = 0;
+            }
+            else if (now > lastNanos)
+            {
+                double elapsed = now - lastNanos;
+                velocity += elapsed / (VELOCITY_TIME_CONSTANT_NANOS + elapsed) * (delta * 1e9 / elapsed - velocity);
+            }
+            lastTravel = travel;
+            lastNanos = now;
+
+            if (!braking)
+            {
+                if (travel + model.getStoppingDistance(velocity) >= target)
+                {
+                    braking = true;
+                    brakeTravel = travel;
+                    brakeVelocity = velocity;
+                    brakeNanos = now;
+                }
+            }
+            else if (!finished)
+            {
+                if (abs(velocity) <= STOPPED_SPEED)
+                {
+                    model.record(brakeVelocity, travel - brakeTravel);
+                    finished = true;
+                }
+                else
+                {
+                    finished = now - brakeNanos >= SETTLE_TIMEOUT_NANOS;
+                }
+            }
+        }
+    }
+
+    /**
+     * Ends a braked move once the robot has stopped, as found by the control loop's brake phase.
+     */
+    private static final class BrakeTerminator implements Terminator
+    {
+        private final Brake brake;
+
+        BrakeTerminator(Brake brake)
+        {
+            this.brake = brake;
+        }
+
+        @Override
+        public boolean shouldTerminate(RobotAutonomousControl robot)
+        {
+            return brake.finished;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "brake(" + brake.target + " ticks)";
+        }
+    }
+
+    // The brake phase of a braked move's tick, run before its terminators are evaluated
+    private void followBrake(Segment segment)
+    {
+        double travel = (segment.leftDirection * getDistanceTravelled(leftEncoder) + segment.rightDirection * getDistanceTravelled(rightEncoder)) / 2;
+        segment.brake.update(travel, getClock().nanoTime());
+        if (segment.brake.braking)
+        {
+            leftTarget = rightTarget = 0;
+        }
+    }
+
+    // Two drive segments blend when the first would only stop the robot and the second
+    // keeps both sides turning in the same direction, so stopping in between would be wasted.
+    private boolean blends(Segment first, Segment second)
+    {
+        return segmentBlending && first.stopsAfter && first.drives && second.drives && first.profile == null && second.profile == null
+                && first.pursuit == null && second.pursuit == null
+                && sameDirection(first.leftDirection * first.speed, second.leftDirection * second.speed)
+                && sameDirection(first.rightDirection * first.speed, second.rightDirection * second.speed);
+    }
+
+    private static boolean sameDirection(double a, double b)
+    {
+        return a != 0 && signum(a) == signum(b);
+    }
+
+    // The drive is stopped between batches, so the controls start afresh rather than taking the idle time as one long call
+    private void resetDrivePowerControl()
+    {
+        MultiMotorPIDControl pid = drivePID;
+        if (pid != null)
+        {
+            pid.reset();
+        }
+        else
+        {
+            leftPowerControl.reset();
+            rightPowerControl.reset();
+        }
+    }
+
+    private void updateDrivePower()
+    {
+        double left, right;
+        long start = metrics.start();
+        MultiMotorPIDControl pid = drivePID;
+        if (pid != null)
+        {
+            drivePower[0] = leftPower;
+            drivePower[1] = rightPower;
+            driveTarget[0] = leftTarget;
+            driveTarget[1] = rightTarget;
+            pid.calculateMotorPower(drivePower, driveTarget, driveOutput);
+            metrics.record(ControlLoopMetrics.POWER_CONTROL, start);
+            left = driveOutput[0];
+            right = driveOutput[1];
+        }
+        else
+        {
+            left = leftPowerControl.calculateMotorPower(leftPower, leftTarget);
+            metrics.record(ControlLoopMetrics.POWER_CONTROL, start);
+            start = metrics.start();
+            right = rightPowerControl.calculateMotorPower(rightPower, rightTarget);
+            metrics.record(ControlLoopMetrics.POWER_CONTROL, start);
+        }
+        if (left != leftPower || right != rightPower)
+        {
+            start = metrics.start();
+            writeDrivePower(left, right);
+            metrics.record(ControlLoopMetrics.DRIVE_WRITE, start);
+            leftPower = left;
+            rightPower = right;
+        }
+    }
+
+    private void beginTick()
+    {
+        tickTerminator = -1;
+        sensors.update();
+        PositionControl position = positionControl;
+        if (position != null)
+        {
+            position.update(sensors);
+        }
+        thresholds.update(this);
+    }
+
+    private void endTick()
+    {
+        updateDrivePower();
+        long start = metrics.start();
+        flushOutputs();
+        metrics.record(ControlLoopMetrics.DRIVE_WRITE, start);
+        if (flightRecorder != null)
+        {
+            flightRecorder.record(getClock().nanoTime(), metrics.getCurrentCommand(), tickSegment, tickTerminator, leftPower, rightPower, extensionPower, sensors);
+        }
+    }
+
+    /**
+     * Runs one batch of queued segments, in order, on the control thread.
+     */
+    private final class QueueCommand implements Command
+    {
+        private final Segment[] segments;
+        private final int requirements;
+        private int index;
+        private long startNanos;
+
+        QueueCommand(Segment[] segments)
+        {
+            this.segments = segments;
+            int requirements = 0;
+            for (Segment segment : segments)
+            {
+                requirements |= segment.requirements;
+            }
+            this.requirements = requirements;
+        }
+
+        @Override
+        public void start()
+        {
+            index = 0;
+            tickSegment = 0;
+            startNanos = getClock().nanoTime();
+            if ((requirements & Command.DRIVE) != 0)
+            {
+                resetDrivePowerControl();
+            }
+            AbstractRobotAutonomousControl.this.start(segments[0]);
+        }
+
+        @Override
+        public boolean step()
+        {
+            if (watchdogNanos > 0 && getClock().nanoTime() - startNanos >= watchdogNanos)
+            {
+                tripWatchdog();
+            }
+
+            if (segments[index].brake != null)
+            {
+                followBrake(segments[index]);
+            }
+            while (isTerminated(segments[index]))
+            {
+                Segment current = segments[index];
+                Segment next = index + 1 < segments.length ? segments[index + 1] : null;
+                current.terminators.release();
+                if (next == null || !blends(current, next))
+                {
+                    current.postExec.run();
+                }
+                index++;
+                if (next == null)
+                {
+                    return true;
+                }
+                tickSegment = index;
+                AbstractRobotAutonomousControl.this.start(next);
+            }
+            if (segments[index].profile != null)
+            {
+                followProfile(segments[index]);
+            }
+            else if (segments[index].pursuit != null)
+            {
+                followPath(segments[index]);
+            }
+            return false;
+        }
+
+        private void tripWatchdog()
+        {
+            int tripped = index;
+            segments[tripped].terminators.release();
+            segments[tripped].postExec.run();
+            index = segments.length;
+            stop();
+            stopExtensions();
+            throw new TerminationException("Watchdog tripped after " + TimeUnit.NANOSECONDS.toMillis(watchdogNanos)
+                    + " ms, while running command " + (tripped + 1) + " of " + segments.length);
+        }
+
+        @Override
+        public void end(boolean interrupted)
+        {
+            // Only still in range if the batch was stopped part way through a command
+            if (index < segments.length)
+            {
+                segments[index].terminators.release();
+                segments[index].postExec.run();
+            }
+        }
+
+        @Override
+        public int getRequirements()
+        {
+            return requirements;
+        }
+    }
+
+    @Override
+    public Command toCommand()
+    {
+        if (pending != null)
+        {
+            queue.add(pending);
+            pending = null;
+        }
+        if (queue.isEmpty())
+        {
+            throw new IllegalStateException("No command has been issued");
+        }
+
+        Segment[] segments = queue.toArray(new Segment[queue.size()]);
+        queue.clear();
+        return new QueueCommand(segments);
+    }
+
+    @Override
+    public Execution goAsync()
+    {
+        if (pending == null && queue.isEmpty())
+        {
+            return Execution.completed();
+        }
+        return goAsync(toCommand());
+    }
+
+    @Override
+    public Execution goAsync(Command command)
+    {
+        synchronized (executions)
+        {
+            Execution execution = executor.submit(command);
+            executions.add(execution);
+            execution.whenComplete(() -> {
+                synchronized (executions)
+                {
+                    executions.remove(execution);
+                }
+            });
+            return execution;
+        }
+    }
+
+    @Override
+    public void go()
+    {
+        await(goAsync());
+    }
+
+    @Override
+    public void go(Command command)
+    {
+        await(goAsync(command));
+    }
+
+    private static void await(Execution execution)
+    {
+        try
+        {
+            execution.await();
+        }
+        catch (InterruptedException e)
+        {
+            execution.cancel();
+            Thread.currentThread().interrupt();
+            throw new TerminationException("Interrupted while waiting for commands to finish");
+        }
+
+        Throwable failure = execution.getFailure();
+        if (failure instanceof RuntimeException)
+        {
+            throw (RuntimeException) failure;
+        }
+        if (failure != null)
+        {
+            throw new RuntimeException(failure);
+        }
+    }
+
+    @Override
+    public void cancelAll()
+    {
+        queue.clear();
+        pending = null;
+        synchronized (executions)
+        {
+            for (int i = 0; i < executions.size(); i++)
+            {
+                executions.get(i).cancel();
+            }
+        }
+    }
+
+    /**
+     * Waits for every command started through this robot to finish, e.g. after {@link #cancelAll()}, so that what the
+     * control thread writes (flight record, metrics, output counts) can be read without racing it.
+     * @param timeout The maximum time to wait.
+     * @param unit The unit of the timeout.
+     * @return true if every command finished, false if the timeout elapsed first
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true)
+        {
+            Execution execution;
+            synchronized (executions)
+            {
+                if (executions.isEmpty())
+                {
+                    return true;
+                }
+                execution = executions.get(0);
+            }
+            if (!execution.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS))
+            {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.lincolnrobotics.api2018;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An autonomous routine recorded and compiled ahead of time, normally during the OpMode's init phase
+ * (see {@code LHSOpMode.prepare}), so that the match itself only runs it.
+ * A routine is recorded by running it against a {@link Builder}, which implements {@link SimpleRobotAutonomousControl}.
+ * Compiling the plan checks every step against the robot, converts centimeters and degrees to encoder ticks once,
+ * preloads the motion profiles of profiled steps, builds the robot's command with all of its terminators, and runs
+ * the whole routine once on a simulated robot of the same layout. The simulated run rejects steps which never reach their target, and loads and compiles the
+ * code the routine runs before the match starts.
+ */
+public final class AutonomousPlan
+{
+    private static final int DRIVE = 0, TURN = 1, EXTEND = 2;
+    private static final String[] STEP_NAMES = {"drive", "turn", "extendTo"};
+
+    // Simulated time after which a step of the dry pass is taken never to reach its target, e.g. a drive away from its target
+    private static final long DRY_RUN_STEP_TIMEOUT_SECONDS = 30;
+
+    private final AbstractRobotAutonomousControl robot;
+    private final int[] kinds;
+    private final int[] ids;
+    private final double[] targets;
+    private final double[] speeds;
+    private final MotionLimits[] limits;
+    private final Command command;
+    private final long dryRunNanos;
+
+    /**
+     * Records the steps of a routine. Reading sensors is not supported while recording, as the routine has not started.
+     */
+    public static class Builder implements SimpleRobotAutonomousControl
+    {
+        private final int extensionCount, colorSensorCount;
+        private final List<double[]> steps = new ArrayList<>();
+        private final List<MotionLimits> stepLimits = new ArrayList<>();
+        private double speed = Double.NaN;
+        private MotionLimits limits = null;
+
+        /**
+         * Constructs a builder for a robot with the given layout, as reported to the recorded routine.
+         * @param extensionCount The number of extensions.
+         * @param colorSensorCount The number of color sensors.
+         */
+        public Builder(int extensionCount, int colorSensorCount)
+        {
+            this.extensionCount = extensionCount;
+            this.colorSensorCount = colorSensorCount;
+        }
+
+        /**
+         * Requests a speed for every following step, as {@link RobotAutonomousControl#requestSpeed(double)}.
+         * @param speed The power of the drive or extension motors.
+         * @return This object (to allow method chaining).
+         */
+        public Builder speed(double speed)
+        {
+            this.speed = speed;
+            return this;
+        }
+
+        /**
+         * Makes every following drive and turn follow a motion profile, as {@link AbstractRobotAutonomousControl#driveProfiled(double, MotionLimits)}
+         * and {@link AbstractRobotAutonomousControl#turnProfiled(double, MotionLimits)}, instead of driving at the requested speed.
+         * Requires the robot which runs the plan to follow profiles.
+         * @param limits The limits on the speed of the moves, or null to drive at the requested speed again.
+         * @return This object (to allow method chaining).
+         */
+        public Builder profiled(MotionLimits limits)
+        {
+            this.limits = limits;
+            return this;
+        }
+
+        private void add(int kind, int id, double value)
+        {
+            steps.add(new double[]{kind, id, value, speed});
+            stepLimits.add(kind == EXTEND ? null : limits);
+        }
+
+        @Override
+        public void driveForward(double distance)
+        {
+            add(DRIVE, 0, distance);
+        }
+
+        @Override
+        public void driveBackward(double distance)
+        {
+            add(DRIVE, 0, -distance);
+        }
+
+        @Override
+        public void turnRight(double angle)
+        {
+            add(TURN, 0, angle);
+        }
+
+        @Override
+        public void turnLeft(double angle)
+        {
+            add(TURN, 0, -angle);
+        }
+
+        @Override
+        public void extendTo(int id, double pos)
+        {
+            add(EXTEND, id, pos);
+        }
+
+        @Override
+        public int getExtensionCount()
+        {
+            return extensionCount;
+        }
+
+        @Override
+        public RgbColor senseColor(int id)
+        {
+            throw new UnsupportedOperationException("Colors cannot be sensed while recording a plan");
+        }
+
+        @Override
+        public int getColorSensorCount()
+        {
+            return colorSensorCount;
+        }
+
+        /**
+         * Validates and compiles the recorded routine for a robot.
+         * @param robot The robot which runs the plan. Must not have any commands queued.
+         * @param movementControl The movement control of the robot, from which centimeters are converted to encoder ticks.
+         * @param trackWidth The distance between the left and right wheels, in centimeters, from which degrees are converted.
+         * @return The plan.
+         * @throws IllegalArgumentException if any step cannot be run by the robot or does not finish in the simulated run, listing every such step
+         */
+        public AutonomousPlan build(AbstractRobotAutonomousControl robot, StandardRobotMovementControl movementControl, double trackWidth)
+        {
+            return new AutonomousPlan(robot, movementControl, trackWidth, steps.toArray(new double[steps.size()][]),
+                    stepLimits.toArray(new MotionLimits[stepLimits.size()]));
+        }
+    }
+
+    private AutonomousPlan(AbstractRobotAutonomousControl robot, StandardRobotMovementControl movementControl, double trackWidth, double[][] steps,
+            MotionLimits[] limits)
+    {
+        this.robot = robot;
+        this.kinds = new int[steps.length];
+        this.ids = new int[steps.length];
+        this.targets = new double[steps.length];
+        this.speeds = new double[steps.length];
+        this.limits = limits;
+
+        double ticksPerCentimeter = movementControl.getTicksPerCentimeter();
+        double ticksPerDegree = Math.PI * trackWidth / 360 * ticksPerCentimeter;
+        StringBuilder problems = new StringBuilder();
+        for (int i = 0; i < steps.length; i++)
+        {
+            kinds[i] = (int) steps[i][0];
+            ids[i] = (int) steps[i][1];
+            double value = steps[i][2];
+            speeds[i] = steps[i][3];
+            // Profiled moves are given in centimeters, each wheel's distance for a turn
+            switch (kinds[i])
+            {
+                case DRIVE:
+                    targets[i] = limits[i] != null ? value : value * ticksPerCentimeter;
+                    break;
+                case TURN:
+                    targets[i] = limits[i] != null ? value * Math.PI * trackWidth / 360 : value * ticksPerDegree;
+                    break;
+                default:
+                    targets[i] = value;
+                    if (ids[i] < 0 || ids[i] >= robot.getExtensionCount())
+                    {
+                        problems.append("\n  step ").append(i + 1).append(": no extension ").append(ids[i]);
+                    }
+                    if (!(value >= 0 && value <= 1))
+                    {
+                        problems.append("\n  step ").append(i + 1).append(": extension position ").append(value).append(" is outside 0 to 1");
+                    }
+                    break;
+            }
+            if (Double.isNaN(value) || Double.isInfinite(value))
+            {
+                problems.append("\n  step ").append(i + 1).append(": target ").append(value).append(" cannot be reached");
+            }
+            if (limits[i] != null && !robot.isProfileFollowing())
+            {
+                problems.append("\n  step ").append(i + 1).append(": profiled moves require setProfileFollowing()");
+            }
+        }
+        if (problems.length() == 0 && steps.length == 0)
+        {
+            problems.append(" no steps");
+        }
+        if (problems.length() == 0)
+        {
+            preloadProfiles();
+            long start = System.nanoTime();
+            dryRun(movementControl, problems);
+            this.dryRunNanos = System.nanoTime() - start;
+        }
+        else
+        {
+            this.dryRunNanos = 0;
+        }
+        if (problems.length() > 0)
+        {
+            throw new IllegalArgumentException("Invalid plan:" + problems);
+        }
+
+        for (int i = 0; i < kinds.length; i++)
+        {
+            queue(robot, i);
+        }
+        this.command = robot.toCommand();
+    }
+
+    // Generates the profiles of the profiled steps in the robot's cache, so that queuing them only looks them up
+    private void preloadProfiles()
+    {
+        Map<MotionLimits, List<Double>> distances = new LinkedHashMap<>();
+        for (int i = 0; i < kinds.length; i++)
+        {
+            if (limits[i] != null)
+            {
+                if (!distances.containsKey(limits[i]))
+                {
+                    distances.put(limits[i], new ArrayList<Double>());
+                }
+                distances.get(limits[i]).add(targets[i]);
+            }
+        }
+        for (Map.Entry<MotionLimits, List<Double>> entry : distances.entrySet())
+        {
+            double[] values = new double[entry.getValue().size()];
+            for (int i = 0; i < values.length; i++)
+            {
+                values[i] = entry.getValue().get(i);
+            }
+            robot.preloadProfiles(entry.getKey(), values);
+        }
+    }
+
+    // Runs every step on a simulated robot with the same layout, in simulated time, noting any which never reach their target
+    private void dryRun(StandardRobotMovementControl movementControl, StringBuilder problems)
+    {
+        SimulatedRobotAutonomousControl dryRun = new SimulatedRobotAutonomousControl(movementControl,
+                robot.getExtensionCount(), robot.getColorSensorCount(), 1e9 / robot.getControlLoop().getPeriodNanos());
+        dryRun.setStoppingModel(robot.getStoppingModel() == null ? null : new StoppingModel(),
+                robot.getTurnStoppingModel() == null ? null : new StoppingModel());
+        Terminator timeout = Terminators.timeLimit(DRY_RUN_STEP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        try
+        {
+            for (int i = 0; i < kinds.length; i++)
+            {
+                queue(dryRun, i);
+                dryRun.until(timeout).go();
+                if (dryRun.getLastTerminator() == timeout)
+                {
+                    problems.append("\n  step ").append(i + 1).append(": ").append(STEP_NAMES[kinds[i]])
+                            .append(" does not reach its target in a simulated run");
+                }
+            }
+        }
+        finally
+        {
+            dryRun.getExecutor().shutdown();
+        }
+    }
+
+    private void queue(AbstractRobotAutonomousControl robot, int step)
+    {
+        double target = targets[step];
+        if (limits[step] != null)
+        {
+            if (kinds[step] == DRIVE)
+            {
+                robot.driveProfiled(target, limits[step]);
+            }
+            else
+            {
+                robot.turnProfiled(target, limits[step]);
+            }
+            return;
+        }
+        switch (kinds[step])
+        {
+            case DRIVE:
+                if (target >= 0)
+                {
+                    robot.driveForward(target);
+                }
+                else
+                {
+                    robot.driveBackward(-target);
+                }
+                break;
+            case TURN:
+                robot.turnRight(target);
+                break;
+            default:
+                robot.extendTo(ids[step], target);
+                break;
+        }
+        if (!Double.isNaN(speeds[step]))
+        {
+            robot.requestSpeed(speeds[step]);
+        }
+    }
+
+    /**
+     * Runs the plan on the robot, waiting for it to finish.
+     */
+    public void run()
+    {
+        robot.go(command);
+    }
+
+    /**
+     * Runs the plan on the robot without waiting for it to finish.
+     * @return A handle with which to poll, wait for or cancel the plan.
+     */
+    public Execution runAsync()
+    {
+        return robot.goAsync(command);
+    }
+
+    /**
+     * @return The compiled command, e.g. to combine it with others through {@link Commands}.
+     */
+    public Command getCommand()
+    {
+        return command;
+    }
+
+    /**
+     * @return The number of steps in the plan.
+     */
+    public int getStepCount()
+    {
+        return kinds.length;
+    }
+
+    /**
+     * @return The real time taken by the dry pass, in nanoseconds.
+     */
+    public long getDryRunNanos()
+    {
+        return dryRunNanos;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder("AutonomousPlan(");
+        for (int i = 0; i < kinds.length; i++)
+        {
+            builder.append(i == 0 ? "" : ", ").append(STEP_NAMES[kinds[i]]);
+            if (kinds[i] == EXTEND)
+            {
+                builder.append(' ').append(ids[i]);
+            }
+            builder.append(' ').append(targets[i]);
+            if (limits[i] != null)
+            {
+                builder.append(" profiled");
+            }
+        }
+        return builder.append(')').toString();
+    }
+}
@@ -0,0 +1,25 @@
+package com.lincolnrobotics.api2018;
+
+/**
+ * A source of time for a {@link ControlLoop} and everything run on it.
+ * On a robot, time is real and the loop waits by parking its thread; in simulation, a {@link VirtualClock}
+ * jumps straight to the end of every wait, so a routine runs as fast as it can be computed.
+ */
+public interface Clock
+{
+    /**
+     * The real clock, based on {@link System#nanoTime()}.
+     */
+    Clock SYSTEM = new SystemClock();
+
+    /**
+     * @return The current time, in nanoseconds. Only differences between times are meaningful.
+     */
+    long nanoTime();
+
+    /**
+     * Waits until the clock reaches the given time, or until the calling thread is interrupted.
+     * @param deadlineNanos The time to wait for, as returned by {@link #nanoTime()}.
+     */
+    void waitUntil(long deadlineNanos);
+}
@@ -0,0 +1,218 @@
+package com.lincolnrobotics.api2018;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Classifies colors read by color sensors (e.g. red tape, blue tape, gray tile) by looking them up in tables computed once,
+ * at init, instead of converting every reading to hue and saturation with floating point math.
+ * Colors are quantized to 5 bits per channel, so each table has 32768 entries and a lookup is a shift, a mask and an array index.
+ * Classes are defined by ranges of hue, saturation and value (brightness); a color belongs to the first class it falls in.
+ */
+public final class ColorClassifier
+{
+    /**
+     * The class of colors which fall in no defined class.
+     */
+    public static final int UNCLASSIFIED = -1;
+
+    private static final int BITS = 5;
+    private static final int SIZE = 1 << (3 * BITS);
+
+    private final String[] names;
+    private final short[] hue = new short[SIZE];
+    private final byte[] saturation = new byte[SIZE];
+    private final byte[] value = new byte[SIZE];
+    private final byte[] classes = new byte[SIZE];
+
+    /**
+     * Builds a {@link ColorClassifier} from color classes.
+     */
+    public static class Builder
+    {
+        private final List<String> names = new ArrayList<>();
+        private final List<double[]> ranges = new ArrayList<>();
+
+        /**
+         * Defines a color class. Classes are numbered from 0 in the order in which they are added.
+         * @param name The name of the class, e.g. "blue tape".
+         * @param minHue The lowest hue in the class, in degrees from 0 to 360.
+         * @param maxHue The highest hue in the class, in degrees. If lower than minHue, the range wraps around 0, e.g. 340 to 20 for red.
+         * @param minSaturation The lowest saturation in the class, from 0 (gray) to 1 (fully saturated).
+         * @param minValue The lowest value (brightness) in the class, from 0 to 1.
+         * @param maxValue The highest value (brightness) in the class, from 0 to 1.
+         * @return This object (to allow method chaining).
+         */
+        public Builder addClass(String name, double minHue, double maxHue, double minSaturation, double minValue, double maxValue)
+        {
+            return addClass(name, minHue, maxHue, minSaturation, 1, minValue, maxValue);
+        }
+
+        /**
+         * Defines a color class with an upper bound on saturation, e.g. for gray tiles: any hue, saturation at most 0.2.
+         * Classes are numbered from 0 in the order in which they are added.
+         * @param name The name of the class.
+         * @param minHue The lowest hue in the class, in degrees from 0 to 360.
+         * @param maxHue The highest hue in the class, in degrees. If lower than minHue, the range wraps around 0.
+         * @param minSaturation The lowest saturation in the class, from 0 to 1.
+         * @param maxSaturation The highest saturation in the class, from 0 to 1.
+         * @param minValue The lowest value (brightness) in the class, from 0 to 1.
+         * @param maxValue The highest value (brightness) in the class, from 0 to 1.
+         * @return This object (to allow method chaining).
+         */
+        public Builder addClass(String name, double minHue, double maxHue, double minSaturation, double maxSaturation, double minValue, double maxValue)
+        {
+            if (names.size() >= Byte.MAX_VALUE)
+            {
+                throw new IllegalStateException("Too many color classes");
+            }
+            names.add(name);
+            ranges.add(new double[]{minHue, maxHue, minSaturation, maxSaturation, minValue, maxValue});
+            return this;
+        }
+
+        /**
+         * Computes the lookup tables. Takes a few milliseconds, so should be done during init.
+         * @return The classifier.
+         */
+        public ColorClassifier build()
+        {
+            return new ColorClassifier(names.toArray(new String[names.size()]), ranges.toArray(new double[ranges.size()][]));
+        }
+    }
+
+    private ColorClassifier(String[] names, double[][] ranges)
+    {
+        this.names = names;
+        int levels = 1 << BITS;
+        int step = 256 / levels;
+        for (int index = 0; index < SIZE; index++)
+        {
+            // Each entry stands for the middle of its range of colors
+            int red = (index >> (2 * BITS)) * step + step / 2;
+            int green = ((index >> BITS) & (levels - 1)) * step + step / 2;
+            int blue = (index & (levels - 1)) * step + step / 2;
+
+            int max = Math.max(red, Math.max(green, blue));
+            int min = Math.min(red, Math.min(green, blue));
+            int chroma = max - min;
+            double h;
+            if (chroma == 0)
+            {
+                h = 0;
+            }
+            else if (max == red)
+            {
+                h = 60.0 * (green - blue) / chroma;
+            }
+            else if (max == green)
+            {
+                h = 60.0 * (blue - red) / chroma + 120;
+            }
+            else
+            {
+                h = 60.0 * (red - green) / chroma + 240;
+            }
+            if (h < 0)
+            {
+                h += 360;
+            }
+            double s = max == 0 ? 0 : (double) chroma / max;
+            double v = max / 255.0;
+
+            hue[index] = (short) Math.round(h);
+            saturation[index] = (byte) Math.round(s * 255);
+            value[index] = (byte) Math.round(v * 255);
+            classes[index] = (byte) UNCLASSIFIED;
+            for (int c = 0; c < ranges.length; c++)
+            {
+                if (contains(ranges[c], h, s, v))
+                {
+                    classes[index] = (byte) c;
+                    break;
+                }
+            }
+        }
+    }
+
+    private static boolean contains(double[] range, double h, double s, double v)
+    {
+        boolean inHue = range[0] <= range[1] ? h >= range[0] && h <= range[1] : h >= range[0] || h <= range[1];
+        return inHue && s >= range[2] && s <= range[3] && v >= range[4] && v <= range[5];
+    }
+
+    // The index of a packed 0xRRGGBB color in the tables: the top 5 bits of each channel
+    private static int indexOf(int packed)
+    {
+        return ((packed >> 9) & 0x7C00) | ((packed >> 6) & 0x3E0) | ((packed >> 3) & 0x1F);
+    }
+
+    /**
+     * @param packed A color packed as 0xRRGGBB, e.g. from {@link RobotAutonomousControl#senseColorPacked(int)}.
+     * @return The number of the first class the color falls in, or {@link #UNCLASSIFIED}.
+     */
+    public int classify(int packed)
+    {
+        return classes[indexOf(packed)];
+    }
+
+    /**
+     * @param packed A color packed as 0xRRGGBB.
+     * @return The hue of the color, in whole degrees from 0 to 360.
+     */
+    public int getHue(int packed)
+    {
+        return hue[indexOf(packed)];
+    }
+
+    /**
+     * @param packed A color packed as 0xRRGGBB.
+     * @return The saturation of the color, from 0 (gray) to 255 (fully saturated).
+     */
+    public int getSaturation(int packed)
+    {
+        return saturation[indexOf(packed)] & 0xFF;
+    }
+
+    /**
+     * @param packed A color packed as 0xRRGGBB.
+     * @return The value (brightness) of the color, from 0 to 255.
+     */
+    public int getValue(int packed)
+    {
+        return value[indexOf(packed)] & 0xFF;
+    }
+
+    /**
+     * @return The number of classes defined.
+     */
+    public int getClassCount()
+    {
+        return names.length;
+    }
+
+    /**
+     * @param colorClass The number of the class.
+     * @return The name of the class, or "unclassified" for {@link #UNCLASSIFIED}.
+     */
+    public String getClassName(int colorClass)
+    {
+        return colorClass == UNCLASSIFIED ? "unclassified" : names[colorClass];
+    }
+
+    /**
+     * @param name The name of a class.
+     * @return The number of the class with that name, or {@link #UNCLASSIFIED} if there is none.
+     */
+    public int findClass(String name)
+    {
+        for (int i = 0; i < names.length; i++)
+        {
+            if (names[i].equals(name))
+            {
+                return i;
+            }
+        }
+        return UNCLASSIFIED;
+    }
+}
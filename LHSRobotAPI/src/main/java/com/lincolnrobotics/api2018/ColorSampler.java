@@ -0,0 +1,185 @@
+package com.lincolnrobotics.api2018;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Reads color sensors in the background, so that the control loop never waits on a sensor's bus transaction.
+ * Each sensor is polled on its own thread at a fixed rate, normally the rate at which the sensor produces new readings,
+ * and its latest reading is published as a packed 0xRRGGBB value (see {@link RgbColor#pack(int, int, int)}) in a slot
+ * which is read and written without locking. Readings can be smoothed by a moving average over the last few samples.
+ */
+public class ColorSampler
+{
+    /**
+     * Performs the actual hardware reads for a {@link ColorSampler}. Each sensor is only ever read from its own thread.
+     */
+    public interface Reader
+    {
+        /**
+         * @param id The ID number of the color sensor, arbitrarily assigned.
+         * @return The color currently read by the sensor, packed as 0xRRGGBB.
+         */
+        int readColor(int id);
+    }
+
+    private final Reader reader;
+    private final long periodNanos;
+    private final int averageWindow;
+    private final Clock clock;
+    private final AtomicIntegerArray latest;
+    private final AtomicLongArray sampleCounts;
+    private final Thread[] threads;
+    private volatile boolean running = false;
+
+    /**
+     * Constructs a sampler, timed by the real clock. Sampling starts when {@link #start()} is called.
+     * @param reader The source of the sensor readings.
+     * @param sensorCount The number of color sensors.
+     * @param periodNanos The time between reads of each sensor, in nanoseconds.
+     * @param averageWindow The number of most recent reads averaged into each published value; 1 publishes every read as it is.
+     */
+    public ColorSampler(Reader reader, int sensorCount, long periodNanos, int averageWindow)
+    {
+        this(reader, sensorCount, periodNanos, averageWindow, Clock.SYSTEM);
+    }
+
+    /**
+     * Constructs a sampler. Sampling starts when {@link #start()} is called.
+     * @param reader The source of the sensor readings.
+     * @param sensorCount The number of color sensors.
+     * @param periodNanos The time between reads of each sensor, in nanoseconds.
+     * @param averageWindow The number of most recent reads averaged into each published value; 1 publishes every read as it is.
+     * @param clock The clock by which reads are paced.
+     */
+    public ColorSampler(Reader reader, int sensorCount, long periodNanos, int averageWindow, Clock clock)
+    {
+        if (periodNanos <= 0 || averageWindow < 1)
+        {
+            throw new IllegalArgumentException("Sample period and average window must be positive: " + periodNanos + ", " + averageWindow);
+        }
+        this.reader = reader;
+        this.periodNanos = periodNanos;
+        this.averageWindow = averageWindow;
+        this.clock = clock;
+        this.latest = new AtomicIntegerArray(sensorCount);
+        this.sampleCounts = new AtomicLongArray(sensorCount);
+        this.threads = new Thread[sensorCount];
+    }
+
+    /**
+     * Starts a sampling thread for every sensor. Does nothing if the sampler is already running.
+     */
+    public synchronized void start()
+    {
+        if (running)
+        {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < threads.length; i++)
+        {
+            final int id = i;
+            threads[i] = new Thread(() -> sample(id), "ColorSampler-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+    }
+
+    /**
+     * Stops every sampling thread, waiting for them to finish their current read. The latest readings stay available.
+     */
+    public synchronized void stop()
+    {
+        if (!running)
+        {
+            return;
+        }
+        running = false;
+        for (Thread thread : threads)
+        {
+            thread.interrupt();
+        }
+        for (Thread thread : threads)
+        {
+            try
+            {
+                thread.join();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return True if the sampling threads are running.
+     */
+    public boolean isRunning()
+    {
+        return running;
+    }
+
+    // Runs on the sensor's own thread, so the window of recent reads needs no synchronization
+    private void sample(int id)
+    {
+        int[] window = new int[averageWindow];
+        int red = 0, green = 0, blue = 0;
+        long count = 0;
+        long next = clock.nanoTime();
+        while (running && !Thread.currentThread().isInterrupted())
+        {
+            int color = reader.readColor(id);
+            int slot = (int) (count % averageWindow);
+            if (count >= averageWindow)
+            {
+                int oldest = window[slot];
+                red -= RgbColor.red(oldest);
+                green -= RgbColor.green(oldest);
+                blue -= RgbColor.blue(oldest);
+            }
+            window[slot] = color;
+            red += RgbColor.red(color);
+            green += RgbColor.green(color);
+            blue += RgbColor.blue(color);
+            count++;
+
+            int samples = (int) Math.min(count, averageWindow);
+            latest.set(id, RgbColor.pack(red / samples, green / samples, blue / samples));
+            sampleCounts.set(id, count);
+
+            // Keep a steady rate, but do not try to catch up on reads missed while the thread was held up
+            long now = clock.nanoTime();
+            next = Math.max(next + periodNanos, now);
+            clock.waitUntil(next);
+        }
+    }
+
+    /**
+     * @param id The ID number of the color sensor, arbitrarily assigned.
+     * @return The latest (averaged) reading of the sensor, packed as 0xRRGGBB; 0 until the sensor is first read.
+     */
+    public int getColor(int id)
+    {
+        return latest.get(id);
+    }
+
+    /**
+     * @param id The ID number of the color sensor, arbitrarily assigned.
+     * @return The number of times the sensor has been read.
+     */
+    public long getSampleCount(int id)
+    {
+        return sampleCounts.get(id);
+    }
+
+    /**
+     * @return The number of color sensors sampled.
+     */
+    public int getSensorCount()
+    {
+        return threads.length;
+    }
+}
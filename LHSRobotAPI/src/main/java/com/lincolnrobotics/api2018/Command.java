@@ -0,0 +1,55 @@
+package com.lincolnrobotics.api2018;
+
+/**
+ * Defines a unit of robot behavior which is run one step per control tick by a {@link ControlLoopExecutor}.
+ * All methods are called on the control thread.
+ * A command declares the actuators it drives as a bit mask of {@link #DRIVE} and {@link #extension(int)} values;
+ * the executor never runs two commands which require the same actuator at the same time.
+ */
+public interface Command
+{
+    /**
+     * The requirement bit for the drive motors.
+     */
+    int DRIVE = 1;
+
+    /**
+     * Gets the requirement bit for an extension.
+     * @param id The ID number of the extension, arbitrarily assigned. At most 31 extensions may be tracked.
+     * @return The requirement bit for the extension.
+     */
+    static int extension(int id)
+    {
+        if (id < 0 || id > 30)
+        {
+            throw new IllegalArgumentException("Extension requirements are only tracked for IDs 0 to 30: " + id);
+        }
+        return 1 << (id + 1);
+    }
+
+    /**
+     * Called once, on the tick the command starts, before its first step.
+     */
+    void start();
+
+    /**
+     * Called once per control tick while the command is running.
+     * @return true if the command has finished, false if it should keep running
+     */
+    boolean step();
+
+    /**
+     * Called once when the command stops running.
+     * @param interrupted true if the command was cancelled or failed before finishing, false if it finished normally
+     */
+    void end(boolean interrupted);
+
+    /**
+     * Gets the actuators this command drives while it runs.
+     * @return A bit mask of {@link #DRIVE} and {@link #extension(int)} values; 0 if the command drives nothing.
+     */
+    default int getRequirements()
+    {
+        return 0;
+    }
+}
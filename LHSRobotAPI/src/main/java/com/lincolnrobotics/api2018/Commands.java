@@ -0,0 +1,204 @@
+package com.lincolnrobotics.api2018;
+
+/**
+ * Factory methods for composite {@link Command}s.
+ * A composite requires every actuator its parts require. Parts which run at the same time may not share an actuator.
+ */
+public final class Commands
+{
+    private Commands()
+    {
+    }
+
+    /**
+     * Runs the commands one after the other, starting each one on the tick the previous one finishes.
+     * @param commands The commands to run.
+     * @return A command which finishes when the last command has finished.
+     */
+    public static Command sequence(Command... commands)
+    {
+        return new Sequence(commands.clone());
+    }
+
+    /**
+     * Runs the commands at the same time.
+     * @param commands The commands to run. They may not share an actuator.
+     * @return A command which finishes when every command has finished, at once if there are none.
+     */
+    public static Command parallel(Command... commands)
+    {
+        return new Group(commands.clone(), Group.ALL);
+    }
+
+    /**
+     * Runs the commands at the same time until any one of them finishes, then interrupts the rest.
+     * @param commands The commands to run, at least one. They may not share an actuator.
+     * @return A command which finishes when the first command has finished.
+     * @throws IllegalArgumentException if no commands are given, as the race would never finish
+     */
+    public static Command race(Command... commands)
+    {
+        if (commands.length == 0)
+        {
+            throw new IllegalArgumentException("A race needs at least one command");
+        }
+        return new Group(commands.clone(), Group.ANY);
+    }
+
+    /**
+     * Runs the commands at the same time until the deadline command finishes, then interrupts the rest.
+     * @param deadline The command which decides when the group finishes.
+     * @param others The commands to run alongside it. They may not share an actuator with it or with each other.
+     * @return A command which finishes when the deadline command has finished.
+     */
+    public static Command deadline(Command deadline, Command... others)
+    {
+        Command[] commands = new Command[others.length + 1];
+        commands[0] = deadline;
+        System.arraycopy(others, 0, commands, 1, others.length);
+        return new Group(commands, Group.FIRST);
+    }
+
+    private static int requirementsOf(Command[] commands, boolean exclusive)
+    {
+        int requirements = 0;
+        for (Command command : commands)
+        {
+            int required = command.getRequirements();
+            if (exclusive && (requirements & required) != 0)
+            {
+                throw new IllegalArgumentException("Commands run at the same time may not share an actuator");
+            }
+            requirements |= required;
+        }
+        return requirements;
+    }
+
+    private static final class Sequence implements Command
+    {
+        private final Command[] commands;
+        private final int requirements;
+        private int index;
+
+        Sequence(Command[] commands)
+        {
+            this.commands = commands;
+            this.requirements = requirementsOf(commands, false);
+        }
+
+        @Override
+        public void start()
+        {
+            index = 0;
+            if (commands.length > 0)
+            {
+                commands[0].start();
+            }
+        }
+
+        @Override
+        public boolean step()
+        {
+            if (index < commands.length && commands[index].step())
+            {
+                commands[index].end(false);
+                index++;
+                if (index < commands.length)
+                {
+                    commands[index].start();
+                }
+            }
+            return index >= commands.length;
+        }
+
+        @Override
+        public void end(boolean interrupted)
+        {
+            if (interrupted && index < commands.length)
+            {
+                commands[index].end(true);
+            }
+        }
+
+        @Override
+        public int getRequirements()
+        {
+            return requirements;
+        }
+    }
+
+    private static final class Group implements Command
+    {
+        // Conditions upon which a group finishes
+        static final int ALL = 0, ANY = 1, FIRST = 2;
+
+        private final Command[] commands;
+        private final boolean[] finished;
+        private final int finishWhen;
+        private final int requirements;
+
+        Group(Command[] commands, int finishWhen)
+        {
+            this.commands = commands;
+            this.finished = new boolean[commands.length];
+            this.finishWhen = finishWhen;
+            this.requirements = requirementsOf(commands, true);
+        }
+
+        @Override
+        public void start()
+        {
+            for (int i = 0; i < commands.length; i++)
+            {
+                finished[i] = false;
+                commands[i].start();
+            }
+        }
+
+        @Override
+        public boolean step()
+        {
+            boolean all = true, any = false;
+            for (int i = 0; i < commands.length; i++)
+            {
+                if (!finished[i] && commands[i].step())
+                {
+                    commands[i].end(false);
+                    finished[i] = true;
+                }
+                all &= finished[i];
+                any |= finished[i];
+            }
+
+            switch (finishWhen)
+            {
+                case ANY:
+                    return any;
+                case FIRST:
+                    return commands.length == 0 || finished[0];
+                default:
+                    return all;
+            }
+        }
+
+        @Override
+        public void end(boolean interrupted)
+        {
+            // Whatever is still running when the group ends was cut short
+            for (int i = 0; i < commands.length; i++)
+            {
+                if (!finished[i])
+                {
+                    finished[i] = true;
+                    commands[i].end(true);
+                }
+            }
+        }
+
+        @Override
+        public int getRequirements()
+        {
+            return requirements;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.lincolnrobotics.api2018;
+
+/**
+ * Runs a control task at a fixed rate.
+ * Ticks are scheduled against absolute deadlines (start time + n * period), so time spent inside a tick
+ * does not accumulate as drift. Between ticks the loop waits on its {@link Clock}: the system clock parks the
+ * calling thread rather than spinning, and a {@link VirtualClock} skips the wait entirely.
+ * The loop also keeps per-tick timing statistics: jitter is how late a tick started relative to its deadline,
+ * and an overrun is a tick whose work took longer than a full period.
+ */
+public class ControlLoop
+{
+    /**
+     * The rate used by implementations that are not given a loop explicitly, in ticks per second.
+     */
+    public static final double DEFAULT_FREQUENCY = 100;
+
+    /**
+     * A unit of work run once per tick of a {@link ControlLoop}.
+     */
+    @FunctionalInterface
+    public interface Task
+    {
+        /**
+         * Performs a single tick of work.
+         * @return true if the task should keep running, false if it has finished
+         */
+        boolean tick();
+    }
+
+    /**
+     * Defines an external condition upon which a running loop should stop (e.g. the OpMode being stopped).
+     */
+    @FunctionalInterface
+    public interface StopCondition
+    {
+        /**
+         * @return true if the loop should stop as soon as possible
+         */
+        boolean isStopRequested();
+    }
+
+    private final long periodNanos;
+    private final Clock clock;
+    private StopCondition stopCondition = () -> false;
+
+    private long tickCount;
+    private long overrunCount;
+    private long totalJitterNanos;
+    private long maxJitterNanos;
+    private long lastJitterNanos;
+
+    /**
+     * Constructs a loop running at the given rate.
+     * @param frequency The number of ticks per second. Rates of 50 to 500 are typical for an FTC robot.
+     */
+    public ControlLoop(double frequency)
+    {
+        this(frequency, Clock.SYSTEM);
+    }
+
+    /**
+     * Constructs a loop running at the given rate, timed by the given clock.
+     * @param frequency The number of ticks per second.
+     * @param clock The clock against which ticks are scheduled, e.g. a {@link VirtualClock} in simulation.
+     */
+    public ControlLoop(double frequency, Clock clock)
+    {
+        if (!(frequency > 0))
+        {
+            throw new IllegalArgumentException("Control loop frequency must be positive: " + frequency);
+        }
+        this.periodNanos = Math.round(1e9 / frequency);
+        this.clock = clock;
+    }
+
+    /**
+     * Sets a condition which is checked before every tick. The thread being interrupted is always treated as a stop request.
+     * @param stopCondition The condition upon which the loop should stop.
+     */
+    public void setStopCondition(StopCondition stopCondition)
+    {
+        this.stopCondition = stopCondition;
+    }
+
+    /**
+     * Runs the task on the calling thread, once per period, until it reports that it has finished.
+     * @param task The task to run.
+     * @throws TerminationException if a stop was requested before the task finished
+     */
+    public void run(Task task)
+    {
+        long deadline = clock.nanoTime();
+        while (true)
+        {
+            checkStop();
+
+            long jitter = clock.nanoTime() - deadline;
+            recordJitter(jitter > 0 ? jitter : 0);
+
+            if (!task.tick())
+            {
+                return;
+            }
+
+            deadline += periodNanos;
+            long now = clock.nanoTime();
+            if (now - deadline > 0)
+            {
+                // The tick took longer than a period: skip the deadlines already missed rather than
+                // running a burst of late ticks, while staying aligned to the original schedule.
+                overrunCount++;
+                deadline += ((now - deadline) / periodNanos + 1) * periodNanos;
+            }
+            clock.waitUntil(deadline);
+        }
+    }
+
+    private void checkStop()
+    {
+        if (Thread.currentThread().isInterrupted() || stopCondition.isStopRequested())
+        {
+            throw new TerminationException("Control loop stopped before the running command finished");
+        }
+    }
+
+    private void recordJitter(long jitter)
+    {
+        tickCount++;
+        lastJitterNanos = jitter;
+        totalJitterNanos += jitter;
+        if (jitter > maxJitterNanos)
+        {
+            maxJitterNanos = jitter;
+        }
+    }
+
+    /**
+     * @return The time between the starts of consecutive ticks, in nanoseconds.
+     */
+    public long getPeriodNanos()
+    {
+        return periodNanos;
+    }
+
+    /**
+     * @return The clock against which ticks are scheduled.
+     */
+    public Clock getClock()
+    {
+        return clock;
+    }
+
+    /**
+     * @return The number of ticks run since construction or the last {@link #resetStatistics()}.
+     */
+    public long getTickCount()
+    {
+        return tickCount;
+    }
+
+    /**
+     * @return The number of ticks which took longer than a full period to run.
+     */
+    public long getOverrunCount()
+    {
+        return overrunCount;
+    }
+
+    /**
+     * @return How late the most recent tick started relative to its deadline, in nanoseconds.
+     */
+    public long getLastJitterNanos()
+    {
+        return lastJitterNanos;
+    }
+
+    /**
+     * @return The latest any tick has started relative to its deadline, in nanoseconds.
+     */
+    public long getMaxJitterNanos()
+    {
+        return maxJitterNanos;
+    }
+
+    /**
+     * @return The average lateness of a tick relative to its deadline, in nanoseconds.
+     */
+    public double getAverageJitterNanos()
+    {
+        return tickCount == 0 ? 0 : (double) totalJitterNanos / tickCount;
+    }
+
+    /**
+     * Clears all timing statistics.
+     */
+    public void resetStatistics()
+    {
+        tickCount = 0;
+        overrunCount = 0;
+        totalJitterNanos = 0;
+        maxJitterNanos = 0;
+        lastJitterNanos = 0;
+    }
+}
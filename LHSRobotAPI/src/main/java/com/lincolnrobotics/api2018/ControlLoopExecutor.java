@@ -0,0 +1,333 @@
+package com.lincolnrobotics.api2018;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs {@link Command}s on a single control thread, stepping every active command once per tick of a {@link ControlLoop}.
+ * The thread is started on the first submission and waits, without ticking, whenever there is nothing to run,
+ * so any number of commands can be run without creating a thread for each of them.
+ * The executor tracks which actuators each active command owns: a submitted command which requires an actuator
+ * owned by an active command waits, in submission order, until that command has completed.
+ * A command is only reported complete at the end of the tick on which it finished, after the work run after every tick,
+ * so a thread waiting for it sees everything that tick wrote.
+ */
+public class ControlLoopExecutor
+{
+    private final ControlLoop controlLoop;
+    private final Runnable beforeTick;
+    private final Runnable afterTick;
+    private final ControlLoopMetrics metrics = new ControlLoopMetrics();
+
+    private final Object lock = new Object();
+    private final List<Execution> submitted = new ArrayList<>();
+    private final List<Execution> active = new ArrayList<>();
+    private final List<Execution> finished = new ArrayList<>();
+    private final List<Throwable> finishedFailures = new ArrayList<>();
+    private final List<Boolean> finishedCancelled = new ArrayList<>();
+    private final ControlLoop.Task tickTask = this::tick;
+    private Thread thread = null;
+    private boolean shutdown = false;
+    private volatile boolean running = false;
+
+    /**
+     * Constructs an executor which does nothing around its commands.
+     * @param controlLoop The loop which sets the rate at which commands are stepped.
+     */
+    public ControlLoopExecutor(ControlLoop controlLoop)
+    {
+        this(controlLoop, () -> {}, () -> {});
+    }
+
+    /**
+     * Constructs an executor which runs shared work around the commands on every tick.
+     * @param controlLoop The loop which sets the rate at which commands are stepped.
+     * @param beforeTick Run at the start of every tick, before any command is started or stepped (e.g. reading sensors).
+     * @param afterTick Run at the end of every tick, after every command has been stepped (e.g. writing motor power).
+     */
+    public ControlLoopExecutor(ControlLoop controlLoop, Runnable beforeTick, Runnable afterTick)
+    {
+        this.controlLoop = controlLoop;
+        this.beforeTick = beforeTick;
+        this.afterTick = afterTick;
+    }
+
+    /**
+     * Submits a command to be started on the next tick on which the actuators it requires are free.
+     * @param command The command to run.
+     * @return A handle to the running command.
+     * @throws IllegalStateException if the executor has been shut down
+     */
+    public Execution submit(Command command)
+    {
+        Execution execution = new Execution(command);
+        synchronized (lock)
+        {
+            if (shutdown)
+            {
+                throw new IllegalStateException("Control loop executor has been shut down");
+            }
+            submitted.add(execution);
+            if (thread == null)
+            {
+                thread = new Thread(this::runThread, "ControlLoopExecutor");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            lock.notifyAll();
+        }
+        return execution;
+    }
+
+    /**
+     * @return true while the control thread is ticking, i.e. while any command is running
+     */
+    public boolean isRunning()
+    {
+        return running;
+    }
+
+    /**
+     * @return The loop on which commands are stepped.
+     */
+    public ControlLoop getControlLoop()
+    {
+        return controlLoop;
+    }
+
+    /**
+     * @return The timing histograms of the control thread, to which the tick period is recorded.
+     */
+    public ControlLoopMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Cancels every running and submitted command and stops the control thread. No further commands may be submitted.
+     */
+    public void shutdown()
+    {
+        synchronized (lock)
+        {
+            shutdown = true;
+            if (thread != null)
+            {
+                thread.interrupt();
+            }
+            lock.notifyAll();
+        }
+    }
+
+    private void runThread()
+    {
+        while (true)
+        {
+            synchronized (lock)
+            {
+                while (submitted.isEmpty() && !shutdown)
+                {
+                    try
+                    {
+                        lock.wait();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        shutdown = true;
+                    }
+                }
+                if (shutdown)
+                {
+                    break;
+                }
+            }
+
+            running = true;
+            try
+            {
+                controlLoop.run(tickTask);
+            }
+            catch (TerminationException e)
+            {
+                endAll(true, null);
+            }
+            catch (RuntimeException e)
+            {
+                endAll(true, e);
+            }
+            finally
+            {
+                running = false;
+                metrics.recordIdle();
+            }
+        }
+
+        endAll(true, null);
+    }
+
+    private boolean tick()
+    {
+        metrics.recordTick();
+        beforeTick.run();
+
+        int owned = 0;
+        for (int i = 0; i < active.size(); i++)
+        {
+            owned |= active.get(i).getCommand().getRequirements();
+        }
+
+        synchronized (lock)
+        {
+            // Start what can be started, keeping the rest in submission order. A waiting command
+            // also reserves its actuators, so a later command cannot take them ahead of it.
+            int waiting = 0;
+            for (int i = 0; i < submitted.size(); i++)
+            {
+                Execution execution = submitted.get(i);
+                int required = execution.getCommand().getRequirements();
+                if (execution.isCancelRequested())
+                {
+                    finish(execution, true, null);
+                }
+                else if ((owned & required) != 0)
+                {
+                    submitted.set(waiting++, execution);
+                }
+                else
+                {
+                    try
+                    {
+                        execution.getCommand().start();
+                        active.add(execution);
+                    }
+                    catch (RuntimeException e)
+                    {
+                        finish(execution, false, e);
+                    }
+                }
+                owned |= required;
+            }
+            while (submitted.size() > waiting)
+            {
+                submitted.remove(submitted.size() - 1);
+            }
+        }
+
+        // Step every active command, compacting the list in place as commands complete
+        int remaining = 0;
+        for (int i = 0; i < active.size(); i++)
+        {
+            Execution execution = active.get(i);
+            if (!stepCommand(execution))
+            {
+                active.set(remaining++, execution);
+            }
+        }
+        while (active.size() > remaining)
+        {
+            active.remove(active.size() - 1);
+        }
+
+        afterTick.run();
+
+        boolean more;
+        synchronized (lock)
+        {
+            more = !active.isEmpty() || !submitted.isEmpty();
+        }
+        if (!more)
+        {
+            // The tick's work is done, so a thread released below sees the executor idle
+            running = false;
+        }
+        completeFinished();
+        return more;
+    }
+
+    // Returns true if the command has completed
+    private boolean stepCommand(Execution execution)
+    {
+        Command command = execution.getCommand();
+        try
+        {
+            if (execution.isCancelRequested())
+            {
+                command.end(true);
+                finish(execution, true, null);
+                return true;
+            }
+            if (command.step())
+            {
+                command.end(false);
+                finish(execution, false, null);
+                return true;
+            }
+            return false;
+        }
+        catch (RuntimeException e)
+        {
+            try
+            {
+                command.end(true);
+            }
+            catch (RuntimeException ignored)
+            {
+                // The original failure is the one worth reporting
+            }
+            finish(execution, false, e);
+            return true;
+        }
+    }
+
+    // Holds back the completion of a command until the end of the tick, so that a thread waiting for it
+    // is only released once the tick's output has been written
+    private void finish(Execution execution, boolean cancelled, Throwable failure)
+    {
+        finished.add(execution);
+        finishedCancelled.add(cancelled);
+        finishedFailures.add(failure);
+    }
+
+    private void completeFinished()
+    {
+        for (int i = 0; i < finished.size(); i++)
+        {
+            finished.get(i).complete(finishedCancelled.get(i), finishedFailures.get(i));
+        }
+        finished.clear();
+        finishedCancelled.clear();
+        finishedFailures.clear();
+    }
+
+    private void endAll(boolean interrupted, Throwable failure)
+    {
+        // Commands which finished during a tick which then failed
+        completeFinished();
+        for (int i = 0; i < active.size(); i++)
+        {
+            Execution execution = active.get(i);
+            try
+            {
+                execution.getCommand().end(interrupted);
+            }
+            catch (RuntimeException ignored)
+            {
+                // Keep ending the remaining commands
+            }
+            execution.complete(failure == null, failure);
+        }
+        active.clear();
+
+        synchronized (lock)
+        {
+            if (shutdown)
+            {
+                for (int i = 0; i < submitted.size(); i++)
+                {
+                    submitted.get(i).complete(true, null);
+                }
+                submitted.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.lincolnrobotics.api2018;
+
+import java.util.Arrays;
+
+/**
+ * Timing histograms for the hot path of a robot's control loop, kept overall and for each kind of command.
+ * Histograms are allocated when a kind of command is first issued and recording does not allocate, so metrics can be left enabled in matches.
+ * Histograms are written on the control thread; reading them from another thread gives approximate values while commands run.
+ */
+public final class ControlLoopMetrics
+{
+    /**
+     * The time between the starts of consecutive control ticks.
+     */
+    public static final int TICK_PERIOD = 0;
+
+    /**
+     * The time taken to evaluate the running command's terminators.
+     */
+    public static final int TERMINATORS = 1;
+
+    /**
+     * The time taken by a single encoder read from the hardware (e.g. {@code DcMotor.getCurrentPosition()}).
+     */
+    public static final int ENCODER_READ = 2;
+
+    /**
+     * The time taken to write power to the drive motors (e.g. {@code DcMotor.setPower()} on every drive motor),
+     * and to send buffered writes to the hardware at the end of each tick.
+     */
+    public static final int DRIVE_WRITE = 3;
+
+    /**
+     * The time taken by a single {@link MotorPowerControl#calculateMotorPower(double, double)} call,
+     * or by a single {@link MultiMotorPIDControl} call for both drive sides.
+     */
+    public static final int POWER_CONTROL = 4;
+
+    // Room for every kind of command a robot issues; the table grows if more are used
+    private static final int INITIAL_COMMANDS = 16;
+
+    private static final String[] METRIC_NAMES = {"tick period", "terminators", "encoder read", "drive write", "power control"};
+
+    // Row 0 holds the overall histograms, rows 1 to commandCount those of each kind of command. Grown by copying, so the
+    // control thread always sees a table holding the running command's row
+    private volatile LatencyHistogram[][] histograms = new LatencyHistogram[INITIAL_COMMANDS + 1][];
+    private String[] commandNames = new String[INITIAL_COMMANDS + 1];
+    private int commandCount = 0;
+    private int currentCommand = 0;
+    private long lastTickNanos = 0;
+    private volatile boolean enabled = true;
+
+    /**
+     * Constructs enabled metrics, tracking no kinds of command yet. Normally created by the robot's {@link ControlLoopExecutor}.
+     */
+    public ControlLoopMetrics()
+    {
+        histograms[0] = newRow();
+        commandNames[0] = "all commands";
+    }
+
+    private static LatencyHistogram[] newRow()
+    {
+        LatencyHistogram[] row = new LatencyHistogram[METRIC_NAMES.length];
+        for (int metric = 0; metric < row.length; metric++)
+        {
+            row[metric] = new LatencyHistogram();
+        }
+        return row;
+    }
+
+    /**
+     * Sets whether timings are recorded. When disabled, recording costs a single field read.
+     * @param enabled true to record timings, false to skip them.
+     */
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Gets the slot under which a kind of command is tracked, assigning one if needed. Called while commands are built, not per tick.
+     * @param commandName The name of the kind of command (e.g. "driveForward").
+     * @return The slot to pass to {@link #setCurrentCommand(int)}.
+     */
+    synchronized int slotFor(String commandName)
+    {
+        for (int i = 1; i <= commandCount; i++)
+        {
+            if (commandNames[i].equals(commandName))
+            {
+                return i;
+            }
+        }
+        LatencyHistogram[][] table = histograms;
+        if (commandCount + 1 == table.length)
+        {
+            table = Arrays.copyOf(table, 2 * table.length);
+            commandNames = Arrays.copyOf(commandNames, table.length);
+        }
+        table[commandCount + 1] = newRow();
+        commandNames[++commandCount] = commandName;
+        histograms = table;
+        return commandCount;
+    }
+
+    /**
+     * Sets the command to which subsequent timings are attributed, in addition to the overall histograms.
+     * While commands run in parallel, shared per-tick timings are attributed to the one started most recently.
+     * @param slot The slot returned by {@link #slotFor(String)}.
+     */
+    void setCurrentCommand(int slot)
+    {
+        currentCommand = slot;
+    }
+
+    /**
+     * @return The slot of the command to which timings are currently attributed.
+     */
+    int getCurrentCommand()
+    {
+        return currentCommand;
+    }
+
+    /**
+     * @return The names of the tracked kinds of command, indexed by slot. Slot 0 stands for all commands.
+     */
+    public synchronized String[] getCommandNames()
+    {
+        String[] names = new String[commandCount + 1];
+        System.arraycopy(commandNames, 0, names, 0, names.length);
+        return names;
+    }
+
+    /**
+     * @return The current time, to pass to {@link #record(int, long)}, or 0 if metrics are disabled.
+     */
+    long start()
+    {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the time elapsed since a call to {@link #start()}.
+     * @param metric The metric being timed.
+     * @param startNanos The value returned by {@link #start()}.
+     */
+    void record(int metric, long startNanos)
+    {
+        if (enabled)
+        {
+            long elapsed = System.nanoTime() - startNanos;
+            LatencyHistogram[][] table = histograms;
+            table[0][metric].record(elapsed);
+            if (currentCommand > 0)
+            {
+                table[currentCommand][metric].record(elapsed);
+            }
+        }
+    }
+
+    /**
+     * Records the start of a control tick, timing the period since the previous one.
+     */
+    void recordTick()
+    {
+        if (enabled)
+        {
+            long now = System.nanoTime();
+            if (lastTickNanos != 0)
+            {
+                LatencyHistogram[][] table = histograms;
+                table[0][TICK_PERIOD].record(now - lastTickNanos);
+                if (currentCommand > 0)
+                {
+                    table[currentCommand][TICK_PERIOD].record(now - lastTickNanos);
+                }
+            }
+            lastTickNanos = now;
+        }
+    }
+
+    /**
+     * Marks the end of a run of ticks, so the idle time before the next run is not counted as a tick period.
+     */
+    void recordIdle()
+    {
+        lastTickNanos = 0;
+    }
+
+    /**
+     * @param metric One of the metric constants of this class.
+     * @return The histogram of the metric over all commands.
+     */
+    public LatencyHistogram get(int metric)
+    {
+        return histograms[0][metric];
+    }
+
+    /**
+     * @param commandName The name of the kind of command (e.g. "driveForward").
+     * @param metric One of the metric constants of this class.
+     * @return The histogram of the metric for that kind of command, or null if it has not been run.
+     */
+    public synchronized LatencyHistogram get(String commandName, int metric)
+    {
+        for (int i = 1; i <= commandCount; i++)
+        {
+            if (commandNames[i].equals(commandName))
+            {
+                return histograms[i][metric];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Clears every histogram. Tracked kinds of command keep their slots.
+     */
+    public synchronized void reset()
+    {
+        for (int i = 0; i <= commandCount; i++)
+        {
+            for (LatencyHistogram histogram : histograms[i])
+            {
+                histogram.reset();
+            }
+        }
+        lastTickNanos = 0;
+    }
+
+    /**
+     * @return Every non-empty histogram, one per line, grouped by command.
+     */
+    @Override
+    public synchronized String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i <= commandCount; i++)
+        {
+            builder.append(commandNames[i]).append(':').append('\n');
+            for (int metric = 0; metric < METRIC_NAMES.length; metric++)
+            {
+                if (histograms[i][metric].getCount() > 0)
+                {
+                    builder.append("  ").append(METRIC_NAMES[metric]).append(": ").append(histograms[i][metric]).append('\n');
+                }
+            }
+        }
+        return builder.toString();
+    }
+}
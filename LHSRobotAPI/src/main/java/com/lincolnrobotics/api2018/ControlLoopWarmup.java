@@ -0,0 +1,281 @@
+package com.lincolnrobotics.api2018;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the robot's control code on a robot without hardware, so that the runtime has compiled it before the match starts.
+ * On the Robot Controller phone, code runs interpreted until it has been called often enough, so without a warm-up the
+ * first moves of an autonomous routine run with much slower ticks than later ones. Normally run during the OpMode's
+ * init phase (see {@code LHSOpMode.warmUp}).
+ * The warm-up robot runs drives, turns and extension moves back-to-back on a {@link VirtualClock}, through the same executor, terminators,
+ * drive power controls and {@link OutputCache} as a physical robot, its writes going to a sink which does nothing.
+ * The time taken by each tick is measured in windows of consecutive ticks, from which the tick at which timing settled is reported.
+ */
+public final class ControlLoopWarmup
+{
+    /**
+     * The number of consecutive ticks whose median time is measured together. The median ignores the ticks slowed by the
+     * control thread being descheduled or by garbage collection, which otherwise swamp the effect of compilation.
+     */
+    public static final int WINDOW_SIZE = 50;
+
+    /**
+     * How many times slower than the fastest window a window's median tick may be and still count as settled.
+     */
+    public static final double SETTLED_RATIO = 2;
+
+    // Encoder ticks moved per control tick at full power by the warm-up robot's drive and extension, and the length of their moves
+    private static final double TICKS_PER_TICK = 10;
+    private static final double MOVE_TICKS = 500;
+
+    // The same tolerance as the four wheel robot's output cache, so that as many writes are suppressed
+    private static final double OUTPUT_TOLERANCE = 0.001;
+
+    private final double frequency;
+    private MotorPowerControl leftPowerControl = new BasicMotorPowerControl();
+    private MotorPowerControl rightPowerControl = new BasicMotorPowerControl();
+    private MultiMotorPIDControl drivePID = null;
+
+    /**
+     * The tick times measured by a warm-up.
+     */
+    public static final class Result
+    {
+        private final long iterations;
+        private final long[] windowMedianNanos;
+        private final int settledWindow;
+
+        Result(long iterations, long[] windowMedianNanos)
+        {
+            this.iterations = iterations;
+            this.windowMedianNanos = windowMedianNanos;
+
+            long fastest = Long.MAX_VALUE;
+            for (long median : windowMedianNanos)
+            {
+                fastest = Math.min(fastest, median);
+            }
+            // Timing has settled from the first window after which no window is much slower than the fastest
+            int settled = windowMedianNanos.length;
+            while (settled > 0 && windowMedianNanos[settled - 1] <= SETTLED_RATIO * fastest)
+            {
+                settled--;
+            }
+            this.settledWindow = settled < windowMedianNanos.length ? settled : -1;
+        }
+
+        /**
+         * @return The number of control ticks run.
+         */
+        public long getIterations()
+        {
+            return iterations;
+        }
+
+        /**
+         * @return The number of complete windows of {@link #WINDOW_SIZE} ticks measured.
+         */
+        public int getWindowCount()
+        {
+            return windowMedianNanos.length;
+        }
+
+        /**
+         * @param window The index of the window, from 0 for the first ticks run.
+         * @return The median time taken by a tick in the window, in nanoseconds.
+         */
+        public long getWindowMedianNanos(int window)
+        {
+            return windowMedianNanos[window];
+        }
+
+        /**
+         * @return true if the tick times have settled, i.e. the last window ran at close to the fastest window's speed
+         */
+        public boolean isSettled()
+        {
+            return settledWindow >= 0;
+        }
+
+        /**
+         * @return The number of ticks run before the tick times settled, or -1 if they had not settled.
+         */
+        public long getSettledIteration()
+        {
+            return settledWindow < 0 ? -1 : (long) settledWindow * WINDOW_SIZE;
+        }
+
+        @Override
+        public String toString()
+        {
+            if (windowMedianNanos.length == 0)
+            {
+                return "Warm-up of " + iterations + " ticks, too few to measure";
+            }
+            return String.format("Warm-up of %d ticks, %s (median tick %d ns in the first %d ticks, %d ns in the last %d)", iterations,
+                    isSettled() ? "settled after " + getSettledIteration() + " ticks" : "not settled",
+                    windowMedianNanos[0], WINDOW_SIZE, windowMedianNanos[windowMedianNanos.length - 1], WINDOW_SIZE);
+        }
+    }
+
+    /**
+     * Constructs a warm-up whose robot uses the default drive power controls.
+     * @param frequency The rate at which the robot's control loop runs, in ticks per second, so that time-based code
+     *                  (e.g. PID or ramping) sees the same tick period as on the robot.
+     */
+    public ControlLoopWarmup(double frequency)
+    {
+        this.frequency = frequency;
+    }
+
+    /**
+     * Sets the power controls of the warm-up robot, as {@link AbstractRobotAutonomousControl#setDrivePowerControl(MotorPowerControl, MotorPowerControl)}.
+     * They should be of the same kinds as the robot's, but not the same instances, as controls keep state between calls.
+     * @param left The power control for the left drive side.
+     * @param right The power control for the right drive side.
+     * @return This object (to allow method chaining).
+     */
+    public ControlLoopWarmup drivePowerControl(MotorPowerControl left, MotorPowerControl right)
+    {
+        this.leftPowerControl = left;
+        this.rightPowerControl = right;
+        this.drivePID = null;
+        return this;
+    }
+
+    /**
+     * Sets the power control of the warm-up robot, as {@link AbstractRobotAutonomousControl#setDrivePowerControl(MultiMotorPIDControl)}.
+     * It should not be the robot's own controller, as it keeps state between calls.
+     * @param control The controller, with motor 0 being the left side and motor 1 the right side.
+     * @return This object (to allow method chaining).
+     */
+    public ControlLoopWarmup drivePowerControl(MultiMotorPIDControl control)
+    {
+        this.drivePID = control;
+        return this;
+    }
+
+    /**
+     * Runs the warm-up, waiting for it to finish, until the warm-up robot has run at least the given number of ticks.
+     * @param iterations The number of control ticks to run.
+     * @return The measured tick times.
+     */
+    public Result run(long iterations)
+    {
+        WarmupRobot robot = new WarmupRobot(new ControlLoop(frequency, new VirtualClock()), iterations);
+        robot.setDrivePowerControl(leftPowerControl, rightPowerControl);
+        if (drivePID != null)
+        {
+            robot.setDrivePowerControl(drivePID);
+        }
+        // Every move also carries a time limit, so that each tick checks more than one terminator
+        robot.setDefaultTimeout(1, TimeUnit.SECONDS);
+        try
+        {
+            while (robot.getControlLoop().getTickCount() < iterations)
+            {
+                robot.driveForward(MOVE_TICKS).requestSpeed(1);
+                robot.turnRight(MOVE_TICKS).requestSpeed(1);
+                robot.driveForward().until(Terminators.timeLimit(100, TimeUnit.MILLISECONDS));
+                robot.extendTo(0, MOVE_TICKS).requestSpeed(1);
+                robot.extendTo(0, 0).requestSpeed(1);
+                robot.go();
+            }
+        }
+        finally
+        {
+            robot.getExecutor().shutdown();
+        }
+        return new Result(robot.getControlLoop().getTickCount(), robot.getWindowMedians());
+    }
+
+    /**
+     * A robot whose hardware reads follow its own writes, and whose writes go nowhere.
+     */
+    private static final class WarmupRobot extends AbstractRobotAutonomousControl
+    {
+        private final OutputCache outputs = new OutputCache(3, OUTPUT_TOLERANCE);
+        private final OutputCache.Sink sink = (id, power) -> {};
+        // The left and right drive encoders, then the extension
+        private final double[] positions = new double[3];
+        private final long[] tickNanos;
+        private int ticks = 0;
+        private long tickStartNanos = 0;
+        private long lastFlushNanos;
+
+        WarmupRobot(ControlLoop controlLoop, long iterations)
+        {
+            super(controlLoop, 2, 1, 1, 0, 1);
+            this.tickNanos = new long[(int) (iterations / WINDOW_SIZE * WINDOW_SIZE)];
+        }
+
+        long[] getWindowMedians()
+        {
+            long[] medians = new long[Math.min(tickNanos.length, ticks) / WINDOW_SIZE];
+            long[] window = new long[WINDOW_SIZE];
+            for (int i = 0; i < medians.length; i++)
+            {
+                System.arraycopy(tickNanos, i * WINDOW_SIZE, window, 0, WINDOW_SIZE);
+                Arrays.sort(window);
+                medians[i] = window[WINDOW_SIZE / 2];
+            }
+            return medians;
+        }
+
+        @Override
+        protected int readMotorEncoder(int id)
+        {
+            if (id == 0)
+            {
+                // The first read of every tick, which ends the previous tick at its last flush
+                long now = System.nanoTime();
+                if (tickStartNanos != 0)
+                {
+                    if (ticks < tickNanos.length)
+                    {
+                        tickNanos[ticks] = lastFlushNanos - tickStartNanos;
+                    }
+                    ticks++;
+                }
+                tickStartNanos = now;
+            }
+            return (int) positions[id];
+        }
+
+        @Override
+        protected int readExtensionValue(int id)
+        {
+            return (int) positions[2 + id];
+        }
+
+        @Override
+        protected int readColorSensor(int id)
+        {
+            return 0;
+        }
+
+        @Override
+        protected void writeDrivePower(double leftPower, double rightPower)
+        {
+            outputs.set(0, leftPower);
+            outputs.set(1, rightPower);
+        }
+
+        @Override
+        protected void writeExtensionPower(int id, double power)
+        {
+            outputs.set(2 + id, power);
+        }
+
+        @Override
+        protected void flushOutputs()
+        {
+            outputs.flush(sink);
+            positions[0] += outputs.getWritten(0) * TICKS_PER_TICK;
+            positions[1] += outputs.getWritten(1) * TICKS_PER_TICK;
+            positions[2] += outputs.getWritten(2) * TICKS_PER_TICK;
+            lastFlushNanos = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.lincolnrobotics.api2018;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A handle to a {@link Command} submitted to a {@link ControlLoopExecutor}.
+ * It allows the submitting thread to poll, wait for, or cancel the command while it runs on the control thread.
+ */
+public class Execution
+{
+    private final Command command;
+    private final List<Runnable> completionListeners = new ArrayList<>();
+    private volatile boolean cancelRequested = false;
+    private boolean completing = false;
+    private volatile boolean done = false;
+    private volatile boolean cancelled = false;
+    private volatile Throwable failure = null;
+
+    Execution(Command command)
+    {
+        this.command = command;
+    }
+
+    /**
+     * Creates a handle which has already completed, for when there is nothing to run.
+     * @return A completed execution.
+     */
+    static Execution completed()
+    {
+        Execution execution = new Execution(null);
+        execution.complete(false, null);
+        return execution;
+    }
+
+    Command getCommand()
+    {
+        return command;
+    }
+
+    boolean isCancelRequested()
+    {
+        return cancelRequested;
+    }
+
+    /**
+     * @return true if the command has stopped running, whether it finished, was cancelled or failed
+     */
+    public boolean isDone()
+    {
+        return done;
+    }
+
+    /**
+     * @return true if the command was cancelled before it finished
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * @return The exception thrown by the command while it ran, or null if it did not fail.
+     */
+    public Throwable getFailure()
+    {
+        return failure;
+    }
+
+    /**
+     * Requests that the command stop. It is ended, as interrupted, on the next control tick.
+     * @return false if the command had already completed, true otherwise
+     */
+    public boolean cancel()
+    {
+        if (done)
+        {
+            return false;
+        }
+        cancelRequested = true;
+        return true;
+    }
+
+    /**
+     * Blocks the calling thread until the command has completed.
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public synchronized void await() throws InterruptedException
+    {
+        while (!done)
+        {
+            wait();
+        }
+    }
+
+    /**
+     * Blocks the calling thread until the command has completed or the timeout elapses.
+     * @param timeout The maximum time to wait.
+     * @param unit The unit of the timeout.
+     * @return true if the command completed, false if the timeout elapsed first
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public synchronized boolean await(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long remaining;
+        while (!done && (remaining = deadline - System.nanoTime()) > 0)
+        {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return done;
+    }
+
+    /**
+     * Adds an action to run when the command completes. It is run on the control thread,
+     * or immediately on the calling thread if the command has already completed.
+     * @param listener The action to run.
+     * @return This object (to allow method chaining).
+     */
+    public Execution whenComplete(Runnable listener)
+    {
+        synchronized (this)
+        {
+            if (!completing)
+            {
+                completionListeners.add(listener);
+                return this;
+            }
+        }
+        listener.run();
+        return this;
+    }
+
+    void complete(boolean cancelled, Throwable failure)
+    {
+        synchronized (this)
+        {
+            this.cancelled = cancelled;
+            this.failure = failure;
+            this.completing = true;
+        }
+
+        // Listeners run before waiting threads are released, so that their effects are visible once await() returns
+        for (int i = 0; i < completionListeners.size(); i++)
+        {
+            completionListeners.get(i).run();
+        }
+        completionListeners.clear();
+
+        synchronized (this)
+        {
+            this.done = true;
+            notifyAll();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.lincolnrobotics.api2018;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Converts a file written by {@link FlightRecorder} into CSV, one row per tick. Intended to be run on a computer
+ * after a match: {@code java com.lincolnrobotics.api2018.FlightRecordDecoder flight.bin flight.csv}
+ */
+public final class FlightRecordDecoder
+{
+    private FlightRecordDecoder()
+    {
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 2)
+        {
+            System.err.println("Usage: FlightRecordDecoder <input.bin> <output.csv>");
+            System.exit(1);
+        }
+        try (InputStream in = new FileInputStream(args[0]); Writer out = new FileWriter(args[1]))
+        {
+            toCsv(in, out);
+        }
+    }
+
+    /**
+     * Decodes a flight record into CSV. Times are given in milliseconds since the first recorded tick.
+     * @param in The binary flight record.
+     * @param out Where to write the CSV.
+     * @throws IOException if the record could not be read or is not a flight record
+     */
+    public static void toCsv(InputStream in, Appendable out) throws IOException
+    {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != FlightRecorder.MAGIC)
+        {
+            throw new IOException("Not a flight record");
+        }
+        int version = data.readInt();
+        if (version != FlightRecorder.VERSION)
+        {
+            throw new IOException("Unsupported flight record version: " + version);
+        }
+        int encoderCount = data.readInt();
+        int extensionCount = data.readInt();
+        String[] names = new String[data.readInt()];
+        int size = data.readInt();
+        for (int i = 0; i < names.length; i++)
+        {
+            byte[] name = new byte[data.readUnsignedShort()];
+            data.readFully(name);
+            names[i] = new String(name, FlightRecorder.UTF_8);
+        }
+
+        out.append("time_ms,command,segment,terminator,left_power,right_power");
+        for (int i = 0; i < encoderCount; i++)
+        {
+            out.append(",encoder_").append(Integer.toString(i));
+        }
+        for (int i = 0; i < extensionCount; i++)
+        {
+            out.append(",extension_").append(Integer.toString(i));
+        }
+        for (int i = 0; i < extensionCount; i++)
+        {
+            out.append(",extension_power_").append(Integer.toString(i));
+        }
+        out.append('\n');
+
+        long firstNanos = 0;
+        for (int r = 0; r < size; r++)
+        {
+            long nanos = data.readLong();
+            if (r == 0)
+            {
+                firstNanos = nanos;
+            }
+            int command = data.readInt();
+            int segment = data.readInt();
+            int terminator = data.readInt();
+            float left = data.readFloat();
+            float right = data.readFloat();
+            out.append(String.format(Locale.US, "%.3f,%s,%d,%d,%.4f,%.4f", (nanos - firstNanos) / 1e6,
+                    command >= 0 && command < names.length ? names[command] : Integer.toString(command),
+                    segment, terminator, left, right));
+            for (int i = 0; i < encoderCount + extensionCount; i++)
+            {
+                out.append(',').append(Integer.toString(data.readInt()));
+            }
+            for (int i = 0; i < extensionCount; i++)
+            {
+                out.append(String.format(Locale.US, ",%.4f", data.readFloat()));
+            }
+            out.append('\n');
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.lincolnrobotics.api2018;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Records the state of the robot on every control tick into a preallocated ring buffer, keeping the most recent ticks.
+ * Each record holds the tick's time, the running command, the terminator which fired (if any), the drive power,
+ * every encoder and extension value and the power of every extension. Records are packed into a single int array, so recording does not allocate
+ * and costs a few array writes per tick.
+ * Once the robot is idle, the buffer can be written to a compact binary file and later converted to CSV with {@link FlightRecordDecoder}.
+ */
+public final class FlightRecorder
+{
+    static final int MAGIC = 0x4C485346; // "LHSF"
+    static final int VERSION = 2;
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Fixed fields of a record: time (2 ints), command, segment, terminator, left power, right power
+    static final int FIXED_FIELDS = 7;
+
+    private final int encoderCount;
+    private final int extensionCount;
+    private final int stride;
+    private final int capacity;
+    private final int[] buffer;
+    private long recordCount = 0;
+
+    /**
+     * Constructs a recorder holding the given number of ticks.
+     * @param capacity The number of ticks kept; older ticks are overwritten. At 100 Hz, 6000 ticks hold a minute.
+     * @param encoderCount The number of encoders recorded on each tick.
+     * @param extensionCount The number of extensions recorded on each tick.
+     */
+    public FlightRecorder(int capacity, int encoderCount, int extensionCount)
+    {
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException("Flight recorder capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.encoderCount = encoderCount;
+        this.extensionCount = extensionCount;
+        this.stride = FIXED_FIELDS + encoderCount + 2 * extensionCount;
+        this.buffer = new int[capacity * stride];
+    }
+
+    /**
+     * Records a single tick, overwriting the oldest if the buffer is full.
+     * @param nanos The time of the tick, from the robot's {@link Clock}.
+     * @param command The slot of the running kind of command in the robot's {@link ControlLoopMetrics}, or 0 for none.
+     * @param segment The position of the running command within its batch.
+     * @param terminator The index of the terminator which fired on this tick, or -1 if none did.
+     * @param leftPower The power written to the left drive side.
+     * @param rightPower The power written to the right drive side.
+     * @param extensionPowers The power last written to each extension.
+     * @param sensors The sensor values read on this tick.
+     */
+    public void record(long nanos, int command, int segment, int terminator, double leftPower, double rightPower, double[] extensionPowers,
+            SensorSnapshot sensors)
+    {
+        int i = (int) (recordCount % capacity) * stride;
+        buffer[i] = (int) (nanos >>> 32);
+        buffer[i + 1] = (int) nanos;
+        buffer[i + 2] = command;
+        buffer[i + 3] = segment;
+        buffer[i + 4] = terminator;
+        buffer[i + 5] = Float.floatToRawIntBits((float) leftPower);
+        buffer[i + 6] = Float.floatToRawIntBits((float) rightPower);
+        i += FIXED_FIELDS;
+        for (int e = 0; e < encoderCount; e++)
+        {
+            buffer[i++] = sensors.getEncoder(e);
+        }
+        for (int e = 0; e < extensionCount; e++)
+        {
+            buffer[i++] = sensors.getExtension(e);
+        }
+        for (int e = 0; e < extensionCount; e++)
+        {
+            buffer[i++] = Float.floatToRawIntBits((float) extensionPowers[e]);
+        }
+        recordCount++;
+    }
+
+    /**
+     * @return The number of ticks currently held, at most the capacity.
+     */
+    public int size()
+    {
+        return (int) Math.min(recordCount, capacity);
+    }
+
+    /**
+     * @return The number of ticks recorded since construction or the last {@link #clear()}, including those overwritten.
+     */
+    public long getRecordCount()
+    {
+        return recordCount;
+    }
+
+    /**
+     * Discards every recorded tick.
+     */
+    public void clear()
+    {
+        recordCount = 0;
+    }
+
+    /**
+     * Writes the held ticks, oldest first, to a binary file. Must not be called while commands are running.
+     * @param file The file to write, replaced if it exists.
+     * @param commandNames The names of the command slots, indexed by slot, written so the decoder can name each command.
+     * @throws IOException if the file could not be written
+     */
+    public void writeTo(File file, String[] commandNames) throws IOException
+    {
+        int size = size();
+        int headerSize = 6 * 4;
+        byte[][] names = new byte[commandNames.length][];
+        for (int i = 0; i < names.length; i++)
+        {
+            names[i] = (commandNames[i] == null ? "" : commandNames[i]).getBytes(UTF_8);
+            headerSize += 2 + names[i].length;
+        }
+
+        ByteBuffer bytes = ByteBuffer.allocate(headerSize + size * stride * 4);
+        bytes.putInt(MAGIC).putInt(VERSION).putInt(encoderCount).putInt(extensionCount).putInt(names.length).putInt(size);
+        for (byte[] name : names)
+        {
+            bytes.putShort((short) name.length).put(name);
+        }
+        long first = recordCount - size;
+        for (long r = first; r < recordCount; r++)
+        {
+            int start = (int) (r % capacity) * stride;
+            for (int i = 0; i < stride; i++)
+            {
+                bytes.putInt(buffer[start + i]);
+            }
+        }
+        bytes.flip();
+
+        try (FileChannel channel = new FileOutputStream(file).getChannel())
+        {
+            while (bytes.hasRemaining())
+            {
+                channel.write(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.lincolnrobotics.api2018;
+
+/**
+ * {@inheritDoc}
+ * This implementation runs every stage configured through a {@link MotorPowerPipeline} in a single call, with the parameters
+ * of each stage held in its own fields. Stages which were not configured are set to have no effect.
+ */
+public final class FusedMotorPowerControl implements MotorPowerControl
+{
+    private final boolean pid;
+    private final double proportionalConstant, integralConstant, differentialConstant;
+    private final Clock clock;
+    private final double staticPower;
+    private final double maximumAcceleration;
+    private final double minimumPower, maximumPower;
+    private final double deadband;
+
+    private boolean firstIteration = true;
+    private double integral;
+    private double lastError;
+    private long lastTime;
+
+    FusedMotorPowerControl(MotorPowerPipeline pipeline)
+    {
+        this.pid = pipeline.pid;
+        this.proportionalConstant = pipeline.proportionalConstant;
+        this.integralConstant = pipeline.integralConstant;
+        this.differentialConstant = pipeline.differentialConstant;
+        this.clock = pipeline.clock;
+        this.staticPower = pipeline.staticPower;
+        this.maximumAcceleration = pipeline.maximumAcceleration;
+        this.minimumPower = pipeline.minimumPower;
+        this.maximumPower = pipeline.maximumPower;
+        this.deadband = pipeline.deadband;
+    }
+
+    @Override
+    public void reset()
+    {
+        integral = 0;
+        lastError = 0;
+        firstIteration = true;
+    }
+
+    @Override
+    public double calculateMotorPower(double currentPower, double targetPower)
+    {
+        double power = targetPower;
+        if (pid)
+        {
+            double error = targetPower - currentPower;
+            long time = clock.nanoTime();
+            double dt = firstIteration ? 0 : (time - lastTime) / 1e6;
+            integral += error * dt;
+            double derivative = dt > 0 ? (error - lastError) / dt : 0;
+            firstIteration = false;
+            lastError = error;
+            lastTime = time;
+            power = currentPower + proportionalConstant * error + integralConstant * integral + differentialConstant * derivative;
+        }
+
+        if (targetPower > 0)
+        {
+            power += staticPower;
+        }
+        else if (targetPower < 0)
+        {
+            power -= staticPower;
+        }
+
+        double difference = power - currentPower;
+        if (difference > maximumAcceleration)
+        {
+            power = currentPower + maximumAcceleration;
+        }
+        else if (difference < -maximumAcceleration)
+        {
+            power = currentPower - maximumAcceleration;
+        }
+
+        if (power > maximumPower)
+        {
+            power = maximumPower;
+        }
+        else if (power < minimumPower)
+        {
+            power = minimumPower;
+        }
+
+        return power < deadband && power > -deadband ? 0 : power;
+    }
+}
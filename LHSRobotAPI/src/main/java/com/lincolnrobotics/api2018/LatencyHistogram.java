@@ -0,0 +1,143 @@
+package com.lincolnrobotics.api2018;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A histogram of durations, in nanoseconds, held in a fixed array of counters.
+ * Buckets are spaced logarithmically with four buckets per power of two, so every recorded value is kept to within 25%
+ * of its true size no matter its magnitude. Recording a value does not allocate.
+ */
+public final class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Values are clamped below 2^42 ns (over an hour), which no control tick will reach
+    private static final long MAX_VALUE = (1L << 42) - 1;
+    private static final int BUCKETS = bucketOf(MAX_VALUE) + 1;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    private static int bucketOf(long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >> shift) & (SUB_BUCKETS - 1));
+    }
+
+    private static long upperBoundOf(int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+        {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    /**
+     * Records a single duration.
+     * @param nanos The duration, in nanoseconds. Negative durations are recorded as 0.
+     */
+    public void record(long nanos)
+    {
+        long value = nanos < 0 ? 0 : nanos > MAX_VALUE ? MAX_VALUE : nanos;
+        counts[bucketOf(value)]++;
+        count++;
+        sum += value;
+        if (value < min)
+        {
+            min = value;
+        }
+        if (value > max)
+        {
+            max = value;
+        }
+    }
+
+    /**
+     * @return The number of durations recorded.
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * @return The shortest duration recorded, in nanoseconds, or 0 if none have been recorded.
+     */
+    public long getMin()
+    {
+        return count == 0 ? 0 : min;
+    }
+
+    /**
+     * @return The longest duration recorded, in nanoseconds.
+     */
+    public long getMax()
+    {
+        return max;
+    }
+
+    /**
+     * @return The average duration recorded, in nanoseconds.
+     */
+    public double getMean()
+    {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Gets the duration below which the given fraction of recorded durations fall.
+     * @param percentile The fraction, from 0.0 to 1.0 (e.g. 0.99 for the 99th percentile).
+     * @return The upper bound of the bucket holding the percentile, in nanoseconds, or 0 if nothing has been recorded.
+     */
+    public long getPercentile(double percentile)
+    {
+        if (count == 0)
+        {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            seen += counts[i];
+            if (seen >= rank && seen > 0)
+            {
+                return Math.min(Math.max(upperBoundOf(i), min), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Clears every recorded duration.
+     */
+    public void reset()
+    {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * @return A one-line summary, in microseconds.
+     */
+    @Override
+    public String toString()
+    {
+        return String.format(Locale.US, "n=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus",
+                count, getMean() / 1e3, getPercentile(0.5) / 1e3, getPercentile(0.99) / 1e3, max / 1e3);
+    }
+}
@@ -0,0 +1,89 @@
+package com.lincolnrobotics.api2018;
+
+/**
+ * The limits on how fast a profiled move may go, in the units of a {@link RobotMovementControl}: centimeters and seconds.
+ */
+public final class MotionLimits
+{
+    private final double maxVelocity;
+    private final double maxAcceleration;
+    private final double maxJerk;
+
+    /**
+     * Constructs limits for a trapezoidal profile, in which acceleration changes instantly.
+     * @param maxVelocity The maximum speed, in centimeters per second.
+     * @param maxAcceleration The maximum acceleration, in centimeters per second per second.
+     */
+    public MotionLimits(double maxVelocity, double maxAcceleration)
+    {
+        this(maxVelocity, maxAcceleration, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Constructs limits for an S-curve profile, in which acceleration ramps up and down.
+     * @param maxVelocity The maximum speed, in centimeters per second.
+     * @param maxAcceleration The maximum acceleration, in centimeters per second per second.
+     * @param maxJerk The maximum rate of change of acceleration, in centimeters per second cubed, or infinity for a trapezoidal profile.
+     */
+    public MotionLimits(double maxVelocity, double maxAcceleration, double maxJerk)
+    {
+        if (!(maxVelocity > 0) || !(maxAcceleration > 0) || !(maxJerk > 0))
+        {
+            throw new IllegalArgumentException("Motion limits must be positive: " + maxVelocity + ", " + maxAcceleration + ", " + maxJerk);
+        }
+        this.maxVelocity = maxVelocity;
+        this.maxAcceleration = maxAcceleration;
+        this.maxJerk = maxJerk;
+    }
+
+    public double getMaxVelocity()
+    {
+        return maxVelocity;
+    }
+
+    public double getMaxAcceleration()
+    {
+        return maxAcceleration;
+    }
+
+    public double getMaxJerk()
+    {
+        return maxJerk;
+    }
+
+    /**
+     * @return true if acceleration is not limited in its rate of change
+     */
+    public boolean isTrapezoidal()
+    {
+        return maxJerk == Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (!(o instanceof MotionLimits))
+        {
+            return false;
+        }
+        MotionLimits other = (MotionLimits) o;
+        return Double.compare(maxVelocity, other.maxVelocity) == 0
+                && Double.compare(maxAcceleration, other.maxAcceleration) == 0
+                && Double.compare(maxJerk, other.maxJerk) == 0;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        long bits = Double.doubleToLongBits(maxVelocity);
+        bits = 31 * bits + Double.doubleToLongBits(maxAcceleration);
+        bits = 31 * bits + Double.doubleToLongBits(maxJerk);
+        return (int) (bits ^ (bits >>> 32));
+    }
+
+    @Override
+    public String toString()
+    {
+        return "MotionLimits(v=" + maxVelocity + ", a=" + maxAcceleration + ", j=" + maxJerk + ")";
+    }
+}
@@ -0,0 +1,218 @@
+package com.lincolnrobotics.api2018;
+
+/**
+ * A planned move over a distance, held as a table of position, velocity and acceleration setpoints sampled once per control tick.
+ * Profiles are generated within {@link MotionLimits}: trapezoidal profiles accelerate at the limit, cruise and decelerate,
+ * and S-curve profiles also ramp the acceleration within the jerk limit, for smoother starts and stops.
+ * The move is computed exactly when the profile is generated, so following it only takes an array lookup per tick.
+ */
+public final class MotionProfile
+{
+    private final double distance;
+    private final long samplePeriodNanos;
+    private final long durationNanos;
+    private final double[] position;
+    private final double[] velocity;
+    private final double[] acceleration;
+
+    private MotionProfile(double distance, long samplePeriodNanos, long durationNanos, double[] position, double[] velocity, double[] acceleration)
+    {
+        this.distance = distance;
+        this.samplePeriodNanos = samplePeriodNanos;
+        this.durationNanos = durationNanos;
+        this.position = position;
+        this.velocity = velocity;
+        this.acceleration = acceleration;
+    }
+
+    /**
+     * Generates the fastest profile over a distance within the given limits, starting and ending at rest.
+     * @param distance The distance to move, in centimeters. A negative distance moves backward.
+     * @param limits The limits on velocity, acceleration and jerk.
+     * @param samplePeriodNanos The time between setpoints, normally the period of the control loop.
+     * @return The profile.
+     */
+    public static MotionProfile generate(double distance, MotionLimits limits, long samplePeriodNanos)
+    {
+        if (samplePeriodNanos <= 0)
+        {
+            throw new IllegalArgumentException("Sample period must be positive: " + samplePeriodNanos);
+        }
+        double length = Math.abs(distance);
+        double sign = distance < 0 ? -1 : 1;
+        double[] durations;
+        double[] startAccelerations;
+        double[] jerks;
+
+        if (length == 0)
+        {
+            durations = new double[0];
+            startAccelerations = jerks = durations;
+        }
+        else if (limits.isTrapezoidal())
+        {
+            double a = limits.getMaxAcceleration();
+            double v = Math.min(limits.getMaxVelocity(), Math.sqrt(length * a));
+            double accelerating = v / a;
+            double cruising = Math.max(0, (length - v * accelerating) / v);
+            durations = new double[]{accelerating, cruising, accelerating};
+            startAccelerations = new double[]{a, 0, -a};
+            jerks = new double[3];
+        }
+        else
+        {
+            double v = peakVelocity(length, limits);
+            double j = limits.getMaxJerk();
+            double a = Math.min(limits.getMaxAcceleration(), Math.sqrt(v * j));
+            double jerking = a / j;
+            double accelerating = Math.max(0, v / a - jerking);
+            double cruising = Math.max(0, (length - v * (2 * jerking + accelerating)) / v);
+            durations = new double[]{jerking, accelerating, jerking, cruising, jerking, accelerating, jerking};
+            startAccelerations = new double[]{0, a, a, 0, 0, -a, -a};
+            jerks = new double[]{j, 0, -j, 0, -j, 0, j};
+        }
+
+        // State at the start of each phase
+        int phases = durations.length;
+        double[] phaseStart = new double[phases + 1];
+        double[] phasePosition = new double[phases + 1];
+        double[] phaseVelocity = new double[phases + 1];
+        for (int i = 0; i < phases; i++)
+        {
+            double t = durations[i];
+            phaseStart[i + 1] = phaseStart[i] + t;
+            phasePosition[i + 1] = phasePosition[i] + phaseVelocity[i] * t + startAccelerations[i] * t * t / 2 + jerks[i] * t * t * t / 6;
+            phaseVelocity[i + 1] = phaseVelocity[i] + startAccelerations[i] * t + jerks[i] * t * t / 2;
+        }
+
+        double duration = phaseStart[phases];
+        double period = samplePeriodNanos / 1e9;
+        int samples = (int) Math.ceil(duration / period) + 1;
+        double[] position = new double[samples];
+        double[] velocity = new double[samples];
+        double[] acceleration = new double[samples];
+        int phase = 0;
+        for (int s = 0; s < samples - 1; s++)
+        {
+            double time = s * period;
+            while (phase < phases - 1 && time >= phaseStart[phase + 1])
+            {
+                phase++;
+            }
+            double t = time - phaseStart[phase];
+            position[s] = sign * (phasePosition[phase] + phaseVelocity[phase] * t + startAccelerations[phase] * t * t / 2 + jerks[phase] * t * t * t / 6);
+            velocity[s] = sign * (phaseVelocity[phase] + startAccelerations[phase] * t + jerks[phase] * t * t / 2);
+            acceleration[s] = sign * (startAccelerations[phase] + jerks[phase] * t);
+        }
+        // The last setpoint is the end of the move, exactly
+        position[samples - 1] = distance;
+
+        return new MotionProfile(distance, samplePeriodNanos, Math.round(duration * 1e9), position, velocity, acceleration);
+    }
+
+    // The highest cruising speed from which an S-curve can still stop within the distance, found by bisection
+    private static double peakVelocity(double length, MotionLimits limits)
+    {
+        double high = limits.getMaxVelocity();
+        if (stoppingDistance(high, limits) <= length)
+        {
+            return high;
+        }
+        double low = 0;
+        for (int i = 0; i < 60; i++)
+        {
+            double middle = (low + high) / 2;
+            if (stoppingDistance(middle, limits) <= length)
+            {
+                low = middle;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // The distance covered accelerating from rest to a speed and decelerating back to rest
+    private static double stoppingDistance(double velocity, MotionLimits limits)
+    {
+        double a = limits.getMaxAcceleration();
+        double j = limits.getMaxJerk();
+        double rampTime = velocity >= a * a / j ? velocity / a + a / j : 2 * Math.sqrt(velocity / j);
+        return velocity * rampTime;
+    }
+
+    /**
+     * @return The distance moved by the profile, in centimeters.
+     */
+    public double getDistance()
+    {
+        return distance;
+    }
+
+    /**
+     * @return The time the move takes, in nanoseconds.
+     */
+    public long getDurationNanos()
+    {
+        return durationNanos;
+    }
+
+    /**
+     * @return The time between setpoints, in nanoseconds.
+     */
+    public long getSamplePeriodNanos()
+    {
+        return samplePeriodNanos;
+    }
+
+    /**
+     * @return The number of setpoints, the last being the end of the move.
+     */
+    public int getSampleCount()
+    {
+        return position.length;
+    }
+
+    /**
+     * @param elapsedNanos The time since the move started.
+     * @return The index of the setpoint to follow at that time; the last setpoint once the move is over.
+     */
+    public int sampleAt(long elapsedNanos)
+    {
+        if (elapsedNanos <= 0)
+        {
+            return 0;
+        }
+        long index = elapsedNanos / samplePeriodNanos;
+        return index >= position.length ? position.length - 1 : (int) index;
+    }
+
+    /**
+     * @param sample The index of the setpoint.
+     * @return The planned distance moved, in centimeters.
+     */
+    public double getPosition(int sample)
+    {
+        return position[sample];
+    }
+
+    /**
+     * @param sample The index of the setpoint.
+     * @return The planned velocity, in centimeters per second.
+     */
+    public double getVelocity(int sample)
+    {
+        return velocity[sample];
+    }
+
+    /**
+     * @param sample The index of the setpoint.
+     * @return The planned acceleration, in centimeters per second per second.
+     */
+    public double getAcceleration(int sample)
+    {
+        return acceleration[sample];
+    }
+}
@@ -0,0 +1,143 @@
+package com.lincolnrobotics.api2018;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of generated {@link MotionProfile}s, keyed by the parameters they were generated from.
+ * When full, the profile used least recently is evicted. Profiles can be preloaded during the OpMode's init phase,
+ * so that queuing a move during the autonomous period only looks its profile up.
+ */
+public class MotionProfileCache
+{
+    private final Map<Key, MotionProfile> profiles;
+    private long hitCount, missCount;
+
+    // Profiles are planned in centimeters and converted to each robot's encoder ticks and motor power while followed,
+    // so the drivetrain is not part of the key: its capabilities only enter a profile through its limits
+    private static final class Key
+    {
+        final double distance;
+        final MotionLimits limits;
+        final long samplePeriodNanos;
+
+        Key(double distance, MotionLimits limits, long samplePeriodNanos)
+        {
+            this.distance = distance;
+            this.limits = limits;
+            this.samplePeriodNanos = samplePeriodNanos;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) o;
+            return Double.compare(distance, other.distance) == 0 && samplePeriodNanos == other.samplePeriodNanos && limits.equals(other.limits);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            long bits = Double.doubleToLongBits(distance);
+            int result = (int) (bits ^ (bits >>> 32));
+            result = 31 * result + limits.hashCode();
+            return 31 * result + (int) (samplePeriodNanos ^ (samplePeriodNanos >>> 32));
+        }
+    }
+
+    /**
+     * Constructs an empty cache.
+     * @param capacity The maximum number of profiles kept.
+     */
+    public MotionProfileCache(final int capacity)
+    {
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        this.profiles = new LinkedHashMap<Key, MotionProfile>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, MotionProfile> eldest)
+            {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Gets the profile for a move, generating it if it is not cached.
+     * @param distance The distance to move, in centimeters.
+     * @param limits The limits on velocity, acceleration and jerk.
+     * @param samplePeriodNanos The time between setpoints, normally the period of the control loop.
+     * @return The profile.
+     */
+    public synchronized MotionProfile get(double distance, MotionLimits limits, long samplePeriodNanos)
+    {
+        Key key = new Key(distance, limits, samplePeriodNanos);
+        MotionProfile profile = profiles.get(key);
+        if (profile != null)
+        {
+            hitCount++;
+            return profile;
+        }
+        missCount++;
+        profile = MotionProfile.generate(distance, limits, samplePeriodNanos);
+        profiles.put(key, profile);
+        return profile;
+    }
+
+    /**
+     * Generates and caches the profiles for a set of moves ahead of time.
+     * @param limits The limits on velocity, acceleration and jerk of every move.
+     * @param samplePeriodNanos The time between setpoints, normally the period of the control loop.
+     * @param distances The distances of the moves, in centimeters.
+     */
+    public synchronized void preload(MotionLimits limits, long samplePeriodNanos, double... distances)
+    {
+        for (double distance : distances)
+        {
+            Key key = new Key(distance, limits, samplePeriodNanos);
+            if (!profiles.containsKey(key))
+            {
+                profiles.put(key, MotionProfile.generate(distance, limits, samplePeriodNanos));
+            }
+        }
+    }
+
+    /**
+     * @return The number of profiles cached.
+     */
+    public synchronized int size()
+    {
+        return profiles.size();
+    }
+
+    /**
+     * @return The number of lookups which found their profile cached.
+     */
+    public synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * @return The number of lookups which had to generate their profile.
+     */
+    public synchronized long getMissCount()
+    {
+        return missCount;
+    }
+
+    /**
+     * Removes every cached profile.
+     */
+    public synchronized void clear()
+    {
+        profiles.clear();
+    }
+}
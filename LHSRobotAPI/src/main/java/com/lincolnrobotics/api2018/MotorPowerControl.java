@@ -13,4 +13,12 @@ public interface MotorPowerControl
      * @return The optimal motor power that the system should adjust to.
      */
     double calculateMotorPower(double currentPower, double targetPower);
+
+    /**
+     * Clears any state kept between calls, so that the next call is treated as the first. Called when the robot starts
+     * driving after being stopped, so that the idle time is not taken as the time between calls. Does nothing by default.
+     */
+    default void reset()
+    {
+    }
 }
@@ -0,0 +1,115 @@
+package com.lincolnrobotics.api2018;
+
+/**
+ * Builds a {@link FusedMotorPowerControl}: a single power control made of optional stages which would otherwise be
+ * stacked as decorators, each call then passing through a chain of interface calls.
+ * Stages always run in the following order, whatever the order in which they are added:
+ * <ol>
+ *     <li>PID, as {@link PIDMotorPowerControl}; without it the target power is passed through, as {@link BasicMotorPowerControl}</li>
+ *     <li>static feedforward, adding a fixed power in the direction of the target</li>
+ *     <li>slew limit, as {@link RampingMotorPowerControl}</li>
+ *     <li>clamp, keeping the power within a range</li>
+ *     <li>deadband, zeroing power too small to move the motor</li>
+ * </ol>
+ */
+public class MotorPowerPipeline
+{
+    boolean pid = false;
+    double proportionalConstant, integralConstant, differentialConstant;
+    Clock clock = Clock.SYSTEM;
+    double staticPower = 0;
+    double maximumAcceleration = Double.POSITIVE_INFINITY;
+    double minimumPower = Double.NEGATIVE_INFINITY;
+    double maximumPower = Double.POSITIVE_INFINITY;
+    double deadband = 0;
+
+    /**
+     * Adds a PID stage timed by the real clock.
+     * @param multiplier Defines the constant by which to multiply all terms
+     * @param proportionalConstant Defines the constant by which to multiply the proportional term
+     * @param integralConstant Defines the constant by which to multiply the integral term
+     * @param differentialConstant Defines the constant by which to multiply the differential term
+     * @return This object (to allow method chaining).
+     */
+    public MotorPowerPipeline pid(double multiplier, double proportionalConstant, double integralConstant, double differentialConstant)
+    {
+        return pid(multiplier, proportionalConstant, integralConstant, differentialConstant, Clock.SYSTEM);
+    }
+
+    /**
+     * Adds a PID stage.
+     * @param multiplier Defines the constant by which to multiply all terms
+     * @param proportionalConstant Defines the constant by which to multiply the proportional term
+     * @param integralConstant Defines the constant by which to multiply the integral term
+     * @param differentialConstant Defines the constant by which to multiply the differential term
+     * @param clock The clock from which the time between calls is read.
+     * @return This object (to allow method chaining).
+     */
+    public MotorPowerPipeline pid(double multiplier, double proportionalConstant, double integralConstant, double differentialConstant, Clock clock)
+    {
+        this.pid = true;
+        this.proportionalConstant = multiplier * proportionalConstant;
+        this.integralConstant = multiplier * integralConstant;
+        this.differentialConstant = multiplier * differentialConstant;
+        this.clock = clock;
+        return this;
+    }
+
+    /**
+     * Adds a static feedforward stage, for motors which need a minimum power to overcome friction.
+     * @param staticPower The power added in the direction of the target power; nothing is added for a target of 0.
+     * @return This object (to allow method chaining).
+     */
+    public MotorPowerPipeline feedforward(double staticPower)
+    {
+        this.staticPower = staticPower;
+        return this;
+    }
+
+    /**
+     * Adds a slew limit stage, limiting how far the power may move from the current power in a single call.
+     * @param maximumPowerAcceleration The largest change in power per call.
+     * @return This object (to allow method chaining).
+     */
+    public MotorPowerPipeline slewLimit(double maximumPowerAcceleration)
+    {
+        this.maximumAcceleration = maximumPowerAcceleration;
+        return this;
+    }
+
+    /**
+     * Adds a clamp stage.
+     * @param minimumPower The lowest power output.
+     * @param maximumPower The highest power output.
+     * @return This object (to allow method chaining).
+     */
+    public MotorPowerPipeline clamp(double minimumPower, double maximumPower)
+    {
+        if (minimumPower > maximumPower)
+        {
+            throw new IllegalArgumentException("Minimum power " + minimumPower + " is above maximum power " + maximumPower);
+        }
+        this.minimumPower = minimumPower;
+        this.maximumPower = maximumPower;
+        return this;
+    }
+
+    /**
+     * Adds a deadband stage.
+     * @param deadband The magnitude below which power is output as 0.
+     * @return This object (to allow method chaining).
+     */
+    public MotorPowerPipeline deadband(double deadband)
+    {
+        this.deadband = deadband;
+        return this;
+    }
+
+    /**
+     * @return A new power control running the configured stages. Each call returns an independent control, with its own PID state.
+     */
+    public FusedMotorPowerControl build()
+    {
+        return new FusedMotorPowerControl(this);
+    }
+}
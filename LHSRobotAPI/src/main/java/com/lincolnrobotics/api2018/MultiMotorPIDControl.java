@@ -0,0 +1,152 @@
+package com.lincolnrobotics.api2018;
+
+import java.util.Arrays;
+
+/**
+ * A Proportional/Integral/Differential (PID) controller for several motors at once, behaving for each motor as a
+ * {@link PIDMotorPowerControl} would. The state of every motor is kept in parallel primitive arrays and the clock is
+ * read once per call, so all motors share the same time sample and a call does not allocate.
+ * Each motor has its own gains and an optional limit on its integral, to keep it from winding up while the motor is saturated.
+ */
+public class MultiMotorPIDControl
+{
+    private final Clock clock;
+    private final double[] proportionalConstant, integralConstant, differentialConstant;
+    private final double[] integralLimit;
+    private final double[] integral;
+    private final double[] lastError;
+
+    private boolean firstIteration = true;
+    private long lastTime;
+
+    /**
+     * Constructs a controller with all gains 0, timed by the real clock.
+     * @param motorCount The number of motors controlled.
+     */
+    public MultiMotorPIDControl(int motorCount)
+    {
+        this(motorCount, Clock.SYSTEM);
+    }
+
+    /**
+     * Constructs a controller with all gains 0.
+     * @param motorCount The number of motors controlled.
+     * @param clock The clock from which the time between calls is read, e.g. the robot's {@link RobotAutonomousControl#getClock() clock}.
+     */
+    public MultiMotorPIDControl(int motorCount, Clock clock)
+    {
+        this.clock = clock;
+        this.proportionalConstant = new double[motorCount];
+        this.integralConstant = new double[motorCount];
+        this.differentialConstant = new double[motorCount];
+        this.integralLimit = new double[motorCount];
+        this.integral = new double[motorCount];
+        this.lastError = new double[motorCount];
+        Arrays.fill(integralLimit, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Sets the PID constants of every motor.
+     * @param multiplier Defines the constant by which to multiply all terms
+     * @param proportionalConstant Defines the constant by which to multiply the proportional term
+     * @param integralConstant Defines the constant by which to multiply the integral term
+     * @param differentialConstant Defines the constant by which to multiply the differential term
+     * @return This object (to allow method chaining).
+     */
+    public MultiMotorPIDControl setGains(double multiplier, double proportionalConstant, double integralConstant, double differentialConstant)
+    {
+        for (int i = 0; i < getMotorCount(); i++)
+        {
+            setGains(i, multiplier, proportionalConstant, integralConstant, differentialConstant);
+        }
+        return this;
+    }
+
+    /**
+     * Sets the PID constants of a single motor.
+     * @param motor The index of the motor.
+     * @param multiplier Defines the constant by which to multiply all terms
+     * @param proportionalConstant Defines the constant by which to multiply the proportional term
+     * @param integralConstant Defines the constant by which to multiply the integral term
+     * @param differentialConstant Defines the constant by which to multiply the differential term
+     * @return This object (to allow method chaining).
+     */
+    public MultiMotorPIDControl setGains(int motor, double multiplier, double proportionalConstant, double integralConstant, double differentialConstant)
+    {
+        this.proportionalConstant[motor] = multiplier * proportionalConstant;
+        this.integralConstant[motor] = multiplier * integralConstant;
+        this.differentialConstant[motor] = multiplier * differentialConstant;
+        return this;
+    }
+
+    /**
+     * Limits the integral of every motor.
+     * @param limit The largest magnitude of the accumulated error, in units of power times milliseconds.
+     * @return This object (to allow method chaining).
+     */
+    public MultiMotorPIDControl setIntegralLimit(double limit)
+    {
+        Arrays.fill(integralLimit, limit);
+        return this;
+    }
+
+    /**
+     * Limits the integral of a single motor.
+     * @param motor The index of the motor.
+     * @param limit The largest magnitude of the accumulated error, in units of power times milliseconds.
+     * @return This object (to allow method chaining).
+     */
+    public MultiMotorPIDControl setIntegralLimit(int motor, double limit)
+    {
+        integralLimit[motor] = limit;
+        return this;
+    }
+
+    /**
+     * @return The number of motors controlled.
+     */
+    public int getMotorCount()
+    {
+        return integral.length;
+    }
+
+    /**
+     * Clears the accumulated state of every motor, so that the next call is treated as the first.
+     */
+    public void reset()
+    {
+        Arrays.fill(integral, 0);
+        Arrays.fill(lastError, 0);
+        firstIteration = true;
+    }
+
+    /**
+     * Calculates the optimal power of every motor at the current point in time.
+     * @param currentPower The actual current power of each motor.
+     * @param targetPower The target power of each motor.
+     * @param output Filled with the optimal power of each motor. May be the same array as currentPower.
+     */
+    public void calculateMotorPower(double[] currentPower, double[] targetPower, double[] output)
+    {
+        long time = clock.nanoTime();
+        double dt = firstIteration ? 0 : (time - lastTime) / 1e6;
+        firstIteration = false;
+        lastTime = time;
+
+        for (int i = 0; i < integral.length; i++)
+        {
+            double current = currentPower[i];
+            double error = targetPower[i] - current;
+
+            double accumulated = integral[i] + error * dt;
+            double limit = integralLimit[i];
+            integral[i] = accumulated > limit ? limit : accumulated < -limit ? -limit : accumulated;
+
+            // Two calls within the same clock reading carry no rate information
+            double derivative = dt > 0 ? (error - lastError[i]) / dt : 0;
+            lastError[i] = error;
+
+            output[i] = current + proportionalConstant[i] * error + integralConstant[i] * integral[i] + differentialConstant[i] * derivative;
+        }
+    }
+}
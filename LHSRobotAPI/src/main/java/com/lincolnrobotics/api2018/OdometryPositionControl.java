@@ -0,0 +1,145 @@
+package com.lincolnrobotics.api2018;
+
+/**
+ * A {@link PositionControl} which estimates the pose of a robot with a left and a right drive side from its drive encoders.
+ * The distance moved by each side is the average over that side's encoders, and each tick's move is integrated as an arc
+ * of constant curvature, which is exact for a robot turning steadily. The heading can instead be taken from a sensor
+ * such as an IMU, which does not drift with wheel slip. All state is kept in preallocated fields, so updating does not allocate.
+ */
+public class OdometryPositionControl implements PositionControl
+{
+    /**
+     * Provides an absolute heading from a sensor, to correct the heading measured by the encoders.
+     */
+    @FunctionalInterface
+    public interface HeadingSource
+    {
+        /**
+         * @return The heading of the robot, in radians, counter-clockwise positive. It may start from any value.
+         */
+        double getHeading();
+    }
+
+    private final double ticksPerCentimeter;
+    private final double trackWidth;
+    private final int[] leftEncoders, rightEncoders;
+    private HeadingSource headingSource = null;
+
+    private volatile double x, y, heading;
+    private double lastLeft, lastRight;
+    private double lastSourceHeading;
+    private boolean initialized = false;
+
+    /**
+     * Constructs an estimator starting at the origin, facing along the x axis.
+     * @param ticksPerCentimeter The number of encoder ticks per centimeter travelled by a wheel.
+     * @param trackWidth The distance between the left and right wheels, in centimeters.
+     * @param leftEncoders The ID numbers of the motors whose encoders measure the left side.
+     * @param rightEncoders The ID numbers of the motors whose encoders measure the right side.
+     */
+    public OdometryPositionControl(double ticksPerCentimeter, double trackWidth, int[] leftEncoders, int[] rightEncoders)
+    {
+        if (leftEncoders.length == 0 || rightEncoders.length == 0)
+        {
+            throw new IllegalArgumentException("Each drive side needs at least one encoder");
+        }
+        this.ticksPerCentimeter = ticksPerCentimeter;
+        this.trackWidth = trackWidth;
+        this.leftEncoders = leftEncoders.clone();
+        this.rightEncoders = rightEncoders.clone();
+    }
+
+    /**
+     * Sets a sensor from which the heading is read instead of being measured by the encoders.
+     * @param headingSource The sensor, or null to measure the heading with the encoders.
+     */
+    public synchronized void setHeadingSource(HeadingSource headingSource)
+    {
+        this.headingSource = headingSource;
+        this.initialized = false;
+    }
+
+    private static double average(SensorSnapshot sensors, int[] encoders)
+    {
+        double sum = 0;
+        for (int encoder : encoders)
+        {
+            sum += sensors.getEncoder(encoder);
+        }
+        return sum / encoders.length;
+    }
+
+    @Override
+    public synchronized void update(SensorSnapshot sensors)
+    {
+        double left = average(sensors, leftEncoders) / ticksPerCentimeter;
+        double right = average(sensors, rightEncoders) / ticksPerCentimeter;
+        double sourceHeading = headingSource != null ? headingSource.getHeading() : 0;
+        if (!initialized)
+        {
+            // The first reading only sets the baseline for the next one
+            lastLeft = left;
+            lastRight = right;
+            lastSourceHeading = sourceHeading;
+            initialized = true;
+            return;
+        }
+
+        double dl = left - lastLeft;
+        double dr = right - lastRight;
+        lastLeft = left;
+        lastRight = right;
+
+        double distance = (dl + dr) / 2;
+        double turn;
+        if (headingSource != null)
+        {
+            turn = Math.IEEEremainder(sourceHeading - lastSourceHeading, 2 * Math.PI);
+            lastSourceHeading = sourceHeading;
+        }
+        else
+        {
+            turn = (dr - dl) / trackWidth;
+        }
+
+        double start = heading;
+        if (Math.abs(turn) < 1e-9)
+        {
+            x += distance * Math.cos(start);
+            y += distance * Math.sin(start);
+        }
+        else
+        {
+            double radius = distance / turn;
+            x += radius * (Math.sin(start + turn) - Math.sin(start));
+            y -= radius * (Math.cos(start + turn) - Math.cos(start));
+        }
+        heading = start + turn;
+    }
+
+    @Override
+    public double getX()
+    {
+        return x;
+    }
+
+    @Override
+    public double getY()
+    {
+        return y;
+    }
+
+    @Override
+    public double getHeading()
+    {
+        return heading;
+    }
+
+    @Override
+    public synchronized void setPose(double x, double y, double heading)
+    {
+        this.x = x;
+        this.y = y;
+        this.heading = heading;
+    }
+}
@@ -0,0 +1,144 @@
+package com.lincolnrobotics.api2018;
+
+import java.util.Arrays;
+
+/**
+ * Holds the values to be written to a robot's actuators (e.g. motor power) between the control logic and the hardware.
+ * Values set during a control tick are only sent to the hardware when the cache is flushed, normally once at the end of the tick,
+ * and a value is only sent if it differs from the one last sent to that actuator by more than a tolerance.
+ * Each write to a motor is a transaction on the hub's serial bus, so skipping repeated writes shortens every tick.
+ * A change to exactly 0 is always sent, so that stopping an actuator is never suppressed.
+ */
+public class OutputCache
+{
+    /**
+     * Performs the actual hardware writes for an {@link OutputCache}.
+     */
+    public interface Sink
+    {
+        /**
+         * @param channel The index of the actuator.
+         * @param value The value to write.
+         */
+        void write(int channel, double value);
+    }
+
+    private final double[] pending;
+    private final double[] written;
+    private final boolean[] touched;
+    private final boolean[] valid;
+    private double tolerance;
+    private long writeCount, suppressedCount;
+
+    /**
+     * Constructs a cache in which no value has been written yet, so the first value set on each actuator is always sent.
+     * @param channelCount The number of actuators.
+     * @param tolerance The largest change from the value last sent which is not sent.
+     */
+    public OutputCache(int channelCount, double tolerance)
+    {
+        this.pending = new double[channelCount];
+        this.written = new double[channelCount];
+        this.touched = new boolean[channelCount];
+        this.valid = new boolean[channelCount];
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Sets the value of an actuator, to be sent on the next flush. Setting an actuator again before then replaces the value.
+     * @param channel The index of the actuator.
+     * @param value The value.
+     */
+    public void set(int channel, double value)
+    {
+        pending[channel] = value;
+        touched[channel] = true;
+    }
+
+    /**
+     * Sends every value set since the last flush which differs from the value last sent.
+     * @param sink The hardware to write to.
+     */
+    public void flush(Sink sink)
+    {
+        for (int i = 0; i < pending.length; i++)
+        {
+            if (!touched[i])
+            {
+                continue;
+            }
+            touched[i] = false;
+            double value = pending[i];
+            if (valid[i] && !differs(value, written[i]))
+            {
+                suppressedCount++;
+                continue;
+            }
+            sink.write(i, value);
+            written[i] = value;
+            valid[i] = true;
+            writeCount++;
+        }
+    }
+
+    private boolean differs(double value, double last)
+    {
+        return value == 0 ? last != 0 : Math.abs(value - last) > tolerance;
+    }
+
+    /**
+     * Forgets the values last sent, so that the next value set on each actuator is sent. Should be called if the hardware
+     * may have been written to around the cache, e.g. after the hardware was reinitialized.
+     */
+    public void invalidate()
+    {
+        Arrays.fill(valid, false);
+    }
+
+    /**
+     * @param tolerance The largest change from the value last sent which is not sent.
+     */
+    public void setTolerance(double tolerance)
+    {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * @param channel The index of the actuator.
+     * @return The value last sent to the actuator, or 0 if none has been sent.
+     */
+    public double getWritten(int channel)
+    {
+        return written[channel];
+    }
+
+    /**
+     * @return The number of values sent to the hardware.
+     */
+    public long getWriteCount()
+    {
+        return writeCount;
+    }
+
+    /**
+     * @return The number of values not sent because they were within the tolerance of the value last sent.
+     */
+    public long getSuppressedCount()
+    {
+        return suppressedCount;
+    }
+
+    /**
+     * Clears the write counts.
+     */
+    public void resetCounts()
+    {
+        writeCount = suppressedCount = 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "OutputCache(" + writeCount + " written, " + suppressedCount + " suppressed)";
+    }
+}
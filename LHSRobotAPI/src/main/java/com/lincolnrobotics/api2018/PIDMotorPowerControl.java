@@ -3,9 +3,12 @@ package com.lincolnrobotics.api2018;
 /**
  * {@inheritDoc}
  * This implementation uses a Proportional/Integral/Differential (PID) controller to find the optimal motor power.
+ * Time between calls is read from a {@link Clock} in nanoseconds and the integral and differential terms work in milliseconds,
+ * so the controller stays accurate at loop rates well above 1 kHz.
  */
 public class PIDMotorPowerControl implements MotorPowerControl
 {
+    private final Clock clock;
     private double proportionalConstant, integralConstant, differentialConstant;
 
     private boolean firstIteration = true;
@@ -22,28 +25,46 @@ public class PIDMotorPowerControl implements MotorPowerControl
      */
     public PIDMotorPowerControl(double multiplier, double proportionalConstant, double integralConstant, double differentialConstant)
     {
+        this(multiplier, proportionalConstant, integralConstant, differentialConstant, Clock.SYSTEM);
+    }
+
+    /**
+     * Constructs an instance using provided PID constants, timed by the given clock.
+     * @param multiplier Defines the constant by which to multiply all terms
+     * @param proportionalConstant Defines the constant by which to multiply the proportional term
+     * @param integralConstant Defines the constant by which to multiply the integral term
+     * @param differentialConstant Defines the constant by which to multiply the differential term
+     * @param clock The clock from which the time between calls is read, e.g. the robot's {@link RobotAutonomousControl#getClock() clock}.
+     */
+    public PIDMotorPowerControl(double multiplier, double proportionalConstant, double integralConstant, double differentialConstant, Clock clock)
+    {
+        this.clock = clock;
         this.proportionalConstant = multiplier * proportionalConstant;
         this.integralConstant = multiplier * integralConstant;
         this.differentialConstant = multiplier * differentialConstant;
     }
 
+    @Override
+    public void reset()
+    {
+        integral = 0;
+        lastError = 0;
+        firstIteration = true;
+    }
+
     @Override
     public double calculateMotorPower(double currentPower, double targetPower)
     {
         double error = targetPower - currentPower;
-        long time = System.currentTimeMillis();
+        long time = clock.nanoTime();
 
         double dx = error - lastError;
-        long dt = time - lastTime;
+        double dt = firstIteration ? 0 : (time - lastTime) / 1e6;
 
         integral += error * dt;
-        double derivative = dx / dt;
-
-        if(firstIteration)
-        {
-            derivative = 0;
-            firstIteration = false;
-        }
+        // Two calls within the same clock reading carry no rate information
+        double derivative = dt > 0 ? dx / dt : 0;
+        firstIteration = false;
 
         double proportionalTerm = proportionalConstant * error;
         double integralTerm = integralConstant * integral;
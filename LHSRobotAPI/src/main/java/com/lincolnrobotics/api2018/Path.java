@@ -0,0 +1,80 @@
+package com.lincolnrobotics.api2018;
+
+/**
+ * A path across the field, made of straight lines between waypoints, to be driven with a {@link PurePursuit} follower.
+ * Coordinates are in centimeters, in the same frame as the robot's {@link PositionControl}.
+ */
+public final class Path
+{
+    private final double[] x;
+    private final double[] y;
+    private final double length;
+
+    private Path(double[] x, double[] y)
+    {
+        this.x = x;
+        this.y = y;
+        double length = 0;
+        for (int i = 1; i < x.length; i++)
+        {
+            length += Math.hypot(x[i] - x[i - 1], y[i] - y[i - 1]);
+        }
+        this.length = length;
+    }
+
+    /**
+     * Constructs a path through the given waypoints, in order.
+     * @param coordinates The coordinates of the waypoints, in centimeters, as pairs: x0, y0, x1, y1, ...
+     * @return The path.
+     */
+    public static Path through(double... coordinates)
+    {
+        if (coordinates.length % 2 != 0 || coordinates.length < 4)
+        {
+            throw new IllegalArgumentException("A path needs at least two waypoints, given as x, y pairs");
+        }
+        int count = coordinates.length / 2;
+        double[] x = new double[count];
+        double[] y = new double[count];
+        for (int i = 0; i < count; i++)
+        {
+            x[i] = coordinates[2 * i];
+            y[i] = coordinates[2 * i + 1];
+        }
+        return new Path(x, y);
+    }
+
+    /**
+     * @return The number of waypoints.
+     */
+    public int getWaypointCount()
+    {
+        return x.length;
+    }
+
+    /**
+     * @param waypoint The index of the waypoint.
+     * @return The x coordinate of the waypoint, in centimeters.
+     */
+    public double getX(int waypoint)
+    {
+        return x[waypoint];
+    }
+
+    /**
+     * @param waypoint The index of the waypoint.
+     * @return The y coordinate of the waypoint, in centimeters.
+     */
+    public double getY(int waypoint)
+    {
+        return y[waypoint];
+    }
+
+    /**
+     * @return The total length of the path, in centimeters.
+     */
+    public double getLength()
+    {
+        return length;
+    }
+}
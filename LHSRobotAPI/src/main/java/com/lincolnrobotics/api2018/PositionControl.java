@@ -0,0 +1,37 @@
+package com.lincolnrobotics.api2018;
+
+/**
+ * Tracks the position of the robot on the field (its pose), updated once per control tick.
+ * Positions are in centimeters. The heading is in radians, counter-clockwise positive, with a heading of 0 facing along the x axis.
+ */
+public interface PositionControl
+{
+    /**
+     * Updates the pose from the sensor values read on the current tick.
+     * @param sensors The sensor values of the robot.
+     */
+    void update(SensorSnapshot sensors);
+
+    /**
+     * @return The x coordinate of the robot, in centimeters.
+     */
+    double getX();
+
+    /**
+     * @return The y coordinate of the robot, in centimeters.
+     */
+    double getY();
+
+    /**
+     * @return The heading of the robot, in radians.
+     */
+    double getHeading();
+
+    /**
+     * Sets the pose of the robot, e.g. to its starting position on the field.
+     * @param x The x coordinate, in centimeters.
+     * @param y The y coordinate, in centimeters.
+     * @param heading The heading, in radians.
+     */
+    void setPose(double x, double y, double heading);
+}
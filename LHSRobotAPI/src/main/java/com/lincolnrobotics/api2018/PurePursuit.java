@@ -0,0 +1,188 @@
+package com.lincolnrobotics.api2018;
+
+/**
+ * Steers a robot with a left and a right drive side along a {@link Path} by pure pursuit: on every tick, the robot drives
+ * the arc which passes through a point on the path a fixed lookahead distance away from it.
+ * The lookahead point is found by resuming from the line of the path where it was last found, only moving on to later
+ * lines, so the search per tick does not grow with the length of the path and the robot never turns back along it.
+ * Updating does not allocate; a follower holds the progress along its path, so it must only drive one command at a time.
+ */
+public class PurePursuit
+{
+    private final Path path;
+    private final double lookahead;
+    private final double trackWidth;
+
+    private int line;
+    private double lineFraction;
+    private double targetX, targetY;
+    private double curvature;
+
+    /**
+     * Constructs a follower.
+     * @param path The path to follow.
+     * @param lookahead The distance from the robot to the point it steers towards, in centimeters.
+     *                  Longer distances give smoother but looser following, cutting corners.
+     * @param trackWidth The distance between the left and right wheels, in centimeters.
+     */
+    public PurePursuit(Path path, double lookahead, double trackWidth)
+    {
+        if (!(lookahead > 0))
+        {
+            throw new IllegalArgumentException("Lookahead must be positive: " + lookahead);
+        }
+        this.path = path;
+        this.lookahead = lookahead;
+        this.trackWidth = trackWidth;
+        reset();
+    }
+
+    /**
+     * Restarts the follower from the start of the path.
+     */
+    public void reset()
+    {
+        line = 0;
+        lineFraction = 0;
+        targetX = path.getX(0);
+        targetY = path.getY(0);
+        curvature = 0;
+    }
+
+    /**
+     * Finds the lookahead point for the robot's current pose and the arc to it.
+     * @param x The x coordinate of the robot, in centimeters.
+     * @param y The y coordinate of the robot, in centimeters.
+     * @param heading The heading of the robot, in radians, counter-clockwise positive.
+     */
+    public void update(double x, double y, double heading)
+    {
+        int last = path.getWaypointCount() - 1;
+        double endX = path.getX(last), endY = path.getY(last);
+        if (square(endX - x) + square(endY - y) <= lookahead * lookahead)
+        {
+            // Close enough to aim at the end of the path directly
+            line = last - 1;
+            lineFraction = 1;
+            targetX = endX;
+            targetY = endY;
+        }
+        else
+        {
+            findLookahead(x, y);
+        }
+
+        // The arc through the robot and the target, tangent to the robot's heading
+        double dx = targetX - x, dy = targetY - y;
+        double sin = Math.sin(heading), cos = Math.cos(heading);
+        double sideways = cos * dy - sin * dx;
+        double distanceSquared = dx * dx + dy * dy;
+        curvature = distanceSquared > 0 ? 2 * sideways / distanceSquared : 0;
+    }
+
+    // Moves the target to the furthest intersection of the lookahead circle with the path, searching forward from the
+    // current line and stopping at the first line which starts beyond the lookahead distance. If no line crosses the
+    // circle (the robot has strayed from the path) the previous target is kept, which steers the robot back.
+    private void findLookahead(double x, double y)
+    {
+        double radiusSquared = lookahead * lookahead;
+        for (int i = line; i < path.getWaypointCount() - 1; i++)
+        {
+            double startX = path.getX(i), startY = path.getY(i);
+            if (i > line && square(startX - x) + square(startY - y) > radiusSquared)
+            {
+                break;
+            }
+            double lineX = path.getX(i + 1) - startX, lineY = path.getY(i + 1) - startY;
+            double fromX = startX - x, fromY = startY - y;
+
+            // Solve |start + t * line - robot| = lookahead for the larger t
+            double a = lineX * lineX + lineY * lineY;
+            double b = 2 * (fromX * lineX + fromY * lineY);
+            double c = fromX * fromX + fromY * fromY - radiusSquared;
+            double discriminant = b * b - 4 * a * c;
+            if (a == 0 || discriminant < 0)
+            {
+                continue;
+            }
+            double t = (-b + Math.sqrt(discriminant)) / (2 * a);
+            if (t < 0 || t > 1 || (i == line && t < lineFraction))
+            {
+                continue;
+            }
+            line = i;
+            lineFraction = t;
+            targetX = startX + t * lineX;
+            targetY = startY + t * lineY;
+        }
+    }
+
+    private static double square(double value)
+    {
+        return value * value;
+    }
+
+    /**
+     * @return The curvature of the arc to the lookahead point found by the last update, in radians per centimeter; positive turns left.
+     */
+    public double getCurvature()
+    {
+        return curvature;
+    }
+
+    /**
+     * @return The index of the line of the path (from waypoint i to waypoint i + 1) on which the lookahead point lies.
+     */
+    public int getLineIndex()
+    {
+        return line;
+    }
+
+    /**
+     * @return The x coordinate of the lookahead point, in centimeters.
+     */
+    public double getTargetX()
+    {
+        return targetX;
+    }
+
+    /**
+     * @return The y coordinate of the lookahead point, in centimeters.
+     */
+    public double getTargetY()
+    {
+        return targetY;
+    }
+
+    /**
+     * @param speed The power of the faster side.
+     * @return The power of the left side to drive the arc found by the last update.
+     */
+    public double getLeftPower(double speed)
+    {
+        return speed * (1 - curvature * trackWidth / 2) / sideScale();
+    }
+
+    /**
+     * @param speed The power of the faster side.
+     * @return The power of the right side to drive the arc found by the last update.
+     */
+    public double getRightPower(double speed)
+    {
+        return speed * (1 + curvature * trackWidth / 2) / sideScale();
+    }
+
+    // Scales both sides down together so that the faster one drives at the requested speed, keeping the arc
+    private double sideScale()
+    {
+        return 1 + Math.abs(curvature) * trackWidth / 2;
+    }
+
+    /**
+     * @return The path followed.
+     */
+    public Path getPath()
+    {
+        return path;
+    }
+}
@@ -34,6 +34,12 @@ public class RampingMotorPowerControl implements MotorPowerControl
         this(baseControl, movementControl.movementSpeedToRobotPower(maximumAcceleration));
     }
 
+    @Override
+    public void reset()
+    {
+        baseControl.reset();
+    }
+
     @Override
     public double calculateMotorPower(double currentPower, double targetPower)
     {
@@ -16,6 +16,61 @@ public class RgbColor {
         this.blue = blue;
     }
 
+    /**
+     * Packs a color into a single int as 0xRRGGBB, so that it can be stored and passed around without allocating.
+     * Each component is clamped to 0-255.
+     * @param red The red component.
+     * @param green The green component.
+     * @param blue The blue component.
+     * @return The packed color.
+     */
+    public static int pack(int red, int green, int blue) {
+        return clamp(red) << 16 | clamp(green) << 8 | clamp(blue);
+    }
+
+    private static int clamp(int component) {
+        return component < 0 ? 0 : component > 255 ? 255 : component;
+    }
+
+    /**
+     * @param packed A color packed as 0xRRGGBB.
+     * @return The red component of the color.
+     */
+    public static int red(int packed) {
+        return (packed >> 16) & 0xFF;
+    }
+
+    /**
+     * @param packed A color packed as 0xRRGGBB.
+     * @return The green component of the color.
+     */
+    public static int green(int packed) {
+        return (packed >> 8) & 0xFF;
+    }
+
+    /**
+     * @param packed A color packed as 0xRRGGBB.
+     * @return The blue component of the color.
+     */
+    public static int blue(int packed) {
+        return packed & 0xFF;
+    }
+
+    /**
+     * @param packed A color packed as 0xRRGGBB.
+     * @return The color.
+     */
+    public static RgbColor fromPacked(int packed) {
+        return new RgbColor(red(packed), green(packed), blue(packed));
+    }
+
+    /**
+     * @return This color packed as 0xRRGGBB.
+     */
+    public int toPacked() {
+        return pack(red, green, blue);
+    }
+
 
     public int getRed() {
         return red;
@@ -107,6 +107,16 @@ public interface RobotAutonomousControl
      */
     RgbColor senseColor(int id);
 
+    /**
+     * Gets the currently read color from a particular light sensor without allocating, for use in terminators checked on every tick.
+     * @param id The ID number of the color sensor, arbitrarily assigned.
+     * @return The currently read color from the light sensor, packed as 0xRRGGBB (see {@link RgbColor#pack(int, int, int)}).
+     */
+    default int senseColorPacked(int id)
+    {
+        return senseColor(id).toPacked();
+    }
+
     /**
      * Gets the number of color sensors on the robot.
      * @return The number of color sensors on the robot.
@@ -142,6 +152,14 @@ public interface RobotAutonomousControl
      */
     RobotAutonomousControl pauseRobot();
 
+    /**
+     * Tells the robot when to stop running the previously issued command.
+     * Specifically, when the method {@link Terminator#shouldTerminate(RobotAutonomousControl)} returns true, the command will terminate.
+     * @param terminator The terminator to add. Multiple terminators may be added to a single command.
+     * @return This object (to allow method chaining).
+     */
+    RobotAutonomousControl until(Terminator terminator);
+
     /**
      * Tells the robot when to stop running the previously issued command.
      * Specifically, when the method {@link Terminator#shouldTerminate(RobotAutonomousControl)} returns true, the command will terminate.
@@ -168,4 +186,56 @@ public interface RobotAutonomousControl
      * Instructs the robot to execute any queued commands.
      */
     void go();
+
+    /**
+     * Instructs the robot to execute any queued commands without waiting for them to finish.
+     * If commands from an earlier call are still using the same actuators, these start once they have finished.
+     * @return A handle with which to poll, wait for or cancel the commands.
+     */
+    Execution goAsync();
+
+    /**
+     * Removes all queued commands from the queue and returns them as a single {@link Command}, which runs them in order.
+     * The command can be combined with others through {@link Commands} (e.g. to extend while driving) and run with {@link #go(Command)}.
+     * @return The queued commands.
+     */
+    Command toCommand();
+
+    /**
+     * Instructs the robot to execute the provided command, waiting for it to finish.
+     * @param command The command to execute.
+     */
+    void go(Command command);
+
+    /**
+     * Instructs the robot to execute the provided command without waiting for it to finish.
+     * If commands from an earlier call are still using the same actuators, it starts once they have finished.
+     * @param command The command to execute.
+     * @return A handle with which to poll, wait for or cancel the command.
+     */
+    Execution goAsync(Command command);
+
+    /**
+     * Cancels all queued and running commands, stopping the robot.
+     */
+    void cancelAll();
+
+    /**
+     * Gets the clock by which the robot's commands are timed. Time-based terminators should read time from here,
+     * so that they behave the same on a simulated robot.
+     * @return The robot's clock; the real clock by default.
+     */
+    default Clock getClock()
+    {
+        return Clock.SYSTEM;
+    }
+
+    /**
+     * Gets the tracker of the robot's position on the field, from which position-based terminators read.
+     * @return The robot's position tracker, or null if its position is not tracked.
+     */
+    default PositionControl getPositionControl()
+    {
+        return null;
+    }
 }
@@ -0,0 +1,154 @@
+package com.lincolnrobotics.api2018;
+
+/**
+ * Holds a copy of every sensor value on a robot, read once per control tick.
+ * Terminators and other per-tick logic read from the snapshot instead of the hardware, so the number of
+ * hardware reads per tick is fixed by the number of sensors rather than by the number of checks made against them.
+ * Values are kept in primitive arrays, so updating and reading a snapshot does not allocate.
+ */
+public class SensorSnapshot
+{
+    /**
+     * Performs the actual hardware reads for a {@link SensorSnapshot}.
+     */
+    public interface Source
+    {
+        /**
+         * @param id The ID number of the motor, arbitrarily assigned.
+         * @return The current encoder position of the motor, in ticks.
+         */
+        int readEncoder(int id);
+
+        /**
+         * @param id The ID number of the extension, arbitrarily assigned.
+         * @return The current value of the extension.
+         */
+        int readExtension(int id);
+
+        /**
+         * @param id The ID number of the color sensor, arbitrarily assigned.
+         * @return The color currently read by the sensor, packed as 0xRRGGBB.
+         */
+        int readColor(int id);
+    }
+
+    private final Source source;
+    private final int[] encoders;
+    private final int[] extensions;
+    private final int[] colors;
+    private long updateCount;
+
+    /**
+     * Constructs a snapshot of the given number of sensors.
+     * @param source The source to read sensor values from.
+     * @param encoderCount The number of motor encoders.
+     * @param extensionCount The number of extensions.
+     * @param colorSensorCount The number of color sensors.
+     */
+    public SensorSnapshot(Source source, int encoderCount, int extensionCount, int colorSensorCount)
+    {
+        this.source = source;
+        this.encoders = new int[encoderCount];
+        this.extensions = new int[extensionCount];
+        this.colors = new int[colorSensorCount];
+    }
+
+    /**
+     * Reads every sensor exactly once, replacing the previous snapshot.
+     */
+    public void update()
+    {
+        for (int i = 0; i < encoders.length; i++)
+        {
+            encoders[i] = source.readEncoder(i);
+        }
+        for (int i = 0; i < extensions.length; i++)
+        {
+            extensions[i] = source.readExtension(i);
+        }
+        for (int i = 0; i < colors.length; i++)
+        {
+            colors[i] = source.readColor(i);
+        }
+        updateCount++;
+    }
+
+    /**
+     * Re-reads a single encoder, for use outside of the control loop where a full update would be wasted.
+     * @param id The ID number of the motor, arbitrarily assigned.
+     */
+    public void refreshEncoder(int id)
+    {
+        encoders[id] = source.readEncoder(id);
+    }
+
+    /**
+     * Re-reads a single extension, for use outside of the control loop where a full update would be wasted.
+     * @param id The ID number of the extension, arbitrarily assigned.
+     */
+    public void refreshExtension(int id)
+    {
+        extensions[id] = source.readExtension(id);
+    }
+
+    /**
+     * Re-reads a single color sensor, for use outside of the control loop where a full update would be wasted.
+     * @param id The ID number of the color sensor, arbitrarily assigned.
+     */
+    public void refreshColor(int id)
+    {
+        colors[id] = source.readColor(id);
+    }
+
+    /**
+     * @param id The ID number of the motor, arbitrarily assigned.
+     * @return The encoder position of the motor at the last update, in ticks.
+     */
+    public int getEncoder(int id)
+    {
+        return encoders[id];
+    }
+
+    /**
+     * @param id The ID number of the extension, arbitrarily assigned.
+     * @return The value of the extension at the last update.
+     */
+    public int getExtension(int id)
+    {
+        return extensions[id];
+    }
+
+    /**
+     * @param id The ID number of the color sensor, arbitrarily assigned.
+     * @return The color read by the sensor at the last update, packed as 0xRRGGBB.
+     */
+    public int getColor(int id)
+    {
+        return colors[id];
+    }
+
+    /**
+     * @param id The ID number of the color sensor, arbitrarily assigned.
+     * @return The color read by the sensor at the last update.
+     */
+    public RgbColor getRgbColor(int id)
+    {
+        return RgbColor.fromPacked(colors[id]);
+    }
+
+    /**
+     * @return The number of hardware reads made by each call to {@link #update()}.
+     */
+    public int getReadsPerUpdate()
+    {
+        return encoders.length + extensions.length + colors.length;
+    }
+
+    /**
+     * @return The number of times {@link #update()} has been called.
+     */
+    public long getUpdateCount()
+    {
+        return updateCount;
+    }
+}
@@ -0,0 +1,236 @@
+package com.lincolnrobotics.api2018;
+
+import java.util.Random;
+
+/**
+ * An implementation of {@link RobotAutonomousControl} that runs commands against a model of a two-sided drivetrain
+ * instead of hardware, for testing autonomous routines and tuning terminators on a computer.
+ * The robot's control loop runs on a {@link VirtualClock}, so a routine runs as fast as it can be computed while
+ * every command, terminator and watchdog still sees time pass at the loop's rate.
+ * Each drive side's speed follows its power through the {@link StandardRobotMovementControl} conversion, lagging behind it
+ * by the configured inertia and losing the configured friction; encoders report ticks, as on the robot, with optional noise.
+ * Profiled moves are enabled with the robot's own movement control.
+ */
+public class SimulatedRobotAutonomousControl extends AbstractRobotAutonomousControl
+{
+    /**
+     * The ID numbers of the left and right drive motors.
+     */
+    public static final int LEFT = 0, RIGHT = 1;
+
+    /**
+     * The position gain with which profiled moves are followed unless {@link #setProfileFollowing(StandardRobotMovementControl, double)} is called again.
+     */
+    public static final double DEFAULT_POSITION_GAIN = 0.05;
+
+    private final VirtualClock clock;
+    private final StandardRobotMovementControl movementControl;
+    private final double ticksPerCentimeter;
+    private final Random random = new Random(0);
+
+    private double inertiaSeconds = 0;
+    private double friction = 0;
+    private double encoderNoise = 0;
+    private double extensionSpeed = 1000;
+
+    private final double[] drivePower = new double[2];
+    private final double[] velocity = new double[2];
+    private final double[] position = new double[2];
+    private final double[] extensionPower;
+    private final double[] extensionPosition;
+    private final int[] colors;
+    private long lastUpdateNanos;
+
+    /**
+     * Constructs a simulated robot with no extensions or color sensors, running commands at the default rate.
+     * @param movementControl The conversion between motor power and wheel speed of the modelled robot.
+     */
+    public SimulatedRobotAutonomousControl(StandardRobotMovementControl movementControl)
+    {
+        this(movementControl, 0, 0, ControlLoop.DEFAULT_FREQUENCY);
+    }
+
+    /**
+     * Constructs a simulated robot.
+     * @param movementControl The conversion between motor power and wheel speed of the modelled robot.
+     * @param extensionCount The number of extensions.
+     * @param colorSensorCount The number of color sensors.
+     * @param frequency The rate at which commands are run, in ticks per simulated second.
+     */
+    public SimulatedRobotAutonomousControl(StandardRobotMovementControl movementControl, int extensionCount, int colorSensorCount, double frequency)
+    {
+        this(movementControl, extensionCount, colorSensorCount, new VirtualClock(), frequency);
+    }
+
+    private SimulatedRobotAutonomousControl(StandardRobotMovementControl movementControl, int extensionCount, int colorSensorCount, VirtualClock clock, double frequency)
+    {
+        super(new ControlLoop(frequency, clock), 2, extensionCount, colorSensorCount, LEFT, RIGHT);
+        this.clock = clock;
+        this.movementControl = movementControl;
+        this.ticksPerCentimeter = movementControl.getTicksPerCentimeter();
+        this.extensionPower = new double[extensionCount];
+        this.extensionPosition = new double[extensionCount];
+        this.colors = new int[colorSensorCount];
+        setProfileFollowing(movementControl, DEFAULT_POSITION_GAIN);
+    }
+
+    /**
+     * Sets how slowly the drive responds to a change in power.
+     * @param seconds The time constant of the drive, in seconds: the time taken to cover about two thirds of a change in speed. 0 responds immediately.
+     */
+    public synchronized void setInertia(double seconds)
+    {
+        this.inertiaSeconds = seconds;
+    }
+
+    /**
+     * Sets the power lost to friction. Power at or below it does not move the robot, and it is taken off any power above it.
+     * @param power The friction, in units of motor power.
+     */
+    public synchronized void setFriction(double power)
+    {
+        this.friction = power;
+    }
+
+    /**
+     * Sets the noise added to every encoder read.
+     * @param ticks The standard deviation of the noise, in encoder ticks.
+     */
+    public synchronized void setEncoderNoise(double ticks)
+    {
+        this.encoderNoise = ticks;
+    }
+
+    /**
+     * Seeds the encoder noise, so that noisy runs can be repeated.
+     * @param seed The seed.
+     */
+    public synchronized void setNoiseSeed(long seed)
+    {
+        random.setSeed(seed);
+    }
+
+    /**
+     * Sets the speed at which extensions move.
+     * @param unitsPerSecond The change in an extension's value per simulated second at full power.
+     */
+    public synchronized void setExtensionSpeed(double unitsPerSecond)
+    {
+        this.extensionSpeed = unitsPerSecond;
+    }
+
+    /**
+     * Sets the value of an extension, e.g. to its starting position.
+     * @param id The ID number of the extension, arbitrarily assigned.
+     * @param value The new value.
+     */
+    public synchronized void setExtensionValue(int id, double value)
+    {
+        extensionPosition[id] = value;
+    }
+
+    /**
+     * Sets the color seen by a color sensor.
+     * @param id The ID number of the color sensor, arbitrarily assigned.
+     * @param color The color.
+     */
+    public synchronized void setColor(int id, RgbColor color)
+    {
+        colors[id] = color.toPacked();
+    }
+
+    /**
+     * @return The clock on which the robot runs. It can be read to find out how long a routine would take.
+     */
+    public VirtualClock getVirtualClock()
+    {
+        return clock;
+    }
+
+    /**
+     * @param id The ID number of the drive motor, {@link #LEFT} or {@link #RIGHT}.
+     * @return The true distance travelled by the drive side since construction, in centimeters, without encoder noise.
+     */
+    public synchronized double getPosition(int id)
+    {
+        advance();
+        return position[id];
+    }
+
+    /**
+     * @param id The ID number of the drive motor, {@link #LEFT} or {@link #RIGHT}.
+     * @return The current speed of the drive side, in centimeters per second.
+     */
+    public synchronized double getVelocity(int id)
+    {
+        advance();
+        return velocity[id];
+    }
+
+    // Brings the model up to the current time, with the power last written held since the previous update
+    private void advance()
+    {
+        long now = clock.nanoTime();
+        double dt = (now - lastUpdateNanos) / 1e9;
+        lastUpdateNanos = now;
+        if (dt <= 0)
+        {
+            return;
+        }
+
+        double response = inertiaSeconds > 0 ? 1 - Math.exp(-dt / inertiaSeconds) : 1;
+        for (int i = 0; i < 2; i++)
+        {
+            double target = movementControl.robotPowerToMovementSpeed(afterFriction(drivePower[i]));
+            double start = velocity[i];
+            velocity[i] = start + (target - start) * response;
+            position[i] += (start + velocity[i]) / 2 * dt;
+        }
+        for (int i = 0; i < extensionPosition.length; i++)
+        {
+            extensionPosition[i] += extensionPower[i] * extensionSpeed * dt;
+        }
+    }
+
+    private double afterFriction(double power)
+    {
+        double magnitude = Math.abs(power) - friction;
+        return magnitude > 0 ? Math.copySign(magnitude, power) : 0;
+    }
+
+    @Override
+    protected synchronized int readMotorEncoder(int id)
+    {
+        advance();
+        double noise = encoderNoise > 0 ? random.nextGaussian() * encoderNoise : 0;
+        return (int) Math.round(position[id] * ticksPerCentimeter + noise);
+    }
+
+    @Override
+    protected synchronized int readExtensionValue(int id)
+    {
+        advance();
+        return (int) Math.round(extensionPosition[id]);
+    }
+
+    @Override
+    protected synchronized int readColorSensor(int id)
+    {
+        return colors[id];
+    }
+
+    @Override
+    protected synchronized void writeDrivePower(double leftPower, double rightPower)
+    {
+        advance();
+        drivePower[LEFT] = leftPower;
+        drivePower[RIGHT] = rightPower;
+    }
+
+    @Override
+    protected synchronized void writeExtensionPower(int id, double power)
+    {
+        advance();
+        extensionPower[id] = power;
+    }
+}
@@ -1,7 +1,5 @@
 package com.lincolnrobotics.api2018;
 
-import com.qualcomm.robotcore.hardware.DcMotor;
-
 import static java.lang.Math.PI;
 
 /**
@@ -27,16 +25,6 @@ public class StandardRobotMovementControl implements RobotMovementControl
         this.wheelRadius = wheelRadius;
     }
 
-    /**
-     * Constructs an instance based on the parameters of the motors and wheels.
-     * @param ftcMotor The FTC DcMotor object corresponding to the motor.
-     * @param wheelRadius The radius of the wheel.
-     */
-    public StandardRobotMovementControl(DcMotor ftcMotor, int wheelRadius)
-    {
-        this(ftcMotor.getMotorType().getAchieveableMaxTicksPerSecondRounded(), (int) ftcMotor.getMotorType().getTicksPerRev(), wheelRadius);
-    }
-
     @Override
     public double robotPowerToMovementSpeed(double robotPower)
     {
@@ -48,4 +36,12 @@ public class StandardRobotMovementControl implements RobotMovementControl
     {
         return (movementSpeed * ticksPerRotation) / (maxTicksPerSecond * 2 * PI * wheelRadius);
     }
+
+    /**
+     * @return The number of encoder ticks turned per centimeter travelled by the wheel.
+     */
+    public double getTicksPerCentimeter()
+    {
+        return ticksPerRotation / (2 * PI * wheelRadius);
+    }
 }
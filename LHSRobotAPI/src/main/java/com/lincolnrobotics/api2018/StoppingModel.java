@@ -0,0 +1,206 @@
+package com.lincolnrobotics.api2018;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * Predicts how far the robot travels after its drive power is cut, from the speed at which it was moving:
+ * {@code distance = linear * speed + quadratic * speed * speed}. The linear term covers the delay before the motors react,
+ * the quadratic term the braking itself. Distances are in encoder ticks and speeds in ticks per second, as measured by
+ * {@link RobotAutonomousControl#getDistanceTravelled(int)}.
+ * The model starts from configured coefficients and, while learning, refits them by least squares to every stop recorded,
+ * so it calibrates itself as the robot drives. Recorded stops can be saved and loaded, to keep learning across runs.
+ */
+public class StoppingModel
+{
+    private static final String COUNT = "count";
+    private static final String[] SUMS = {"sumV2", "sumV3", "sumV4", "sumVD", "sumV2D"};
+
+    private final double configuredLinear, configuredQuadratic;
+    private double linear, quadratic;
+    private boolean learning = true;
+
+    // Sums of the recorded stops for the least squares fit: v^2, v^3, v^4, v*d, v^2*d
+    private long count;
+    private final double[] sums = new double[SUMS.length];
+
+    /**
+     * Constructs a model which has recorded no stops and predicts no travel after braking, so it brakes on target until it has learned.
+     */
+    public StoppingModel()
+    {
+        this(0, 0);
+    }
+
+    /**
+     * Constructs a model which has recorded no stops.
+     * @param linear The distance travelled after braking per unit of speed, in seconds: the delay before the motors react.
+     * @param quadratic The distance travelled after braking per unit of speed squared, i.e. 1 / (2 * deceleration).
+     */
+    public StoppingModel(double linear, double quadratic)
+    {
+        this.configuredLinear = this.linear = linear;
+        this.configuredQuadratic = this.quadratic = quadratic;
+    }
+
+    /**
+     * @param speed The speed of the robot, in ticks per second.
+     * @return The distance the robot is predicted to travel if its power is cut now, in ticks.
+     */
+    public synchronized double getStoppingDistance(double speed)
+    {
+        speed = Math.abs(speed);
+        return Math.max(0, linear * speed + quadratic * speed * speed);
+    }
+
+    /**
+     * Records a stop, refitting the model if it is learning.
+     * @param speed The speed at which the power was cut, in ticks per second.
+     * @param distance The distance travelled from then until the robot stopped, in ticks.
+     */
+    public synchronized void record(double speed, double distance)
+    {
+        if (!learning)
+        {
+            return;
+        }
+        double v = Math.abs(speed);
+        double v2 = v * v;
+        count++;
+        sums[0] += v2;
+        sums[1] += v2 * v;
+        sums[2] += v2 * v2;
+        sums[3] += v * distance;
+        sums[4] += v2 * distance;
+        fit();
+    }
+
+    // Solves the normal equations of the fit; with too little spread in speed, fits the braking term alone
+    private void fit()
+    {
+        if (count == 0 || sums[2] == 0)
+        {
+            linear = configuredLinear;
+            quadratic = configuredQuadratic;
+            return;
+        }
+        double determinant = sums[0] * sums[2] - sums[1] * sums[1];
+        if (count >= 2 && determinant > 1e-9 * sums[0] * sums[2])
+        {
+            linear = (sums[3] * sums[2] - sums[4] * sums[1]) / determinant;
+            quadratic = (sums[0] * sums[4] - sums[1] * sums[3]) / determinant;
+        }
+        else
+        {
+            linear = 0;
+            quadratic = sums[4] / sums[2];
+        }
+    }
+
+    /**
+     * @param learning True to refit the model to every stop recorded; false to keep the current coefficients.
+     */
+    public synchronized void setLearning(boolean learning)
+    {
+        this.learning = learning;
+    }
+
+    /**
+     * Forgets every recorded stop, going back to the configured coefficients.
+     */
+    public synchronized void reset()
+    {
+        count = 0;
+        for (int i = 0; i < sums.length; i++)
+        {
+            sums[i] = 0;
+        }
+        fit();
+    }
+
+    /**
+     * @return The current linear coefficient, in encoder ticks per tick per second.
+     */
+    public synchronized double getLinear()
+    {
+        return linear;
+    }
+
+    /**
+     * @return The current quadratic coefficient, in encoder ticks per (tick per second) squared.
+     */
+    public synchronized double getQuadratic()
+    {
+        return quadratic;
+    }
+
+    /**
+     * @return The number of stops recorded.
+     */
+    public synchronized long getStopCount()
+    {
+        return count;
+    }
+
+    /**
+     * Writes the recorded stops to a file, to be loaded on a later run.
+     * @param file The file to write.
+     * @throws IOException if the file could not be written
+     */
+    public synchronized void save(File file) throws IOException
+    {
+        Properties properties = new Properties();
+        properties.setProperty(COUNT, Long.toString(count));
+        for (int i = 0; i < SUMS.length; i++)
+        {
+            properties.setProperty(SUMS[i], Double.toString(sums[i]));
+        }
+        try (OutputStream out = new FileOutputStream(file))
+        {
+            properties.store(out, "Recorded stops: linear " + linear + ", quadratic " + quadratic);
+        }
+    }
+
+    /**
+     * Adds the stops recorded in a file written by {@link #save(File)} to those recorded so far, and refits the model.
+     * Nothing is loaded if the file does not exist, e.g. on the first run.
+     * @param file The file to read.
+     * @throws IOException if the file exists but could not be read
+     */
+    public synchronized void load(File file) throws IOException
+    {
+        if (!file.exists())
+        {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file))
+        {
+            properties.load(in);
+        }
+        try
+        {
+            count += Long.parseLong(properties.getProperty(COUNT, "0"));
+            for (int i = 0; i < SUMS.length; i++)
+            {
+                sums[i] += Double.parseDouble(properties.getProperty(SUMS[i], "0"));
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IOException("Malformed stopping model " + file, e);
+        }
+        fit();
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "StoppingModel(linear " + linear + " s, quadratic " + quadratic + " s^2/tick, " + count + " stops)";
+    }
+}
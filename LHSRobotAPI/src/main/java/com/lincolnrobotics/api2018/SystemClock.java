@@ -0,0 +1,38 @@
+package com.lincolnrobotics.api2018;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The real {@link Clock}. Waits park the thread rather than spinning, leaving the CPU free for the FTC SDK's own threads.
+ */
+final class SystemClock implements Clock
+{
+    /**
+     * The time before a deadline at which a wait stops parking and starts yielding, in nanoseconds.
+     * Parking is only accurate to a fraction of a millisecond, so the last stretch is covered by yielding.
+     */
+    private static final long SPIN_THRESHOLD_NANOS = 200_000;
+
+    @Override
+    public long nanoTime()
+    {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void waitUntil(long deadlineNanos)
+    {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted())
+        {
+            if (remaining > SPIN_THRESHOLD_NANOS)
+            {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            }
+            else
+            {
+                Thread.yield();
+            }
+        }
+    }
+}
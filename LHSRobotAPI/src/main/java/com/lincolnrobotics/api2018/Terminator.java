@@ -12,4 +12,12 @@ public interface Terminator
      * @return true if the terminator's condition is met (the robot action should terminate), false if not
      */
     boolean shouldTerminate(RobotAutonomousControl robot);
+
+    /**
+     * Called when the action the terminator is attached to starts, before the terminator is first evaluated.
+     * Terminators which keep state between evaluations should clear it here, so that they can be reused.
+     */
+    default void reset()
+    {
+    }
 }
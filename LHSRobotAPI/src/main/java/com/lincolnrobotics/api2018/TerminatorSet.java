@@ -0,0 +1,129 @@
+package com.lincolnrobotics.api2018;
+
+/**
+ * The terminators attached to a single robot action, stored in an array so that evaluating them every control tick does not allocate.
+ * The array only grows while terminators are being added, which happens before the action runs.
+ * While the action runs, the {@link ThresholdTerminator}s in the set are registered in the robot's per-sensor index,
+ * which compares them once per tick; arbitrary terminators are evaluated as they are.
+ */
+public final class TerminatorSet
+{
+    private Terminator[] terminators = new Terminator[4];
+    private int size = 0;
+    private ThresholdTerminator[] thresholds = new ThresholdTerminator[0];
+    private ThresholdIndex index = null;
+
+    /**
+     * Adds a terminator to the set.
+     * @param terminator The terminator to add.
+     */
+    public void add(Terminator terminator)
+    {
+        if (size == terminators.length)
+        {
+            Terminator[] grown = new Terminator[size * 2];
+            System.arraycopy(terminators, 0, grown, 0, size);
+            terminators = grown;
+        }
+        terminators[size++] = terminator;
+        if (terminator instanceof ThresholdTerminator)
+        {
+            ThresholdTerminator[] grown = new ThresholdTerminator[thresholds.length + 1];
+            System.arraycopy(thresholds, 0, grown, 0, thresholds.length);
+            grown[thresholds.length] = (ThresholdTerminator) terminator;
+            thresholds = grown;
+        }
+    }
+
+    /**
+     * Adds several terminators to the set.
+     * @param terminators The terminators to add.
+     */
+    public void addAll(Terminator... terminators)
+    {
+        for (Terminator terminator : terminators)
+        {
+            add(terminator);
+        }
+    }
+
+    /**
+     * @return The number of terminators in the set.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @param index The position of the terminator, in the order it was added.
+     * @return The terminator at the given position.
+     */
+    public Terminator get(int index)
+    {
+        if (index >= size)
+        {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return terminators[index];
+    }
+
+    /**
+     * Resets every terminator in the set, for the start of the action they are attached to.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < size; i++)
+        {
+            terminators[i].reset();
+        }
+    }
+
+    /**
+     * Registers the set's thresholds in an index, for the start of the action they are attached to.
+     * @param index The index of the robot performing the action.
+     * @param robot The robot, whose sensors are read so that the thresholds report their state at once.
+     */
+    void register(ThresholdIndex index, RobotAutonomousControl robot)
+    {
+        for (ThresholdTerminator threshold : thresholds)
+        {
+            index.add(threshold);
+        }
+        index.sync(robot);
+        this.index = index;
+    }
+
+    /**
+     * Marks the end of the action the terminators are attached to, after which any {@link ThresholdTerminator}s in the
+     * set check their own sensor values again.
+     */
+    public void release()
+    {
+        if (index != null)
+        {
+            for (ThresholdTerminator threshold : thresholds)
+            {
+                index.remove(threshold);
+            }
+            index = null;
+        }
+    }
+
+    /**
+     * Evaluates the terminators in the order they were added, stopping at the first one whose condition is met.
+     * @param robot The robot performing the action.
+     * @return The position of the first terminator whose condition is met, or -1 if none are.
+     */
+    public int evaluate(RobotAutonomousControl robot)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            if (terminators[i].shouldTerminate(robot))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
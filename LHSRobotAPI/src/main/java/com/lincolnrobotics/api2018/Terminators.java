@@ -0,0 +1,428 @@
+package com.lincolnrobotics.api2018;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Factory methods for common {@link Terminator}s and for combining them.
+ * Every combinator keeps its parts in an array built up front, so evaluating it does not allocate.
+ * Time-based terminators measure time with the robot's {@link RobotAutonomousControl#getClock() clock}, so they also run
+ * in simulated time, and start timing when they are first evaluated after the action they are attached to starts.
+ */
+public final class Terminators
+{
+    private Terminators()
+    {
+    }
+
+    /**
+     * @param terminators The terminators to combine.
+     * @return A terminator whose condition is met when the condition of any of the given terminators is met.
+     */
+    public static Terminator any(Terminator... terminators)
+    {
+        return new Any(terminators.clone());
+    }
+
+    /**
+     * @param terminators The terminators to combine.
+     * @return A terminator whose condition is met when the conditions of all of the given terminators are met at once.
+     */
+    public static Terminator all(Terminator... terminators)
+    {
+        return new All(terminators.clone());
+    }
+
+    /**
+     * @param terminator The terminator to invert.
+     * @return A terminator whose condition is met when the condition of the given terminator is not.
+     */
+    public static Terminator not(Terminator terminator)
+    {
+        return new Not(terminator);
+    }
+
+    /**
+     * @param terminators The terminators to combine, in order.
+     * @return A terminator whose condition is met once the condition of each of the given terminators has been met,
+     *         each one on the same or a later tick than the one before it.
+     */
+    public static Terminator sequence(Terminator... terminators)
+    {
+        return new Sequence(terminators.clone());
+    }
+
+    /**
+     * @param time The maximum time the action may run for.
+     * @param unit The unit of the time.
+     * @return A terminator whose condition is met once the action has run for the given time.
+     */
+    public static Terminator timeLimit(long time, TimeUnit unit)
+    {
+        return new TimeLimit(unit.toNanos(time));
+    }
+
+    /**
+     * @param motorId The ID number of the motor to watch, arbitrarily assigned.
+     * @param time The time for which the motor must not move.
+     * @param unit The unit of the time.
+     * @return A terminator whose condition is met once the distance travelled by the motor has not changed for the given time,
+     *         e.g. because the robot is pinned against a wall or the encoder is unplugged.
+     */
+    public static Terminator stall(int motorId, long time, TimeUnit unit)
+    {
+        return new Stall(motorId, unit.toNanos(time));
+    }
+
+    /**
+     * @param motorId The ID number of the motor, arbitrarily assigned.
+     * @param distance The target distance.
+     * @return A terminator whose condition is met once the distance travelled by the motor is at least the target.
+     */
+    public static ThresholdTerminator distanceAtLeast(int motorId, double distance)
+    {
+        return new ThresholdTerminator(ThresholdTerminator.Sensor.DISTANCE, motorId, ThresholdTerminator.Comparison.AT_LEAST, distance);
+    }
+
+    /**
+     * @param motorId The ID number of the motor, arbitrarily assigned.
+     * @param distance The target distance.
+     * @return A terminator whose condition is met once the distance travelled by the motor is at most the target.
+     */
+    public static ThresholdTerminator distanceAtMost(int motorId, double distance)
+    {
+        return new ThresholdTerminator(ThresholdTerminator.Sensor.DISTANCE, motorId, ThresholdTerminator.Comparison.AT_MOST, distance);
+    }
+
+    /**
+     * @param id The ID number of the extension, arbitrarily assigned.
+     * @param value The target value.
+     * @return A terminator whose condition is met once the value of the extension is at least the target.
+     */
+    public static ThresholdTerminator extensionAtLeast(int id, double value)
+    {
+        return new ThresholdTerminator(ThresholdTerminator.Sensor.EXTENSION, id, ThresholdTerminator.Comparison.AT_LEAST, value);
+    }
+
+    /**
+     * @param id The ID number of the extension, arbitrarily assigned.
+     * @param value The target value.
+     * @return A terminator whose condition is met once the value of the extension is at most the target.
+     */
+    public static ThresholdTerminator extensionAtMost(int id, double value)
+    {
+        return new ThresholdTerminator(ThresholdTerminator.Sensor.EXTENSION, id, ThresholdTerminator.Comparison.AT_MOST, value);
+    }
+
+    /**
+     * @param x The x coordinate of the target, in centimeters.
+     * @param y The y coordinate of the target, in centimeters.
+     * @param tolerance The largest distance from the target that counts as reaching it, in centimeters.
+     * @return A terminator whose condition is met once the robot's {@link RobotAutonomousControl#getPositionControl() position}
+     *         is within the tolerance of the target.
+     */
+    public static Terminator positionWithin(double x, double y, double tolerance)
+    {
+        return new PositionWithin(x, y, tolerance);
+    }
+
+    /**
+     * @param heading The target heading, in radians, counter-clockwise positive.
+     * @param tolerance The largest difference from the target that counts as reaching it, in radians.
+     * @return A terminator whose condition is met once the robot's {@link RobotAutonomousControl#getPositionControl() heading}
+     *         is within the tolerance of the target, whichever way round the robot has turned to get there.
+     */
+    public static Terminator headingWithin(double heading, double tolerance)
+    {
+        return new HeadingWithin(heading, tolerance);
+    }
+
+    /**
+     * @param classifier The classifier of the sensor's colors.
+     * @param sensorId The ID number of the color sensor, arbitrarily assigned.
+     * @param colorClass The number of the color class, as defined in the classifier.
+     * @return A terminator whose condition is met once the color sensor reads a color of the given class.
+     */
+    public static Terminator colorIs(ColorClassifier classifier, int sensorId, int colorClass)
+    {
+        return new ColorIs(classifier, sensorId, colorClass);
+    }
+
+    private static PositionControl positionOf(RobotAutonomousControl robot)
+    {
+        PositionControl position = robot.getPositionControl();
+        if (position == null)
+        {
+            throw new IllegalStateException("Robot position is not tracked");
+        }
+        return position;
+    }
+
+    private static void resetAll(Terminator[] terminators)
+    {
+        for (Terminator terminator : terminators)
+        {
+            terminator.reset();
+        }
+    }
+
+    private static final class Any implements Terminator
+    {
+        private final Terminator[] terminators;
+
+        Any(Terminator[] terminators)
+        {
+            this.terminators = terminators;
+        }
+
+        @Override
+        public boolean shouldTerminate(RobotAutonomousControl robot)
+        {
+            for (int i = 0; i < terminators.length; i++)
+            {
+                if (terminators[i].shouldTerminate(robot))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void reset()
+        {
+            resetAll(terminators);
+        }
+    }
+
+    private static final class All implements Terminator
+    {
+        private final Terminator[] terminators;
+
+        All(Terminator[] terminators)
+        {
+            this.terminators = terminators;
+        }
+
+        @Override
+        public boolean shouldTerminate(RobotAutonomousControl robot)
+        {
+            for (int i = 0; i < terminators.length; i++)
+            {
+                if (!terminators[i].shouldTerminate(robot))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void reset()
+        {
+            resetAll(terminators);
+        }
+    }
+
+    private static final class Not implements Terminator
+    {
+        private final Terminator terminator;
+
+        Not(Terminator terminator)
+        {
+            this.terminator = terminator;
+        }
+
+        @Override
+        public boolean shouldTerminate(RobotAutonomousControl robot)
+        {
+            return !terminator.shouldTerminate(robot);
+        }
+
+        @Override
+        public void reset()
+        {
+            terminator.reset();
+        }
+    }
+
+    private static final class Sequence implements Terminator
+    {
+        private final Terminator[] terminators;
+        private int next = 0;
+
+        Sequence(Terminator[] terminators)
+        {
+            this.terminators = terminators;
+        }
+
+        @Override
+        public boolean shouldTerminate(RobotAutonomousControl robot)
+        {
+            while (next < terminators.length && terminators[next].shouldTerminate(robot))
+            {
+                next++;
+            }
+            return next == terminators.length;
+        }
+
+        @Override
+        public void reset()
+        {
+            next = 0;
+            resetAll(terminators);
+        }
+    }
+
+    private static final class TimeLimit implements Terminator
+    {
+        private final long limitNanos;
+        private boolean started = false;
+        private long startNanos;
+
+        TimeLimit(long limitNanos)
+        {
+            this.limitNanos = limitNanos;
+        }
+
+        @Override
+        public boolean shouldTerminate(RobotAutonomousControl robot)
+        {
+            long now = robot.getClock().nanoTime();
+            if (!started)
+            {
+                started = true;
+                startNanos = now;
+            }
+            return now - startNanos >= limitNanos;
+        }
+
+        @Override
+        public void reset()
+        {
+            started = false;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "timeLimit(" + TimeUnit.NANOSECONDS.toMillis(limitNanos) + " ms)";
+        }
+    }
+
+    private static final class Stall implements Terminator
+    {
+        private final int motorId;
+        private final long limitNanos;
+        private double lastDistance = Double.NaN;
+        private long lastChangeNanos;
+
+        Stall(int motorId, long limitNanos)
+        {
+            this.motorId = motorId;
+            this.limitNanos = limitNanos;
+        }
+
+        @Override
+        public boolean shouldTerminate(RobotAutonomousControl robot)
+        {
+            long now = robot.getClock().nanoTime();
+            double distance = robot.getDistanceTravelled(motorId);
+            if (distance != lastDistance)
+            {
+                lastDistance = distance;
+                lastChangeNanos = now;
+            }
+            return now - lastChangeNanos >= limitNanos;
+        }
+
+        @Override
+        public void reset()
+        {
+            lastDistance = Double.NaN;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "stall(motor " + motorId + ", " + TimeUnit.NANOSECONDS.toMillis(limitNanos) + " ms)";
+        }
+    }
+
+    private static final class PositionWithin implements Terminator
+    {
+        private final double x, y;
+        private final double toleranceSquared;
+
+        PositionWithin(double x, double y, double tolerance)
+        {
+            this.x = x;
+            this.y = y;
+            this.toleranceSquared = tolerance * tolerance;
+        }
+
+        @Override
+        public boolean shouldTerminate(RobotAutonomousControl robot)
+        {
+            PositionControl position = positionOf(robot);
+            double dx = position.getX() - x;
+            double dy = position.getY() - y;
+            return dx * dx + dy * dy <= toleranceSquared;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "positionWithin(" + Math.sqrt(toleranceSquared) + " cm of " + x + ", " + y + ")";
+        }
+    }
+
+    private static final class HeadingWithin implements Terminator
+    {
+        private final double heading;
+        private final double tolerance;
+
+        HeadingWithin(double heading, double tolerance)
+        {
+            this.heading = heading;
+            this.tolerance = tolerance;
+        }
+
+        @Override
+        public boolean shouldTerminate(RobotAutonomousControl robot)
+        {
+            return Math.abs(Math.IEEEremainder(positionOf(robot).getHeading() - heading, 2 * Math.PI)) <= tolerance;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "headingWithin(" + tolerance + " rad of " + heading + ")";
+        }
+    }
+
+    private static final class ColorIs implements Terminator
+    {
+        private final ColorClassifier classifier;
+        private final int sensorId;
+        private final int colorClass;
+
+        ColorIs(ColorClassifier classifier, int sensorId, int colorClass)
+        {
+            this.classifier = classifier;
+            this.sensorId = sensorId;
+            this.colorClass = colorClass;
+        }
+
+        @Override
+        public boolean shouldTerminate(RobotAutonomousControl robot)
+        {
+            return classifier.classify(robot.senseColorPacked(sensorId)) == colorClass;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "colorIs(sensor " + sensorId + ", " + classifier.getClassName(colorClass) + ")";
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.lincolnrobotics.api2018;
+
+/**
+ * Tracks {@link ThresholdTerminator}s by the sensor value they are placed on, shared by every command running on a robot.
+ * For every sensor, thresholds are kept sorted in the order the value will cross them, so that the thresholds crossed
+ * by the value are always the first ones. Each tick reads the sensor once and only compares it against the thresholds
+ * at the edge of the crossed ones, moving the edge in either direction as the value changes.
+ */
+final class ThresholdIndex
+{
+    private Channel[] channels = new Channel[0];
+
+    /**
+     * The thresholds placed on a single sensor value.
+     */
+    private static final class Channel
+    {
+        final ThresholdTerminator.Sensor sensor;
+        final int id;
+        // Rising thresholds in ascending order of target, falling thresholds in descending order, each followed by unused room
+        ThresholdTerminator[] rising = new ThresholdTerminator[4];
+        ThresholdTerminator[] falling = new ThresholdTerminator[4];
+        int risingCount, fallingCount;
+        // The number of leading thresholds crossed by the value last read
+        int crossedRising, crossedFalling;
+        // Set when thresholds have been added since the value was last read, so that every threshold is compared again
+        boolean stale;
+
+        Channel(ThresholdTerminator.Sensor sensor, int id)
+        {
+            this.sensor = sensor;
+            this.id = id;
+        }
+    }
+
+    /**
+     * Registers a threshold, which then reports what the index last found until it is removed. Its state is only
+     * known once {@link #sync(RobotAutonomousControl)} or {@link #update(RobotAutonomousControl)} has been called.
+     * @param threshold The threshold to register.
+     */
+    void add(ThresholdTerminator threshold)
+    {
+        Channel channel = channelFor(threshold.getSensor(), threshold.getId());
+        threshold.setIndexed(true);
+        if (threshold.getComparison() == ThresholdTerminator.Comparison.AT_LEAST)
+        {
+            channel.rising = insert(channel.rising, channel.risingCount++, threshold, true);
+        }
+        else
+        {
+            channel.falling = insert(channel.falling, channel.fallingCount++, threshold, false);
+        }
+        channel.stale = true;
+    }
+
+    /**
+     * Unregisters a threshold, which then checks its own sensor value again.
+     * @param threshold The threshold to unregister.
+     */
+    void remove(ThresholdTerminator threshold)
+    {
+        Channel channel = channelFor(threshold.getSensor(), threshold.getId());
+        threshold.setIndexed(false);
+        if (threshold.getComparison() == ThresholdTerminator.Comparison.AT_LEAST)
+        {
+            int position = remove(channel.rising, channel.risingCount--, threshold);
+            if (position < channel.crossedRising)
+            {
+                channel.crossedRising--;
+            }
+        }
+        else
+        {
+            int position = remove(channel.falling, channel.fallingCount--, threshold);
+            if (position < channel.crossedFalling)
+            {
+                channel.crossedFalling--;
+            }
+        }
+    }
+
+    private Channel channelFor(ThresholdTerminator.Sensor sensor, int id)
+    {
+        for (Channel channel : channels)
+        {
+            if (channel.sensor == sensor && channel.id == id)
+            {
+                return channel;
+            }
+        }
+        Channel[] grown = new Channel[channels.length + 1];
+        System.arraycopy(channels, 0, grown, 0, channels.length);
+        grown[channels.length] = new Channel(sensor, id);
+        channels = grown;
+        return grown[channels.length - 1];
+    }
+
+    // Inserts a threshold into the first count entries of a sorted array, growing it if it is full
+    private static ThresholdTerminator[] insert(ThresholdTerminator[] sorted, int count, ThresholdTerminator threshold, boolean ascending)
+    {
+        int position = 0;
+        while (position < count && (ascending ? sorted[position].getTarget() <= threshold.getTarget() : sorted[position].getTarget() >= threshold.getTarget()))
+        {
+            position++;
+        }
+        ThresholdTerminator[] inserted = sorted;
+        if (count == sorted.length)
+        {
+            inserted = new ThresholdTerminator[2 * sorted.length];
+            System.arraycopy(sorted, 0, inserted, 0, position);
+        }
+        System.arraycopy(sorted, position, inserted, position + 1, count - position);
+        inserted[position] = threshold;
+        return inserted;
+    }
+
+    // Removes a threshold from the first count entries of an array, returning where it was
+    private static int remove(ThresholdTerminator[] sorted, int count, ThresholdTerminator threshold)
+    {
+        int position = 0;
+        while (sorted[position] != threshold)
+        {
+            position++;
+        }
+        System.arraycopy(sorted, position + 1, sorted, position, count - position - 1);
+        sorted[count - 1] = null;
+        return position;
+    }
+
+    /**
+     * Reads the sensors of the thresholds added since the last read, so that they report whether they are crossed now.
+     * @param robot The robot to read from.
+     */
+    void sync(RobotAutonomousControl robot)
+    {
+        for (int i = 0; i < channels.length; i++)
+        {
+            if (channels[i].stale)
+            {
+                refresh(channels[i], robot);
+            }
+        }
+    }
+
+    /**
+     * Reads each sensor with a registered threshold once and marks which of its thresholds the value has crossed.
+     * @param robot The robot to read from.
+     */
+    void update(RobotAutonomousControl robot)
+    {
+        for (int i = 0; i < channels.length; i++)
+        {
+            refresh(channels[i], robot);
+        }
+    }
+
+    private static void refresh(Channel channel, RobotAutonomousControl robot)
+    {
+        if (channel.risingCount == 0 && channel.fallingCount == 0)
+        {
+            channel.stale = false;
+            return;
+        }
+        double value = channel.risingCount > 0 ? channel.rising[0].read(robot) : channel.falling[0].read(robot);
+        if (channel.stale)
+        {
+            channel.crossedRising = compareAll(channel.rising, channel.risingCount, value);
+            channel.crossedFalling = compareAll(channel.falling, channel.fallingCount, value);
+            channel.stale = false;
+        }
+        else
+        {
+            channel.crossedRising = moveEdge(channel.rising, channel.risingCount, channel.crossedRising, value);
+            channel.crossedFalling = moveEdge(channel.falling, channel.fallingCount, channel.crossedFalling, value);
+        }
+    }
+
+    // Compares every threshold against the value, returning how many are crossed
+    private static int compareAll(ThresholdTerminator[] sorted, int count, double value)
+    {
+        int crossed = 0;
+        for (int i = 0; i < count; i++)
+        {
+            boolean isCrossed = sorted[i].isCrossedBy(value);
+            sorted[i].setCrossed(isCrossed);
+            if (isCrossed)
+            {
+                crossed++;
+            }
+        }
+        return crossed;
+    }
+
+    // Moves the edge between the crossed thresholds and the rest, comparing only the thresholds it passes
+    private static int moveEdge(ThresholdTerminator[] sorted, int count, int crossed, double value)
+    {
+        while (crossed < count && sorted[crossed].isCrossedBy(value))
+        {
+            sorted[crossed++].setCrossed(true);
+        }
+        while (crossed > 0 && !sorted[crossed - 1].isCrossedBy(value))
+        {
+            sorted[--crossed].setCrossed(false);
+        }
+        return crossed;
+    }
+}
@@ -0,0 +1,136 @@
+package com.lincolnrobotics.api2018;
+
+/**
+ * A {@link Terminator} whose condition is a sensor value being past a fixed target.
+ * Unlike an arbitrary terminator, the condition is known to the control loop: while a command it ends is running, the
+ * terminator is registered in the robot's per-sensor index, shared by every running command, which reads each sensor
+ * once per tick and only compares the value against the targets it has just moved past. Whether registered or not, the
+ * terminator reports whether the current value is past its target, so it stops reporting once the value moves back.
+ */
+public final class ThresholdTerminator implements Terminator
+{
+    /**
+     * The sensor values a threshold can be placed on.
+     */
+    public enum Sensor
+    {
+        /**
+         * The distance travelled by a motor, as returned by {@link RobotAutonomousControl#getDistanceTravelled(int)}.
+         */
+        DISTANCE,
+
+        /**
+         * The value of an extension, as returned by {@link RobotAutonomousControl#getExtensionValue(int)}.
+         */
+        EXTENSION
+    }
+
+    /**
+     * The direction in which a value must cross the target.
+     */
+    public enum Comparison
+    {
+        /**
+         * Triggered when the value is greater than or equal to the target.
+         */
+        AT_LEAST,
+
+        /**
+         * Triggered when the value is less than or equal to the target.
+         */
+        AT_MOST
+    }
+
+    private final Sensor sensor;
+    private final int id;
+    private final Comparison comparison;
+    private final double target;
+    private int indexCount = 0;
+    private boolean crossed = false;
+
+    /**
+     * Constructs a threshold on a sensor value.
+     * @param sensor The kind of sensor value.
+     * @param id The ID number of the motor or extension, arbitrarily assigned.
+     * @param comparison The direction in which the value must cross the target.
+     * @param target The target value.
+     */
+    public ThresholdTerminator(Sensor sensor, int id, Comparison comparison, double target)
+    {
+        this.sensor = sensor;
+        this.id = id;
+        this.comparison = comparison;
+        this.target = target;
+    }
+
+    /**
+     * @return The kind of sensor value the threshold is placed on.
+     */
+    public Sensor getSensor()
+    {
+        return sensor;
+    }
+
+    /**
+     * @return The ID number of the motor or extension.
+     */
+    public int getId()
+    {
+        return id;
+    }
+
+    /**
+     * @return The direction in which the value must cross the target.
+     */
+    public Comparison getComparison()
+    {
+        return comparison;
+    }
+
+    /**
+     * @return The target value.
+     */
+    public double getTarget()
+    {
+        return target;
+    }
+
+    /**
+     * Reads the sensor value this threshold is placed on.
+     * @param robot The robot to read from.
+     * @return The current value.
+     */
+    double read(RobotAutonomousControl robot)
+    {
+        return sensor == Sensor.DISTANCE ? robot.getDistanceTravelled(id) : robot.getExtensionValue(id);
+    }
+
+    boolean isCrossedBy(double value)
+    {
+        return comparison == Comparison.AT_LEAST ? value >= target : value <= target;
+    }
+
+    // Counts registrations, as the same instance may end several running commands
+    void setIndexed(boolean indexed)
+    {
+        indexCount += indexed ? 1 : -1;
+    }
+
+    void setCrossed(boolean crossed)
+    {
+        this.crossed = crossed;
+    }
+
+    @Override
+    public boolean shouldTerminate(RobotAutonomousControl robot)
+    {
+        // When indexed, the index has already compared this tick's value against the target
+        return indexCount > 0 ? crossed : isCrossedBy(read(robot));
+    }
+
+    @Override
+    public String toString()
+    {
+        return sensor.name().toLowerCase() + "(" + id + ") " + (comparison == Comparison.AT_LEAST ? ">= " : "<= ") + target;
+    }
+}
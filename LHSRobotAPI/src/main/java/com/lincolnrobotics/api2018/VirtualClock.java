@@ -0,0 +1,55 @@
+package com.lincolnrobotics.api2018;
+
+/**
+ * A {@link Clock} which only moves when told to. Waiting for a time in the future moves the clock there immediately,
+ * so a {@link ControlLoop} on a virtual clock runs its ticks back-to-back while still seeing them a full period apart.
+ */
+public class VirtualClock implements Clock
+{
+    private volatile long nanos;
+
+    /**
+     * Constructs a clock starting at time 0.
+     */
+    public VirtualClock()
+    {
+        this(0);
+    }
+
+    /**
+     * Constructs a clock starting at the given time.
+     * @param startNanos The initial time, in nanoseconds.
+     */
+    public VirtualClock(long startNanos)
+    {
+        this.nanos = startNanos;
+    }
+
+    @Override
+    public long nanoTime()
+    {
+        return nanos;
+    }
+
+    @Override
+    public synchronized void waitUntil(long deadlineNanos)
+    {
+        if (deadlineNanos - nanos > 0)
+        {
+            nanos = deadlineNanos;
+        }
+    }
+
+    /**
+     * Moves the clock forward.
+     * @param deltaNanos The time to move forward by, in nanoseconds.
+     */
+    public synchronized void advance(long deltaNanos)
+    {
+        if (deltaNanos < 0)
+        {
+            throw new IllegalArgumentException("A clock cannot move backward: " + deltaNanos);
+        }
+        nanos += deltaNanos;
+    }
+}
@@ -1,5 +1,7 @@
 package com.lincolnrobotics.api2018.samples;
 
+import com.lincolnrobotics.api2018.Commands;
+import com.lincolnrobotics.api2018.RgbColor;
 import com.lincolnrobotics.api2018.RobotAutonomousControl;
 
 public class BasicRobotAutonomousControlSample
@@ -7,7 +9,8 @@ public class BasicRobotAutonomousControlSample
     static RobotAutonomousControl robot;
     public static void main(String[] args)
     {
-        robot.driveForward().until(robot -> robot.senseColor(1).getBlue() >= 128).go();
-        robot.driveForward(50);
+        robot.driveForward().until(robot -> RgbColor.blue(robot.senseColorPacked(1)) >= 128).go();
+        robot.driveForward(50).go();
+        robot.go(Commands.parallel(robot.driveForward(50).toCommand(), robot.extendTo(0, 1).toCommand()));
     }
 }
@@ -0,0 +1,139 @@
+package com.lincolnrobotics.api2018;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AbstractRobotAutonomousControlTest
+{
+    @Test
+    public void testRunsQueuedCommandsInOrder()
+    {
+        FakeRobot robot = new FakeRobot();
+        robot.driveForward(100).requestSpeed(1)
+                .turnRight(50).requestSpeed(0.5)
+                .go();
+
+        assertEquals(4, robot.writes.size());
+        assertArrayEquals(new double[]{1, 1}, robot.writes.get(0), 0);
+        assertArrayEquals(new double[]{0, 0}, robot.writes.get(1), 0);
+        assertArrayEquals(new double[]{0.5, -0.5}, robot.writes.get(2), 0);
+        assertEquals(2, robot.stopCount());
+        assertTrue(robot.encoders[0] >= 150);
+    }
+
+    @Test
+    public void testResetsDrivePowerControlForEachBatch()
+    {
+        int[] resets = new int[1];
+        MotorPowerControl control = new MotorPowerControl()
+        {
+            @Override
+            public double calculateMotorPower(double currentPower, double targetPower)
+            {
+                return targetPower;
+            }
+
+            @Override
+            public void reset()
+            {
+                resets[0]++;
+            }
+        };
+        FakeRobot robot = new FakeRobot();
+        robot.setDrivePowerControl(control, control);
+        robot.driveForward(100).requestSpeed(1).turnRight(50).requestSpeed(1).go();
+        assertEquals(2, resets[0]);
+
+        robot.driveForward(100).requestSpeed(1).go();
+        assertEquals(4, resets[0]);
+
+        // An extension on its own leaves the drive alone
+        robot.extend(0).until(Terminators.timeLimit(10, TimeUnit.MILLISECONDS)).go();
+        assertEquals(4, resets[0]);
+    }
+
+    @Test
+    public void testBlendsCompatibleSegments()
+    {
+        FakeRobot robot = new FakeRobot();
+        robot.driveForward(100).requestSpeed(1)
+                .driveForward(50).requestSpeed(0.5)
+                .go();
+
+        // The robot goes straight from full to half power without stopping in between
+        assertEquals(3, robot.writes.size());
+        assertArrayEquals(new double[]{1, 1}, robot.writes.get(0), 0);
+        assertArrayEquals(new double[]{0.5, 0.5}, robot.writes.get(1), 0);
+        assertEquals(1, robot.stopCount());
+    }
+
+    @Test
+    public void testStopsBetweenSegmentsWithoutBlending()
+    {
+        FakeRobot robot = new FakeRobot();
+        robot.setSegmentBlending(false);
+        robot.driveForward(100).requestSpeed(1)
+                .driveForward(50).requestSpeed(0.5)
+                .go();
+
+        assertEquals(2, robot.stopCount());
+    }
+
+    @Test
+    public void testRampsBetweenBlendedSegments()
+    {
+        FakeRobot robot = new FakeRobot();
+        robot.setDrivePowerControl(new RampingMotorPowerControl(new BasicMotorPowerControl(), 0.25),
+                new RampingMotorPowerControl(new BasicMotorPowerControl(), 0.25));
+        robot.driveForward(100).requestSpeed(1)
+                .driveForward(50).requestSpeed(0.5)
+                .go();
+
+        assertArrayEquals(new double[]{0.25, 0.25}, robot.writes.get(0), 1e-9);
+        assertArrayEquals(new double[]{1, 1}, robot.writes.get(3), 1e-9);
+        assertArrayEquals(new double[]{0.75, 0.75}, robot.writes.get(4), 1e-9);
+        assertArrayEquals(new double[]{0.5, 0.5}, robot.writes.get(5), 1e-9);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testTerminatorWithoutCommand()
+    {
+        new FakeRobot().until(robot -> true);
+    }
+
+    @Test
+    public void testDefaultTimeoutEndsStuckCommand()
+    {
+        FakeRobot robot = new FakeRobot();
+        robot.setDefaultTimeout(20, TimeUnit.MILLISECONDS);
+        // Never reaches its target, since the robot is driving backward
+        robot.driveForward(100).requestSpeed(-1).go();
+
+        assertEquals("timeLimit(20 ms)", robot.getLastTerminator().toString());
+        assertEquals(1, robot.stopCount());
+    }
+
+    @Test
+    public void testWatchdogStopsRobot()
+    {
+        FakeRobot robot = new FakeRobot();
+        robot.setWatchdog(20, TimeUnit.MILLISECONDS);
+        try
+        {
+            robot.driveForward(10).requestSpeed(1)
+                    .driveForward().requestSpeed(1)
+                    .driveForward(10).requestSpeed(1)
+                    .go();
+            fail("Watchdog did not trip");
+        }
+        catch (TerminationException e)
+        {
+            assertEquals("Watchdog tripped after 20 ms, while running command 2 of 3", e.getMessage());
+        }
+        assertEquals(0, robot.leftPower, 0);
+        assertEquals(0, robot.extensionPower, 0);
+    }
+}
@@ -0,0 +1,142 @@
+package com.lincolnrobotics.api2018;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AutonomousPlanTest
+{
+    private static final double TRACK_WIDTH = 40;
+    private final StandardRobotMovementControl movement = new StandardRobotMovementControl(1080, 1440, 5);
+
+    private static void routine(SimpleRobotAutonomousControl robot)
+    {
+        robot.driveForward(30);
+        robot.turnRight(90);
+        robot.extendTo(0, 0.5);
+        robot.driveForward(10);
+    }
+
+    @Test
+    public void testCompilesAndRunsRoutine()
+    {
+        SimulatedRobotAutonomousControl robot = new SimulatedRobotAutonomousControl(movement, 1, 0, ControlLoop.DEFAULT_FREQUENCY);
+        AutonomousPlan.Builder builder = new AutonomousPlan.Builder(robot.getExtensionCount(), robot.getColorSensorCount()).speed(1);
+        routine(builder);
+        AutonomousPlan plan = builder.build(robot, movement, TRACK_WIDTH);
+
+        assertEquals(4, plan.getStepCount());
+        assertTrue(plan.getDryRunNanos() > 0);
+        // Compiling does not move the robot
+        assertEquals(0, robot.getVirtualClock().nanoTime());
+
+        plan.run();
+        double ticksPerCentimeter = movement.getTicksPerCentimeter();
+        assertEquals(40 + Math.PI * TRACK_WIDTH / 4, robot.getPosition(SimulatedRobotAutonomousControl.LEFT), 1);
+        assertEquals(40 - Math.PI * TRACK_WIDTH / 4, robot.getPosition(SimulatedRobotAutonomousControl.RIGHT), 1);
+        assertTrue(plan.toString().startsWith("AutonomousPlan(drive " + 30 * ticksPerCentimeter));
+
+        // A plan can be run again
+        plan.run();
+        assertEquals(2 * (40 - Math.PI * TRACK_WIDTH / 4), robot.getPosition(SimulatedRobotAutonomousControl.RIGHT), 2);
+    }
+
+    @Test
+    public void testExtendsFromWherePreviousStepLeftOff()
+    {
+        SimulatedRobotAutonomousControl robot = new SimulatedRobotAutonomousControl(movement, 1, 0, ControlLoop.DEFAULT_FREQUENCY);
+        robot.setExtensionSpeed(10);
+        robot.setDefaultTimeout(5, TimeUnit.SECONDS);
+        AutonomousPlan.Builder builder = new AutonomousPlan.Builder(1, 0).speed(1);
+        builder.extendTo(0, 1);
+        builder.extendTo(0, 0);
+        AutonomousPlan plan = builder.build(robot, movement, TRACK_WIDTH);
+
+        plan.run();
+        // Out to 1 and back to 0, rather than either step stopping at once or running until the timeout
+        double seconds = robot.getVirtualClock().nanoTime() / 1e9;
+        assertTrue("Took " + seconds + " s", seconds > 0.05 && seconds < 1);
+        assertEquals(0, robot.getExtensionValue(0));
+    }
+
+    @Test
+    public void testRejectsInvalidSteps()
+    {
+        SimulatedRobotAutonomousControl robot = new SimulatedRobotAutonomousControl(movement, 1, 0, ControlLoop.DEFAULT_FREQUENCY);
+        AutonomousPlan.Builder builder = new AutonomousPlan.Builder(1, 0);
+        builder.driveForward(10);
+        builder.extendTo(2, 0.5);
+        builder.extendTo(0, 1.5);
+        builder.turnLeft(Double.NaN);
+        try
+        {
+            builder.build(robot, movement, TRACK_WIDTH);
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            assertFalse(e.getMessage().contains("step 1:"));
+            assertTrue(e.getMessage().contains("step 2: no extension 2"));
+            assertTrue(e.getMessage().contains("step 3: extension position 1.5"));
+            assertTrue(e.getMessage().contains("step 4: target NaN"));
+        }
+    }
+
+    @Test
+    public void testRunsBackwardDrivesAndLeftTurns()
+    {
+        SimulatedRobotAutonomousControl robot = new SimulatedRobotAutonomousControl(movement, 0, 0, ControlLoop.DEFAULT_FREQUENCY);
+        AutonomousPlan.Builder builder = new AutonomousPlan.Builder(0, 0).speed(1);
+        builder.driveForward(30);
+        builder.driveBackward(10);
+        builder.turnLeft(90);
+        AutonomousPlan plan = builder.build(robot, movement, TRACK_WIDTH);
+
+        plan.run();
+        assertEquals(20 - Math.PI * TRACK_WIDTH / 4, robot.getPosition(SimulatedRobotAutonomousControl.LEFT), 1);
+        assertEquals(20 + Math.PI * TRACK_WIDTH / 4, robot.getPosition(SimulatedRobotAutonomousControl.RIGHT), 1);
+    }
+
+    @Test
+    public void testPreloadsProfiledSteps()
+    {
+        SimulatedRobotAutonomousControl robot = new SimulatedRobotAutonomousControl(movement, 0, 0, ControlLoop.DEFAULT_FREQUENCY);
+        MotionLimits limits = new MotionLimits(15, 30);
+        AutonomousPlan.Builder builder = new AutonomousPlan.Builder(0, 0).speed(1);
+        builder.profiled(limits).driveForward(30);
+        builder.turnLeft(90);
+        builder.profiled(null).driveForward(10);
+        AutonomousPlan plan = builder.build(robot, movement, TRACK_WIDTH);
+        assertEquals(2, robot.getProfileCache().size());
+
+        plan.run();
+        assertEquals(2, robot.getProfileCache().getHitCount());
+        assertEquals(0, robot.getProfileCache().getMissCount());
+        assertEquals(40 - Math.PI * TRACK_WIDTH / 4, robot.getPosition(SimulatedRobotAutonomousControl.LEFT), 2);
+        assertEquals(40 + Math.PI * TRACK_WIDTH / 4, robot.getPosition(SimulatedRobotAutonomousControl.RIGHT), 2);
+    }
+
+    @Test
+    public void testProfiledStepsRequireProfileFollowing()
+    {
+        AutonomousPlan.Builder builder = new AutonomousPlan.Builder(0, 0).profiled(new MotionLimits(15, 30));
+        builder.driveForward(10);
+        try
+        {
+            builder.build(new FakeRobot(), movement, TRACK_WIDTH);
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            assertTrue(e.getMessage().contains("step 1: profiled moves require setProfileFollowing()"));
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testCannotSenseWhileRecording()
+    {
+        new AutonomousPlan.Builder(0, 1).senseColor(0);
+    }
+}
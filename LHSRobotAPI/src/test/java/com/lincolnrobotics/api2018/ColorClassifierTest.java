@@ -0,0 +1,58 @@
+package com.lincolnrobotics.api2018;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ColorClassifierTest
+{
+    private static final ColorClassifier CLASSIFIER = new ColorClassifier.Builder()
+            .addClass("red tape", 340, 20, 0.5, 0.2, 1)
+            .addClass("blue tape", 200, 250, 0.5, 0.2, 1)
+            .addClass("gray tile", 0, 360, 0, 0.2, 0.2, 0.9)
+            .build();
+
+    @Test
+    public void testClassifiesColors()
+    {
+        assertEquals(0, CLASSIFIER.classify(RgbColor.pack(200, 30, 40)));
+        assertEquals(0, CLASSIFIER.classify(RgbColor.pack(200, 40, 20)));
+        assertEquals(1, CLASSIFIER.classify(RgbColor.pack(20, 60, 220)));
+        assertEquals(2, CLASSIFIER.classify(RgbColor.pack(120, 125, 128)));
+        assertEquals(ColorClassifier.UNCLASSIFIED, CLASSIFIER.classify(RgbColor.pack(30, 200, 40)));
+        assertEquals(ColorClassifier.UNCLASSIFIED, CLASSIFIER.classify(0));
+    }
+
+    @Test
+    public void testHueAndSaturation()
+    {
+        assertEquals(0, CLASSIFIER.getHue(RgbColor.pack(255, 0, 0)));
+        assertEquals(120, CLASSIFIER.getHue(RgbColor.pack(0, 255, 0)));
+        assertEquals(240, CLASSIFIER.getHue(RgbColor.pack(0, 0, 255)));
+        assertEquals(60, CLASSIFIER.getHue(RgbColor.pack(255, 255, 0)), 3);
+        assertEquals(255, CLASSIFIER.getSaturation(RgbColor.pack(0, 0, 255)), 20);
+        assertEquals(0, CLASSIFIER.getSaturation(RgbColor.pack(100, 100, 100)));
+        assertEquals(255, CLASSIFIER.getValue(0xFFFFFF), 5);
+    }
+
+    @Test
+    public void testNamesClasses()
+    {
+        assertEquals(3, CLASSIFIER.getClassCount());
+        assertEquals("blue tape", CLASSIFIER.getClassName(1));
+        assertEquals("unclassified", CLASSIFIER.getClassName(ColorClassifier.UNCLASSIFIED));
+        assertEquals(2, CLASSIFIER.findClass("gray tile"));
+        assertEquals(ColorClassifier.UNCLASSIFIED, CLASSIFIER.findClass("green tape"));
+    }
+
+    @Test
+    public void testStopsOnColorClass()
+    {
+        SimulatedRobotAutonomousControl robot = new SimulatedRobotAutonomousControl(new StandardRobotMovementControl(1080, 1440, 5), 0, 1, ControlLoop.DEFAULT_FREQUENCY);
+        robot.setColor(0, new RgbColor(120, 125, 128));
+        Terminator onBlue = Terminators.colorIs(CLASSIFIER, 0, CLASSIFIER.findClass("blue tape"));
+        assertFalse(onBlue.shouldTerminate(robot));
+        robot.setColor(0, new RgbColor(20, 60, 220));
+        assertTrue(onBlue.shouldTerminate(robot));
+    }
+}
@@ -0,0 +1,103 @@
+package com.lincolnrobotics.api2018;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ColorSamplerTest
+{
+    private static void awaitSamples(ColorSampler sampler, int id, long count) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (sampler.getSampleCount(id) < count)
+        {
+            assertTrue("Timed out waiting for samples", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void testPacksColors()
+    {
+        int packed = RgbColor.pack(0x12, 0x34, 0x56);
+        assertEquals(0x123456, packed);
+        assertEquals(0x12, RgbColor.red(packed));
+        assertEquals(0x34, RgbColor.green(packed));
+        assertEquals(0x56, RgbColor.blue(packed));
+        assertEquals(0xFF00FF, RgbColor.pack(300, -5, 255));
+        assertEquals(packed, RgbColor.fromPacked(packed).toPacked());
+    }
+
+    @Test
+    public void testPublishesLatestReading() throws InterruptedException
+    {
+        AtomicInteger color = new AtomicInteger(0x102030);
+        ColorSampler sampler = new ColorSampler(id -> color.get() + id, 2, TimeUnit.MILLISECONDS.toNanos(1), 1);
+        assertEquals(0, sampler.getColor(0));
+        sampler.start();
+        try
+        {
+            awaitSamples(sampler, 1, 1);
+            assertEquals(0x102031, sampler.getColor(1));
+
+            color.set(0x405060);
+            awaitSamples(sampler, 0, sampler.getSampleCount(0) + 2);
+            assertEquals(0x405060, sampler.getColor(0));
+        }
+        finally
+        {
+            sampler.stop();
+        }
+        assertFalse(sampler.isRunning());
+        long count = sampler.getSampleCount(0);
+        Thread.sleep(10);
+        assertEquals(count, sampler.getSampleCount(0));
+    }
+
+    @Test
+    public void testAveragesRecentReadings() throws InterruptedException
+    {
+        // Alternates between black and a gray of 100, so every full window of two averages to 50
+        AtomicInteger reads = new AtomicInteger();
+        ColorSampler sampler = new ColorSampler(id -> reads.getAndIncrement() % 2 == 0 ? 0 : RgbColor.pack(100, 100, 100),
+                1, TimeUnit.MILLISECONDS.toNanos(1), 2);
+        sampler.start();
+        try
+        {
+            awaitSamples(sampler, 0, 5);
+        }
+        finally
+        {
+            sampler.stop();
+        }
+        assertEquals(RgbColor.pack(50, 50, 50), sampler.getColor(0));
+    }
+
+    @Test
+    public void testRobotReadsSampledColors() throws InterruptedException
+    {
+        SimulatedRobotAutonomousControl robot = new SimulatedRobotAutonomousControl(new StandardRobotMovementControl(1080, 1440, 5), 0, 1, ControlLoop.DEFAULT_FREQUENCY);
+        robot.setColor(0, new RgbColor(10, 20, 200));
+        ColorSampler sampler = robot.enableColorSampling(1, TimeUnit.MILLISECONDS, 1);
+        try
+        {
+            awaitSamples(sampler, 0, 1);
+            assertEquals(RgbColor.pack(10, 20, 200), robot.senseColorPacked(0));
+            assertEquals(200, robot.senseColor(0).getBlue());
+
+            // Stops on the sampled color without reading the sensor on the control loop
+            robot.setColor(0, new RgbColor(0, 0, 0));
+            awaitSamples(sampler, 0, sampler.getSampleCount(0) + 2);
+            robot.driveForward().until(r -> RgbColor.blue(r.senseColorPacked(0)) < 128).go();
+        }
+        finally
+        {
+            robot.disableColorSampling();
+        }
+        assertNull(robot.getColorSampler());
+        assertFalse(sampler.isRunning());
+    }
+}
@@ -0,0 +1,157 @@
+package com.lincolnrobotics.api2018;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CommandsTest
+{
+    /**
+     * A command which finishes after a fixed number of steps, recording how it ended.
+     */
+    private static class StepCommand implements Command
+    {
+        final int steps, requirements;
+        int stepped;
+        Boolean interrupted;
+
+        StepCommand(int steps, int requirements)
+        {
+            this.steps = steps;
+            this.requirements = requirements;
+        }
+
+        @Override
+        public void start()
+        {
+            stepped = 0;
+            interrupted = null;
+        }
+
+        @Override
+        public boolean step()
+        {
+            return ++stepped >= steps;
+        }
+
+        @Override
+        public void end(boolean interrupted)
+        {
+            this.interrupted = interrupted;
+        }
+
+        @Override
+        public int getRequirements()
+        {
+            return requirements;
+        }
+    }
+
+    private static int run(Command command)
+    {
+        command.start();
+        int ticks = 1;
+        while (!command.step())
+        {
+            ticks++;
+        }
+        command.end(false);
+        return ticks;
+    }
+
+    @Test
+    public void testSequence()
+    {
+        StepCommand first = new StepCommand(3, Command.DRIVE), second = new StepCommand(2, Command.DRIVE);
+        Command sequence = Commands.sequence(first, second);
+
+        assertEquals(Command.DRIVE, sequence.getRequirements());
+        assertEquals(5, run(sequence));
+        assertEquals(Boolean.FALSE, first.interrupted);
+        assertEquals(Boolean.FALSE, second.interrupted);
+    }
+
+    @Test
+    public void testParallel()
+    {
+        StepCommand drive = new StepCommand(3, Command.DRIVE), arm = new StepCommand(5, Command.extension(0));
+        Command parallel = Commands.parallel(drive, arm);
+
+        assertEquals(Command.DRIVE | Command.extension(0), parallel.getRequirements());
+        assertEquals(5, run(parallel));
+        assertEquals(Boolean.FALSE, drive.interrupted);
+        assertEquals(Boolean.FALSE, arm.interrupted);
+    }
+
+    @Test
+    public void testRaceAndDeadline()
+    {
+        StepCommand drive = new StepCommand(3, Command.DRIVE), arm = new StepCommand(5, Command.extension(0));
+        assertEquals(3, run(Commands.race(arm, drive)));
+        assertEquals(Boolean.FALSE, drive.interrupted);
+        assertEquals(Boolean.TRUE, arm.interrupted);
+
+        assertEquals(5, run(Commands.deadline(arm, drive)));
+        assertEquals(Boolean.FALSE, drive.interrupted);
+        assertEquals(Boolean.FALSE, arm.interrupted);
+    }
+
+    @Test
+    public void testEmptyGroups()
+    {
+        assertEquals(1, run(Commands.sequence()));
+        assertEquals(1, run(Commands.parallel()));
+        try
+        {
+            Commands.race();
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            assertTrue(e.getMessage().contains("at least one command"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParallelRejectsSharedActuator()
+    {
+        Commands.parallel(new StepCommand(1, Command.DRIVE), new StepCommand(1, Command.DRIVE | Command.extension(1)));
+    }
+
+    @Test
+    public void testExtendsWhileDriving()
+    {
+        FakeRobot robot = new FakeRobot();
+        Command drive = robot.driveForward(200).requestSpeed(1).toCommand();
+        Command arm = robot.extend(0).requestSpeed(1).until(r -> r.getExtensionValue(0) >= 100).toCommand();
+        robot.go(Commands.parallel(drive, arm));
+
+        assertTrue(robot.encoders[0] >= 200);
+        assertTrue(robot.extension >= 100);
+        // Both ran over the same ticks, so the extension stopped while the drive still had half to go
+        assertTrue(robot.encoders[0] < 300);
+        assertEquals(0, robot.extensionPower, 0);
+    }
+
+    @Test
+    public void testExecutorWaitsForOwnedActuator() throws InterruptedException
+    {
+        ControlLoopExecutor executor = new ControlLoopExecutor(new ControlLoop(1000));
+        StepCommand first = new StepCommand(Integer.MAX_VALUE, Command.DRIVE);
+        StepCommand second = new StepCommand(1, Command.DRIVE);
+        StepCommand other = new StepCommand(1, Command.extension(0));
+
+        Execution firstExecution = executor.submit(first);
+        Execution secondExecution = executor.submit(second);
+        assertTrue(executor.submit(other).await(1, TimeUnit.SECONDS));
+        assertFalse(secondExecution.await(20, TimeUnit.MILLISECONDS));
+        assertEquals(0, second.stepped);
+
+        firstExecution.cancel();
+        assertTrue(secondExecution.await(1, TimeUnit.SECONDS));
+        assertEquals(1, second.stepped);
+        executor.shutdown();
+    }
+}
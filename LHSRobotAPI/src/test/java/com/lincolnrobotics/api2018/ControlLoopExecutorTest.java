@@ -0,0 +1,162 @@
+package com.lincolnrobotics.api2018;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ControlLoopExecutorTest
+{
+    /**
+     * A command which finishes after a fixed number of steps, recording how it ended.
+     */
+    private static class CountingCommand implements Command
+    {
+        final int steps;
+        volatile int stepped;
+        volatile Boolean interrupted;
+
+        CountingCommand(int steps)
+        {
+            this.steps = steps;
+        }
+
+        @Override
+        public void start()
+        {
+        }
+
+        @Override
+        public boolean step()
+        {
+            return ++stepped >= steps;
+        }
+
+        @Override
+        public void end(boolean interrupted)
+        {
+            this.interrupted = interrupted;
+        }
+    }
+
+    @Test
+    public void testRunsCommandToCompletion() throws InterruptedException
+    {
+        ControlLoopExecutor executor = new ControlLoopExecutor(new ControlLoop(1000));
+        CountingCommand command = new CountingCommand(5);
+        AtomicInteger completions = new AtomicInteger();
+
+        Execution execution = executor.submit(command).whenComplete(completions::incrementAndGet);
+        assertTrue(execution.await(1, TimeUnit.SECONDS));
+
+        assertTrue(execution.isDone());
+        assertFalse(execution.isCancelled());
+        assertEquals(5, command.stepped);
+        assertEquals(Boolean.FALSE, command.interrupted);
+        assertEquals(1, completions.get());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testCompletesAfterTheTickEnds() throws InterruptedException
+    {
+        AtomicInteger afterTicks = new AtomicInteger();
+        ControlLoopExecutor executor = new ControlLoopExecutor(new ControlLoop(1000), () -> {}, afterTicks::incrementAndGet);
+        CountingCommand command = new CountingCommand(5);
+
+        executor.submit(command).await();
+
+        // The work after the last tick has already run
+        assertEquals(5, afterTicks.get());
+        assertFalse(executor.isRunning());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testStepsCommandsInTheSameTick() throws InterruptedException
+    {
+        ControlLoopExecutor executor = new ControlLoopExecutor(new ControlLoop(1000));
+        CountingCommand first = new CountingCommand(Integer.MAX_VALUE);
+        CountingCommand second = new CountingCommand(20);
+
+        Execution firstExecution = executor.submit(first);
+        executor.submit(second).await();
+        firstExecution.cancel();
+        firstExecution.await();
+
+        assertTrue(first.stepped >= 20);
+        assertTrue(firstExecution.isCancelled());
+        assertEquals(Boolean.TRUE, first.interrupted);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testAwaitTimesOut() throws InterruptedException
+    {
+        ControlLoopExecutor executor = new ControlLoopExecutor(new ControlLoop(1000));
+        Execution execution = executor.submit(new CountingCommand(Integer.MAX_VALUE));
+
+        assertFalse(execution.await(20, TimeUnit.MILLISECONDS));
+        assertFalse(execution.isDone());
+
+        executor.shutdown();
+        execution.await();
+        assertTrue(execution.isCancelled());
+    }
+
+    @Test
+    public void testReportsFailure() throws InterruptedException
+    {
+        ControlLoopExecutor executor = new ControlLoopExecutor(new ControlLoop(1000));
+        RuntimeException failure = new RuntimeException("bad sensor");
+        CountingCommand command = new CountingCommand(Integer.MAX_VALUE)
+        {
+            @Override
+            public boolean step()
+            {
+                throw failure;
+            }
+        };
+
+        Execution execution = executor.submit(command);
+        execution.await();
+
+        assertSame(failure, execution.getFailure());
+        assertEquals(Boolean.TRUE, command.interrupted);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testRobotGoAsync() throws InterruptedException
+    {
+        FakeRobot robot = new FakeRobot(new ControlLoop(1000));
+
+        Execution drive = robot.driveForward().requestSpeed(1).goAsync();
+        assertFalse(drive.await(20, TimeUnit.MILLISECONDS));
+        assertTrue(robot.encoders[0] > 0);
+
+        robot.cancelAll();
+        drive.await();
+        assertTrue(drive.isCancelled());
+
+        int stoppedAt = robot.encoders[0];
+        robot.driveForward(100).requestSpeed(1).go();
+        assertTrue(robot.encoders[0] >= stoppedAt + 100);
+    }
+
+    @Test
+    public void testRobotAwaitsCancelledCommands() throws InterruptedException
+    {
+        FakeRobot robot = new FakeRobot(new ControlLoop(1000));
+        Execution drive = robot.driveForward().requestSpeed(1).goAsync();
+        Execution extend = robot.extend(0).goAsync();
+
+        robot.cancelAll();
+        assertTrue(robot.awaitIdle(1, TimeUnit.SECONDS));
+        assertTrue(drive.isDone());
+        assertTrue(extend.isDone());
+        assertTrue(robot.awaitIdle(0, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,93 @@
+package com.lincolnrobotics.api2018;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ControlLoopMetricsTest
+{
+    @Test
+    public void histogramPercentilesAreWithinBucketResolution()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++)
+        {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMin());
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(500_500, histogram.getMean(), 1e-6);
+        long p50 = histogram.getPercentile(0.5);
+        assertTrue(p50 >= 500_000 && p50 <= 500_000 * 1.25);
+        long p99 = histogram.getPercentile(0.99);
+        assertTrue(p99 >= 990_000 && p99 <= 1_000_000);
+        assertEquals(1_000_000, histogram.getPercentile(1));
+    }
+
+    @Test
+    public void histogramClampsAndResets()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(0, histogram.getMin());
+        assertTrue(histogram.getMax() > 0);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(0.5));
+    }
+
+    @Test
+    public void recordsHotPathTimingsByCommand()
+    {
+        FakeRobot robot = new FakeRobot();
+        robot.driveForward(100).requestSpeed(1).pauseRobot().until(r -> true).go();
+
+        ControlLoopMetrics metrics = robot.getMetrics();
+        assertTrue(metrics.get(ControlLoopMetrics.TICK_PERIOD).getCount() > 0);
+        assertTrue(metrics.get(ControlLoopMetrics.TERMINATORS).getCount() > 0);
+        assertTrue(metrics.get(ControlLoopMetrics.ENCODER_READ).getCount() > 0);
+        assertTrue(metrics.get(ControlLoopMetrics.DRIVE_WRITE).getCount() > 0);
+        assertTrue(metrics.get(ControlLoopMetrics.POWER_CONTROL).getCount() > 0);
+
+        LatencyHistogram drive = metrics.get("driveForward", ControlLoopMetrics.TERMINATORS);
+        LatencyHistogram pause = metrics.get("pauseRobot", ControlLoopMetrics.TERMINATORS);
+        assertNotNull(drive);
+        assertNotNull(pause);
+        assertEquals(metrics.get(ControlLoopMetrics.TERMINATORS).getCount(), drive.getCount() + pause.getCount());
+        assertNull(metrics.get("turnLeft", ControlLoopMetrics.TERMINATORS));
+        assertTrue(metrics.toString().contains("driveForward"));
+    }
+
+    @Test
+    public void disabledMetricsRecordNothing()
+    {
+        FakeRobot robot = new FakeRobot();
+        robot.getMetrics().setEnabled(false);
+        robot.driveForward(100).requestSpeed(1).go();
+        assertEquals(0, robot.getMetrics().get(ControlLoopMetrics.TERMINATORS).getCount());
+        assertEquals(0, robot.getMetrics().get(ControlLoopMetrics.ENCODER_READ).getCount());
+    }
+
+    @Test
+    public void tracksEveryKindOfCommand()
+    {
+        ControlLoopMetrics metrics = new ControlLoopMetrics();
+        for (int i = 1; i <= 40; i++)
+        {
+            assertEquals(i, metrics.slotFor("command" + i));
+        }
+        assertEquals(12, metrics.slotFor("command12"));
+        assertEquals(41, metrics.getCommandNames().length);
+
+        metrics.setCurrentCommand(40);
+        metrics.record(ControlLoopMetrics.TERMINATORS, metrics.start());
+        assertEquals(1, metrics.get("command40", ControlLoopMetrics.TERMINATORS).getCount());
+        assertEquals(0, metrics.get("command12", ControlLoopMetrics.TERMINATORS).getCount());
+        assertEquals(1, metrics.get(ControlLoopMetrics.TERMINATORS).getCount());
+    }
+}
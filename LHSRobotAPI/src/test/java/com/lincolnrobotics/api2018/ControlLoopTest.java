@@ -0,0 +1,72 @@
+package com.lincolnrobotics.api2018;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ControlLoopTest
+{
+    @Test
+    public void testRunsUntilTaskFinishes()
+    {
+        ControlLoop loop = new ControlLoop(500);
+        int[] ticks = {0};
+        loop.run(() -> ++ticks[0] < 10);
+
+        assertEquals(10, ticks[0]);
+        assertEquals(10, loop.getTickCount());
+        assertEquals(2_000_000, loop.getPeriodNanos());
+    }
+
+    @Test
+    public void testHoldsRate()
+    {
+        ControlLoop loop = new ControlLoop(200);
+        int[] ticks = {0};
+        long start = System.nanoTime();
+        loop.run(() -> ++ticks[0] < 21);
+        long elapsed = System.nanoTime() - start;
+
+        // 21 ticks span 20 periods of 5ms
+        assertTrue("Loop ran faster than its rate: " + elapsed, elapsed >= 100_000_000);
+    }
+
+    @Test
+    public void testCountsOverruns()
+    {
+        // Virtual time, so that only the slow tick overruns however busy the machine running the test is
+        VirtualClock clock = new VirtualClock();
+        ControlLoop loop = new ControlLoop(1000, clock);
+        int[] ticks = {0};
+        loop.run(() -> {
+            if (ticks[0] == 1)
+            {
+                clock.advance(5_000_000);
+            }
+            return ++ticks[0] < 4;
+        });
+
+        assertEquals(1, loop.getOverrunCount());
+        loop.resetStatistics();
+        assertEquals(0, loop.getOverrunCount());
+        assertEquals(0, loop.getTickCount());
+    }
+
+    @Test(expected = TerminationException.class)
+    public void testStopConditionTerminates()
+    {
+        ControlLoop loop = new ControlLoop(100);
+        int[] ticks = {0};
+        loop.setStopCondition(() -> ticks[0] >= 3);
+        loop.run(() -> {
+            ticks[0]++;
+            return true;
+        });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNonPositiveFrequency()
+    {
+        new ControlLoop(0);
+    }
+}
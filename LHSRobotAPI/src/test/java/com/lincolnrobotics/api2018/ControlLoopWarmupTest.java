@@ -0,0 +1,58 @@
+package com.lincolnrobotics.api2018;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ControlLoopWarmupTest
+{
+    @Test
+    public void testRunsRequestedTicks()
+    {
+        ControlLoopWarmup.Result result = new ControlLoopWarmup(ControlLoop.DEFAULT_FREQUENCY).run(1000);
+        assertTrue(result.getIterations() >= 1000);
+        assertEquals(1000 / ControlLoopWarmup.WINDOW_SIZE, result.getWindowCount());
+        for (int i = 0; i < result.getWindowCount(); i++)
+        {
+            assertTrue(result.getWindowMedianNanos(i) > 0);
+        }
+    }
+
+    @Test
+    public void testRunsThroughPowerControls()
+    {
+        int[] calls = new int[2];
+        MotorPowerControl left = (current, target) -> {
+            calls[0]++;
+            return target;
+        };
+        MotorPowerControl right = (current, target) -> {
+            calls[1]++;
+            return target;
+        };
+        ControlLoopWarmup.Result result = new ControlLoopWarmup(ControlLoop.DEFAULT_FREQUENCY).drivePowerControl(left, right).run(200);
+        assertTrue(calls[0] >= 200);
+        assertEquals(calls[0], calls[1]);
+        assertTrue(result.getIterations() >= 200);
+    }
+
+    @Test
+    public void testSettlesWhenTicksStayNearFastest()
+    {
+        ControlLoopWarmup.Result result = new ControlLoopWarmup.Result(250, new long[]{9000, 2500, 1900, 1000, 1500});
+        assertTrue(result.isSettled());
+        assertEquals(2 * ControlLoopWarmup.WINDOW_SIZE, result.getSettledIteration());
+        assertTrue(result.toString().contains("settled after 100 ticks"));
+    }
+
+    @Test
+    public void testNotSettledWhileLastWindowIsSlow()
+    {
+        ControlLoopWarmup.Result result = new ControlLoopWarmup.Result(100, new long[]{1000, 5000});
+        assertFalse(result.isSettled());
+        assertEquals(-1, result.getSettledIteration());
+        assertTrue(result.toString().contains("not settled"));
+
+        assertFalse(new ControlLoopWarmup.Result(10, new long[0]).isSettled());
+    }
+}
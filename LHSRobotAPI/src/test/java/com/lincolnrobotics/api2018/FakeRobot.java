@@ -0,0 +1,72 @@
+package com.lincolnrobotics.api2018;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A two-motor, one-extension robot whose encoders and extension move by ten ticks per unit of power every time they are read.
+ */
+public class FakeRobot extends AbstractRobotAutonomousControl
+{
+    final List<double[]> writes = new ArrayList<>();
+    final int[] encoders = new int[2];
+    volatile int extension;
+    volatile double leftPower, rightPower, extensionPower;
+
+    FakeRobot()
+    {
+        this(new ControlLoop(10000));
+    }
+
+    FakeRobot(ControlLoop controlLoop)
+    {
+        super(controlLoop, 2, 1, 0, 0, 1);
+    }
+
+    @Override
+    protected int readMotorEncoder(int id)
+    {
+        encoders[id] += (int) (10 * (id == 0 ? leftPower : rightPower));
+        return encoders[id];
+    }
+
+    @Override
+    protected int readExtensionValue(int id)
+    {
+        extension += (int) (10 * extensionPower);
+        return extension;
+    }
+
+    @Override
+    protected int readColorSensor(int id)
+    {
+        throw new ArrayIndexOutOfBoundsException();
+    }
+
+    @Override
+    protected void writeDrivePower(double leftPower, double rightPower)
+    {
+        this.leftPower = leftPower;
+        this.rightPower = rightPower;
+        writes.add(new double[]{leftPower, rightPower});
+    }
+
+    @Override
+    protected void writeExtensionPower(int id, double power)
+    {
+        extensionPower = power;
+    }
+
+    int stopCount()
+    {
+        int stops = 0;
+        for (double[] write : writes)
+        {
+            if (write[0] == 0 && write[1] == 0)
+            {
+                stops++;
+            }
+        }
+        return stops;
+    }
+}
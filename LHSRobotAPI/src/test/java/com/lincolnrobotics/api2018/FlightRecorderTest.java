@@ -0,0 +1,96 @@
+package com.lincolnrobotics.api2018;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FlightRecorderTest
+{
+    @Test
+    public void keepsOnlyTheMostRecentTicks() throws IOException
+    {
+        FakeRobot robot = new FakeRobot();
+        SensorSnapshot sensors = robot.getSensorSnapshot();
+        FlightRecorder recorder = new FlightRecorder(3, 2, 1);
+        for (int i = 0; i < 5; i++)
+        {
+            recorder.record(i * 1_000_000L, 1, i, -1, 0.5, -0.5, new double[]{0.25}, sensors);
+        }
+        assertEquals(3, recorder.size());
+        assertEquals(5, recorder.getRecordCount());
+
+        String[] rows = decode(recorder, new String[]{"none", "driveForward"});
+        assertEquals(4, rows.length);
+        assertEquals("time_ms,command,segment,terminator,left_power,right_power,encoder_0,encoder_1,extension_0,extension_power_0", rows[0]);
+        assertEquals("0.000,driveForward,2,-1,0.5000,-0.5000,0,0,0,0.2500", rows[1]);
+        assertEquals("2.000,driveForward,4,-1,0.5000,-0.5000,0,0,0,0.2500", rows[3]);
+    }
+
+    @Test
+    public void recordsEveryTickOfARun() throws IOException
+    {
+        FakeRobot robot = new FakeRobot();
+        FlightRecorder recorder = robot.enableFlightRecorder(1000);
+        robot.driveForward(100).requestSpeed(1).go();
+
+        assertEquals(robot.getControlLoop().getTickCount(), recorder.getRecordCount());
+        File file = File.createTempFile("flight", ".bin");
+        try
+        {
+            robot.writeFlightRecord(file);
+            StringBuilder csv = new StringBuilder();
+            try (InputStream in = new FileInputStream(file))
+            {
+                FlightRecordDecoder.toCsv(in, csv);
+            }
+            String[] rows = csv.toString().split("\n");
+            assertEquals(recorder.size() + 1, rows.length);
+            assertTrue(rows[1].startsWith("0.000,driveForward,0,-1,1.0000,1.0000,"));
+            assertTrue(rows[rows.length - 1].contains(",driveForward,0,0,0.0000,0.0000,"));
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void recordsExtensions() throws IOException
+    {
+        FakeRobot robot = new FakeRobot();
+        FlightRecorder recorder = robot.enableFlightRecorder(1000);
+        robot.extendTo(0, 0.5).requestSpeed(1).go();
+
+        String[] rows = decode(recorder, robot.getMetrics().getCommandNames());
+        assertTrue(rows[1].startsWith("0.000,extendTo,"));
+        assertTrue(rows[1].endsWith(",1.0000"));
+        String[] last = rows[rows.length - 1].split(",");
+        assertTrue(Integer.parseInt(last[last.length - 2]) > 0);
+        assertEquals("0.0000", last[last.length - 1]);
+    }
+
+    private static String[] decode(FlightRecorder recorder, String[] names) throws IOException
+    {
+        File file = File.createTempFile("flight", ".bin");
+        try
+        {
+            recorder.writeTo(file, names);
+            StringBuilder csv = new StringBuilder();
+            try (InputStream in = new FileInputStream(file))
+            {
+                FlightRecordDecoder.toCsv(in, csv);
+            }
+            return csv.toString().split("\n");
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.lincolnrobotics.api2018;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class FusedMotorPowerControlTest
+{
+    private static final double[][] CALLS = {{0, 1}, {0.3, 1}, {0.6, 1}, {1, 0.4}, {-0.5, 0.5}, {0.2, -1}, {0.02, 0}, {0.87, 0.7}};
+
+    @Test
+    public void matchesDecoratorChains()
+    {
+        VirtualClock chainClock = new VirtualClock();
+        VirtualClock fusedClock = new VirtualClock();
+        assertSameOutputs(new BasicMotorPowerControl(), new MotorPowerPipeline().build(), chainClock, fusedClock);
+        assertSameOutputs(new RampingMotorPowerControl(new BasicMotorPowerControl(), 0.2),
+                new MotorPowerPipeline().slewLimit(0.2).build(), chainClock, fusedClock);
+        assertSameOutputs(new PIDMotorPowerControl(3, 0.2, 1.6, 0.84, chainClock),
+                new MotorPowerPipeline().pid(3, 0.2, 1.6, 0.84, fusedClock).build(), chainClock, fusedClock);
+        assertSameOutputs(new RampingMotorPowerControl(new RampingMotorPowerControl(new PIDMotorPowerControl(1, 0.2, 0.01, 0.05, chainClock), 0.1), 0.05),
+                new MotorPowerPipeline().pid(1, 0.2, 0.01, 0.05, fusedClock).slewLimit(0.05).build(), chainClock, fusedClock);
+    }
+
+    @Test
+    public void appliesFeedforwardClampAndDeadband()
+    {
+        MotorPowerControl control = new MotorPowerPipeline().feedforward(0.1).clamp(-0.8, 0.8).deadband(0.05).build();
+        assertEquals(0.6, control.calculateMotorPower(0, 0.5), 1e-9);
+        assertEquals(-0.6, control.calculateMotorPower(0, -0.5), 1e-9);
+        assertEquals(0.8, control.calculateMotorPower(0, 1), 1e-9);
+        assertEquals(-0.8, control.calculateMotorPower(0, -1), 1e-9);
+        assertEquals(0.14, control.calculateMotorPower(0.3, 0.04), 1e-9);
+        assertEquals(0, new MotorPowerPipeline().deadband(0.05).build().calculateMotorPower(0.3, 0.04), 0);
+        assertEquals(0, control.calculateMotorPower(0.3, 0), 0);
+    }
+
+    @Test
+    public void stagesRunInAFixedOrder()
+    {
+        // The slew limit is applied after feedforward and before the clamp, however the pipeline was built
+        MotorPowerControl control = new MotorPowerPipeline().deadband(0.15).clamp(-1, 0.5).slewLimit(0.1).feedforward(0.2).build();
+        assertEquals(0, control.calculateMotorPower(0, 1), 0);
+        assertEquals(0.2, control.calculateMotorPower(0.1, 1), 1e-9);
+        assertEquals(0.5, control.calculateMotorPower(0.45, 1), 1e-9);
+    }
+
+    @Test
+    public void resetMatchesDecoratorChains()
+    {
+        VirtualClock chainClock = new VirtualClock();
+        VirtualClock fusedClock = new VirtualClock();
+        MotorPowerControl chain = new RampingMotorPowerControl(new PIDMotorPowerControl(1, 0.2, 0.01, 0.05, chainClock), 0.5);
+        MotorPowerControl fused = new MotorPowerPipeline().pid(1, 0.2, 0.01, 0.05, fusedClock).slewLimit(0.5).build();
+        MotorPowerControl fresh = new MotorPowerPipeline().pid(1, 0.2, 0.01, 0.05, fusedClock).slewLimit(0.5).build();
+        assertSameOutputs(chain, fused, chainClock, fusedClock);
+
+        // After a long idle time, a reset control behaves as a new one rather than integrating over the whole gap
+        chainClock.advance(TimeUnit.SECONDS.toNanos(5));
+        fusedClock.advance(TimeUnit.SECONDS.toNanos(5));
+        chain.reset();
+        fused.reset();
+        double expected = fresh.calculateMotorPower(0, 1);
+        assertEquals(expected, fused.calculateMotorPower(0, 1), 1e-12);
+        assertEquals(expected, chain.calculateMotorPower(0, 1), 1e-12);
+    }
+
+    private static void assertSameOutputs(MotorPowerControl chain, MotorPowerControl fused, VirtualClock chainClock, VirtualClock fusedClock)
+    {
+        for (double[] call : CALLS)
+        {
+            assertEquals(chain.calculateMotorPower(call[0], call[1]), fused.calculateMotorPower(call[0], call[1]), 1e-12);
+            chainClock.advance(TimeUnit.MILLISECONDS.toNanos(7));
+            fusedClock.advance(TimeUnit.MILLISECONDS.toNanos(7));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.lincolnrobotics.api2018;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class MotionProfileCacheTest
+{
+    private static final MotionLimits LIMITS = new MotionLimits(15, 30, 150);
+    private static final long PERIOD = 10_000_000;
+
+    @Test
+    public void reusesProfilesWithTheSameParameters()
+    {
+        MotionProfileCache cache = new MotionProfileCache(4);
+        MotionProfile profile = cache.get(100, LIMITS, PERIOD);
+        assertSame(profile, cache.get(100, new MotionLimits(15, 30, 150), PERIOD));
+        assertNotSame(profile, cache.get(100, new MotionLimits(15, 30), PERIOD));
+        assertNotSame(profile, cache.get(100, LIMITS, PERIOD / 2));
+        assertNotSame(profile, cache.get(-100, LIMITS, PERIOD));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedProfile()
+    {
+        MotionProfileCache cache = new MotionProfileCache(2);
+        MotionProfile first = cache.get(10, LIMITS, PERIOD);
+        MotionProfile second = cache.get(20, LIMITS, PERIOD);
+        assertSame(first, cache.get(10, LIMITS, PERIOD));
+        cache.get(30, LIMITS, PERIOD);
+        assertEquals(2, cache.size());
+        assertSame(first, cache.get(10, LIMITS, PERIOD));
+        assertNotSame(second, cache.get(20, LIMITS, PERIOD));
+    }
+
+    @Test
+    public void preloadedMovesOnlyLookUpTheirProfiles()
+    {
+        SimulatedRobotAutonomousControl robot = new SimulatedRobotAutonomousControl(new StandardRobotMovementControl(1080, 1440, 5));
+        robot.preloadProfiles(LIMITS, 50, 30);
+        assertEquals(2, robot.getProfileCache().size());
+
+        robot.driveProfiled(50, LIMITS).turnProfiled(30, LIMITS).driveProfiled(50, LIMITS).go();
+        assertEquals(3, robot.getProfileCache().getHitCount());
+        assertEquals(0, robot.getProfileCache().getMissCount());
+    }
+}
@@ -0,0 +1,98 @@
+package com.lincolnrobotics.api2018;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MotionProfileTest
+{
+    private static final long PERIOD = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    public void trapezoidalProfileRespectsLimits()
+    {
+        MotionProfile profile = MotionProfile.generate(200, new MotionLimits(50, 100), PERIOD);
+        // 0.5 s accelerating, 3.5 s cruising, 0.5 s decelerating
+        assertEquals(4.5, profile.getDurationNanos() / 1e9, 1e-9);
+        assertEquals(451, profile.getSampleCount());
+        assertEquals(200, profile.getPosition(profile.getSampleCount() - 1), 0);
+        assertEquals(50, profile.getVelocity(profile.sampleAt(TimeUnit.SECONDS.toNanos(2))), 1e-9);
+        assertEquals(12.5, profile.getPosition(profile.sampleAt(TimeUnit.MILLISECONDS.toNanos(500))), 1e-9);
+        assertLimited(profile, 50, 100);
+    }
+
+    @Test
+    public void shortTrapezoidalMoveNeverReachesCruise()
+    {
+        MotionProfile profile = MotionProfile.generate(-4, new MotionLimits(50, 100), PERIOD);
+        // Triangular: peak of 20 cm/s after 0.2 s
+        assertEquals(0.4, profile.getDurationNanos() / 1e9, 1e-9);
+        assertEquals(-20, profile.getVelocity(profile.sampleAt(TimeUnit.MILLISECONDS.toNanos(200))), 1e-9);
+        assertEquals(-4, profile.getPosition(profile.getSampleCount() - 1), 0);
+        assertLimited(profile, 50, 100);
+    }
+
+    @Test
+    public void sCurveProfileIsContinuousInAcceleration()
+    {
+        MotionProfile profile = MotionProfile.generate(100, new MotionLimits(50, 100, 500), PERIOD);
+        assertEquals(0, profile.getAcceleration(0), 1e-9);
+        for (int i = 1; i < profile.getSampleCount() - 1; i++)
+        {
+            assertTrue(Math.abs(profile.getAcceleration(i) - profile.getAcceleration(i - 1)) <= 500 * 0.01 + 1e-9);
+            assertTrue(profile.getPosition(i) >= profile.getPosition(i - 1));
+        }
+        assertLimited(profile, 50, 100);
+        // Slower than the trapezoid over the same distance, since acceleration has to ramp
+        assertTrue(profile.getDurationNanos() > MotionProfile.generate(100, new MotionLimits(50, 100), PERIOD).getDurationNanos());
+        double last = profile.getPosition(profile.getSampleCount() - 2) + profile.getVelocity(profile.getSampleCount() - 2) * 0.01;
+        assertEquals(100, last, 0.1);
+    }
+
+    @Test
+    public void shortSCurveMoveStaysWithinDistance()
+    {
+        MotionProfile profile = MotionProfile.generate(1, new MotionLimits(50, 100, 500), PERIOD);
+        for (int i = 0; i < profile.getSampleCount(); i++)
+        {
+            assertTrue(profile.getPosition(i) <= 1 + 1e-6);
+        }
+        assertLimited(profile, 50, 100);
+    }
+
+    @Test
+    public void profiledMoveStopsAtTheTarget()
+    {
+        SimulatedRobotAutonomousControl robot = new SimulatedRobotAutonomousControl(new StandardRobotMovementControl(1080, 1440, 5));
+        robot.setInertia(0.1);
+        // The modelled robot tops out at about 23.6 cm/s
+        robot.driveProfiled(100, new MotionLimits(15, 30, 150)).go();
+        assertEquals(100, robot.getPosition(SimulatedRobotAutonomousControl.LEFT), 1.5);
+        assertEquals(100, robot.getPosition(SimulatedRobotAutonomousControl.RIGHT), 1.5);
+        assertEquals(0, robot.getVelocity(SimulatedRobotAutonomousControl.LEFT), 5);
+
+        double left = robot.getPosition(SimulatedRobotAutonomousControl.LEFT);
+        double right = robot.getPosition(SimulatedRobotAutonomousControl.RIGHT);
+        robot.turnProfiled(-30, new MotionLimits(15, 30)).go();
+        assertEquals(left - 30, robot.getPosition(SimulatedRobotAutonomousControl.LEFT), 1.5);
+        assertEquals(right + 30, robot.getPosition(SimulatedRobotAutonomousControl.RIGHT), 1.5);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void profiledMovesRequireProfileFollowing()
+    {
+        new FakeRobot().driveProfiled(10, new MotionLimits(10, 10));
+    }
+
+    private static void assertLimited(MotionProfile profile, double maxVelocity, double maxAcceleration)
+    {
+        for (int i = 0; i < profile.getSampleCount(); i++)
+        {
+            assertTrue(Math.abs(profile.getVelocity(i)) <= maxVelocity + 1e-9);
+            assertTrue(Math.abs(profile.getAcceleration(i)) <= maxAcceleration + 1e-9);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.lincolnrobotics.api2018;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MultiMotorPIDControlTest
+{
+    @Test
+    public void matchesScalarControllers()
+    {
+        VirtualClock clock = new VirtualClock();
+        PIDMotorPowerControl first = new PIDMotorPowerControl(1, 1, 1, 1, clock);
+        PIDMotorPowerControl second = new PIDMotorPowerControl(3, 0.2, 1.6, 0.84, clock);
+        MultiMotorPIDControl multi = new MultiMotorPIDControl(2, clock)
+                .setGains(0, 1, 1, 1, 1)
+                .setGains(1, 3, 0.2, 1.6, 0.84);
+
+        double[][] current = {{1, 0.87}, {1, 0.768}, {1.5, 0.62}, {2, 1.5}, {1, 2}};
+        double[][] target = {{1, 0.7}, {1, 0.7}, {1, 0.7}, {1, 0.7}, {1, 0.7}};
+        double[] output = new double[2];
+        for (int tick = 0; tick < current.length; tick++)
+        {
+            double[] expected = {
+                    first.calculateMotorPower(current[tick][0], target[tick][0]),
+                    second.calculateMotorPower(current[tick][1], target[tick][1])
+            };
+            multi.calculateMotorPower(current[tick], target[tick], output);
+            assertArrayEquals(expected, output, 1e-9);
+            clock.advance(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+    }
+
+    @Test
+    public void limitsIntegralWindup()
+    {
+        VirtualClock clock = new VirtualClock();
+        MultiMotorPIDControl multi = new MultiMotorPIDControl(2, clock).setGains(1, 0, 1, 0).setIntegralLimit(1, 50);
+        double[] current = {0, 0};
+        double[] target = {1, 1};
+        double[] output = new double[2];
+        for (int tick = 0; tick < 10; tick++)
+        {
+            multi.calculateMotorPower(current, target, output);
+            clock.advance(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        // 9 intervals of 10 ms at an error of 1
+        assertEquals(90, output[0], 1e-9);
+        assertEquals(50, output[1], 1e-9);
+
+        multi.reset();
+        multi.calculateMotorPower(current, target, output);
+        assertArrayEquals(new double[]{0, 0}, output, 1e-9);
+    }
+
+    @Test
+    public void drivesTheRobotWithOneCall()
+    {
+        FakeRobot robot = new FakeRobot();
+        robot.setDrivePowerControl(new MultiMotorPIDControl(2, robot.getClock()).setGains(1, 0.5, 0, 0));
+        robot.driveForward(500).requestSpeed(1).go();
+
+        assertTrue(robot.getDistanceTravelled(0) >= 500);
+        assertTrue(robot.writes.size() > 2);
+        assertEquals(0.5, robot.writes.get(0)[0], 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void driveControllerMustHaveTwoSides()
+    {
+        new FakeRobot().setDrivePowerControl(new MultiMotorPIDControl(4));
+    }
+}
@@ -0,0 +1,146 @@
+package com.lincolnrobotics.api2018;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OdometryPositionControlTest
+{
+    private static final double TICKS_PER_CM = 100;
+    private static final double TRACK_WIDTH = 40;
+
+    // Four drive encoders, set in centimeters travelled by each side
+    private static class WheelSource implements SensorSnapshot.Source
+    {
+        double left, right;
+
+        @Override
+        public int readEncoder(int id)
+        {
+            return (int) Math.round((id % 2 == 0 ? left : right) * TICKS_PER_CM);
+        }
+
+        @Override
+        public int readExtension(int id)
+        {
+            return 0;
+        }
+
+        @Override
+        public int readColor(int id)
+        {
+            return 0;
+        }
+    }
+
+    private final WheelSource source = new WheelSource();
+    private final SensorSnapshot sensors = new SensorSnapshot(source, 4, 0, 0);
+    private final OdometryPositionControl odometry = new OdometryPositionControl(TICKS_PER_CM, TRACK_WIDTH, new int[]{0, 2}, new int[]{1, 3});
+
+    private void moveTo(double left, double right)
+    {
+        source.left = left;
+        source.right = right;
+        sensors.update();
+        odometry.update(sensors);
+    }
+
+    @Test
+    public void testDrivesStraight()
+    {
+        moveTo(0, 0);
+        moveTo(50, 50);
+        moveTo(100, 100);
+        assertEquals(100, odometry.getX(), 1e-9);
+        assertEquals(0, odometry.getY(), 1e-9);
+        assertEquals(0, odometry.getHeading(), 1e-9);
+    }
+
+    @Test
+    public void testFirstUpdateOnlySetsBaseline()
+    {
+        moveTo(500, 500);
+        moveTo(510, 510);
+        assertEquals(10, odometry.getX(), 1e-9);
+    }
+
+    @Test
+    public void testPointTurn()
+    {
+        double quarter = TRACK_WIDTH * Math.PI / 4;
+        moveTo(0, 0);
+        moveTo(-quarter, quarter);
+        assertEquals(Math.PI / 2, odometry.getHeading(), 1e-3);
+        assertEquals(0, odometry.getX(), 1e-9);
+        assertEquals(0, odometry.getY(), 1e-9);
+
+        moveTo(-quarter + 30, quarter + 30);
+        assertEquals(0, odometry.getX(), 0.01);
+        assertEquals(30, odometry.getY(), 0.01);
+    }
+
+    @Test
+    public void testArcIsExactInOneStep()
+    {
+        // A quarter circle of radius 100 cm around (0, 100), turning left
+        double radius = 100;
+        double left = (radius - TRACK_WIDTH / 2) * Math.PI / 2;
+        double right = (radius + TRACK_WIDTH / 2) * Math.PI / 2;
+        moveTo(0, 0);
+        moveTo(left, right);
+        assertEquals(radius, odometry.getX(), 0.05);
+        assertEquals(radius, odometry.getY(), 0.05);
+        assertEquals(Math.PI / 2, odometry.getHeading(), 1e-3);
+    }
+
+    @Test
+    public void testHeadingSourceReplacesEncoderHeading()
+    {
+        double[] imu = {1.0};
+        odometry.setHeadingSource(() -> imu[0]);
+        moveTo(0, 0);
+        // The wheels slip: the encoders say the robot turned, but the sensor says it did not
+        moveTo(10, 30);
+        assertEquals(0, odometry.getHeading(), 1e-9);
+        assertEquals(20, odometry.getX(), 1e-9);
+
+        imu[0] = 1.0 + Math.PI / 2;
+        moveTo(10, 30);
+        assertEquals(Math.PI / 2, odometry.getHeading(), 1e-9);
+        moveTo(20, 40);
+        assertEquals(20, odometry.getX(), 1e-9);
+        assertEquals(10, odometry.getY(), 1e-9);
+    }
+
+    @Test
+    public void testSetPose()
+    {
+        odometry.setPose(10, 20, Math.PI);
+        moveTo(0, 0);
+        moveTo(5, 5);
+        assertEquals(5, odometry.getX(), 1e-9);
+        assertEquals(20, odometry.getY(), 1e-9);
+    }
+
+    @Test
+    public void testTerminatesOnFieldPosition()
+    {
+        StandardRobotMovementControl movement = new StandardRobotMovementControl(1080, 1440, 5);
+        SimulatedRobotAutonomousControl robot = new SimulatedRobotAutonomousControl(movement);
+        robot.setPositionControl(new OdometryPositionControl(movement.getTicksPerCentimeter(), TRACK_WIDTH,
+                new int[]{SimulatedRobotAutonomousControl.LEFT}, new int[]{SimulatedRobotAutonomousControl.RIGHT}));
+        robot.driveForward().requestSpeed(0.5).until(Terminators.positionWithin(50, 0, 1)).go();
+
+        assertEquals(50, robot.getPositionControl().getX(), 1);
+        assertEquals(50, robot.getPosition(SimulatedRobotAutonomousControl.LEFT), 1);
+        assertTrue(Terminators.headingWithin(2 * Math.PI, 0.01).shouldTerminate(robot));
+        assertFalse(Terminators.positionWithin(0, 0, 1).shouldTerminate(robot));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPositionTerminatorNeedsTracking()
+    {
+        SimulatedRobotAutonomousControl robot = new SimulatedRobotAutonomousControl(new StandardRobotMovementControl(1080, 1440, 5));
+        Terminators.positionWithin(0, 0, 1).shouldTerminate(robot);
+    }
+}
@@ -0,0 +1,115 @@
+package com.lincolnrobotics.api2018;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OutputCacheTest
+{
+    private final List<String> writes = new ArrayList<>();
+    private final OutputCache.Sink sink = (channel, value) -> writes.add(channel + "=" + value);
+
+    @Test
+    public void testFirstWriteAlwaysSent()
+    {
+        OutputCache cache = new OutputCache(2, 0.01);
+        cache.set(0, 0);
+        cache.set(1, 0);
+        cache.flush(sink);
+        assertEquals(2, writes.size());
+        assertEquals(2, cache.getWriteCount());
+    }
+
+    @Test
+    public void testWritesOnlyOnFlush()
+    {
+        OutputCache cache = new OutputCache(2, 0.01);
+        cache.set(0, 0.5);
+        cache.set(0, 0.6);
+        assertTrue(writes.isEmpty());
+        cache.flush(sink);
+        assertEquals(1, writes.size());
+        assertEquals("0=0.6", writes.get(0));
+        assertEquals(0.6, cache.getWritten(0), 0);
+    }
+
+    @Test
+    public void testSuppressesWritesWithinTolerance()
+    {
+        OutputCache cache = new OutputCache(1, 0.01);
+        cache.set(0, 0.5);
+        cache.flush(sink);
+        cache.set(0, 0.5);
+        cache.flush(sink);
+        cache.set(0, 0.505);
+        cache.flush(sink);
+        cache.set(0, 0.52);
+        cache.flush(sink);
+        assertEquals(2, cache.getWriteCount());
+        assertEquals(2, cache.getSuppressedCount());
+        assertEquals("0=0.52", writes.get(1));
+
+        // Flushing without setting anything neither writes nor counts
+        cache.flush(sink);
+        assertEquals(2, cache.getSuppressedCount());
+    }
+
+    @Test
+    public void testStopIsNeverSuppressed()
+    {
+        OutputCache cache = new OutputCache(1, 0.1);
+        cache.set(0, 0.05);
+        cache.flush(sink);
+        cache.set(0, 0);
+        cache.flush(sink);
+        assertEquals(2, cache.getWriteCount());
+        assertEquals(0, cache.getWritten(0), 0);
+    }
+
+    @Test
+    public void testInvalidateResendsValues()
+    {
+        OutputCache cache = new OutputCache(1, 0.01);
+        cache.set(0, 0.5);
+        cache.flush(sink);
+        cache.invalidate();
+        cache.set(0, 0.5);
+        cache.flush(sink);
+        assertEquals(2, cache.getWriteCount());
+
+        cache.resetCounts();
+        assertEquals(0, cache.getWriteCount());
+        assertEquals(0, cache.getSuppressedCount());
+    }
+
+    @Test
+    public void testRobotFlushesAfterStopping()
+    {
+        List<String> events = new java.util.concurrent.CopyOnWriteArrayList<>();
+        FakeRobot robot = new FakeRobot()
+        {
+            @Override
+            protected void writeDrivePower(double leftPower, double rightPower)
+            {
+                super.writeDrivePower(leftPower, rightPower);
+                events.add("write " + leftPower);
+            }
+
+            @Override
+            protected void flushOutputs()
+            {
+                events.add("flush");
+            }
+        };
+        robot.driveForward(100).requestSpeed(1).go();
+
+        assertEquals("write 1.0", events.get(0));
+        assertEquals("flush", events.get(1));
+        int lastWrite = events.lastIndexOf("write 0.0");
+        assertTrue(lastWrite > 0);
+        assertEquals("flush", events.get(lastWrite + 1));
+    }
+}
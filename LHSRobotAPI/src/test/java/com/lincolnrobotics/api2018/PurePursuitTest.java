@@ -0,0 +1,102 @@
+package com.lincolnrobotics.api2018;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PurePursuitTest
+{
+    private static final double TRACK_WIDTH = 40;
+
+    @Test
+    public void testPathLength()
+    {
+        Path path = Path.through(0, 0, 30, 40, 30, 0);
+        assertEquals(3, path.getWaypointCount());
+        assertEquals(90, path.getLength(), 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPathNeedsTwoWaypoints()
+    {
+        Path.through(0, 0);
+    }
+
+    @Test
+    public void testTargetIsOnPathAtLookahead()
+    {
+        PurePursuit pursuit = new PurePursuit(Path.through(0, 0, 100, 0), 20, TRACK_WIDTH);
+        pursuit.update(10, 0, 0);
+        assertEquals(30, pursuit.getTargetX(), 1e-9);
+        assertEquals(0, pursuit.getTargetY(), 1e-9);
+        assertEquals(0, pursuit.getCurvature(), 1e-9);
+        assertEquals(1, pursuit.getLeftPower(1), 1e-9);
+        assertEquals(1, pursuit.getRightPower(1), 1e-9);
+    }
+
+    @Test
+    public void testSteersBackToPath()
+    {
+        PurePursuit pursuit = new PurePursuit(Path.through(0, 0, 100, 0), 20, TRACK_WIDTH);
+        // Right of the path, facing along it: the robot turns left
+        pursuit.update(10, -10, 0);
+        assertTrue(pursuit.getCurvature() > 0);
+        assertTrue(pursuit.getRightPower(0.5) > pursuit.getLeftPower(0.5));
+        assertEquals(0.5, pursuit.getRightPower(0.5), 1e-9);
+    }
+
+    @Test
+    public void testSearchOnlyMovesForward()
+    {
+        PurePursuit pursuit = new PurePursuit(Path.through(0, 0, 100, 0, 100, 100), 20, TRACK_WIDTH);
+        pursuit.update(95, 0, 0);
+        assertEquals(1, pursuit.getLineIndex());
+        assertEquals(100, pursuit.getTargetX(), 1e-9);
+        assertTrue(pursuit.getTargetY() > 0);
+
+        // Back at the start, the follower still steers towards the second line
+        double targetY = pursuit.getTargetY();
+        pursuit.update(0, 0, 0);
+        assertEquals(1, pursuit.getLineIndex());
+        assertEquals(targetY, pursuit.getTargetY(), 1e-9);
+
+        pursuit.reset();
+        pursuit.update(0, 0, 0);
+        assertEquals(0, pursuit.getLineIndex());
+    }
+
+    @Test
+    public void testAimsAtEndOfPath()
+    {
+        PurePursuit pursuit = new PurePursuit(Path.through(0, 0, 100, 0), 20, TRACK_WIDTH);
+        pursuit.update(90, 5, 0);
+        assertEquals(100, pursuit.getTargetX(), 1e-9);
+        assertEquals(0, pursuit.getTargetY(), 1e-9);
+    }
+
+    @Test
+    public void testDrivesCurvedPath()
+    {
+        StandardRobotMovementControl movement = new StandardRobotMovementControl(1080, 1440, 5);
+        SimulatedRobotAutonomousControl robot = new SimulatedRobotAutonomousControl(movement);
+        robot.setPositionControl(new OdometryPositionControl(movement.getTicksPerCentimeter(), TRACK_WIDTH,
+                new int[]{SimulatedRobotAutonomousControl.LEFT}, new int[]{SimulatedRobotAutonomousControl.RIGHT}));
+        Path path = Path.through(0, 0, 100, 0, 100, 100);
+        robot.followPath(new PurePursuit(path, 25, TRACK_WIDTH), 2).requestSpeed(0.8).go();
+
+        PositionControl position = robot.getPositionControl();
+        assertEquals(100, position.getX(), 2);
+        assertEquals(100, position.getY(), 2);
+        assertEquals(Math.PI / 2, position.getHeading(), 0.3);
+        // Without stopping to turn, the robot does not take much longer than the path's length at full speed
+        double seconds = robot.getVirtualClock().nanoTime() / 1e9;
+        assertTrue(seconds < 1.5 * path.getLength() / movement.robotPowerToMovementSpeed(0.8));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFollowingNeedsPosition()
+    {
+        SimulatedRobotAutonomousControl robot = new SimulatedRobotAutonomousControl(new StandardRobotMovementControl(1080, 1440, 5));
+        robot.followPath(new PurePursuit(Path.through(0, 0, 10, 0), 5, TRACK_WIDTH), 1);
+    }
+}
@@ -0,0 +1,84 @@
+package com.lincolnrobotics.api2018;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SensorSnapshotTest
+{
+    private static class CountingSource implements SensorSnapshot.Source
+    {
+        int reads;
+
+        @Override
+        public int readEncoder(int id)
+        {
+            reads++;
+            return 100 * id + reads;
+        }
+
+        @Override
+        public int readExtension(int id)
+        {
+            reads++;
+            return -id;
+        }
+
+        @Override
+        public int readColor(int id)
+        {
+            reads++;
+            return 0x102030;
+        }
+    }
+
+    @Test
+    public void testReadsEachSensorOncePerUpdate()
+    {
+        CountingSource source = new CountingSource();
+        SensorSnapshot snapshot = new SensorSnapshot(source, 4, 2, 1);
+        assertEquals(7, snapshot.getReadsPerUpdate());
+
+        snapshot.update();
+        assertEquals(7, source.reads);
+
+        // Any number of reads from the snapshot does not touch the source
+        for (int i = 0; i < 100; i++)
+        {
+            snapshot.getEncoder(i % 4);
+            snapshot.getExtension(i % 2);
+            snapshot.getColor(0);
+        }
+        assertEquals(7, source.reads);
+
+        snapshot.update();
+        assertEquals(14, source.reads);
+        assertEquals(2, snapshot.getUpdateCount());
+        assertEquals(300 + 11, snapshot.getEncoder(3));
+        assertEquals(-1, snapshot.getExtension(1));
+    }
+
+    @Test
+    public void testRefreshReadsSingleSensor()
+    {
+        CountingSource source = new CountingSource();
+        SensorSnapshot snapshot = new SensorSnapshot(source, 4, 0, 1);
+
+        snapshot.refreshEncoder(2);
+        assertEquals(1, source.reads);
+        assertEquals(201, snapshot.getEncoder(2));
+        assertEquals(0, snapshot.getEncoder(1));
+    }
+
+    @Test
+    public void testUnpacksColor()
+    {
+        SensorSnapshot snapshot = new SensorSnapshot(new CountingSource(), 0, 0, 1);
+        snapshot.update();
+
+        RgbColor color = snapshot.getRgbColor(0);
+        assertEquals(0x10, color.getRed());
+        assertEquals(0x20, color.getGreen());
+        assertEquals(0x30, color.getBlue());
+    }
+}
@@ -0,0 +1,72 @@
+package com.lincolnrobotics.api2018;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SimulatedRobotAutonomousControlTest
+{
+    // 1080 ticks per second at full power, 1440 ticks per rotation, 5 cm wheels
+    private static SimulatedRobotAutonomousControl robot()
+    {
+        return new SimulatedRobotAutonomousControl(new StandardRobotMovementControl(1080, 1440, 5));
+    }
+
+    @Test
+    public void drivesInSimulatedTime()
+    {
+        SimulatedRobotAutonomousControl robot = robot();
+        robot.driveForward(2160).requestSpeed(1).go();
+
+        double seconds = robot.getVirtualClock().nanoTime() / 1e9;
+        assertEquals(2.0, seconds, 0.02);
+        assertEquals(2160, robot.getDistanceTravelled(SimulatedRobotAutonomousControl.LEFT), 11);
+        assertEquals(2160 / (1440 / (2 * Math.PI * 5)), robot.getPosition(SimulatedRobotAutonomousControl.LEFT), 0.5);
+    }
+
+    @Test
+    public void runsFasterThanRealTime()
+    {
+        SimulatedRobotAutonomousControl robot = robot();
+        long start = System.nanoTime();
+        robot.driveForward().requestSpeed(0.5).until(Terminators.timeLimit(30, TimeUnit.SECONDS)).go();
+        long realNanos = System.nanoTime() - start;
+
+        assertEquals(30.0, robot.getVirtualClock().nanoTime() / 1e9, 0.02);
+        assertTrue(realNanos < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(0.5 * 1080 * 30, robot.getDistanceTravelled(SimulatedRobotAutonomousControl.RIGHT), 20);
+    }
+
+    @Test
+    public void frictionAndInertiaSlowTheRobot()
+    {
+        SimulatedRobotAutonomousControl stuck = robot();
+        stuck.setFriction(0.2);
+        stuck.driveForward().requestSpeed(0.2).until(Terminators.timeLimit(1, TimeUnit.SECONDS)).go();
+        assertEquals(0, stuck.getDistanceTravelled(SimulatedRobotAutonomousControl.LEFT), 0);
+
+        SimulatedRobotAutonomousControl heavy = robot();
+        heavy.setInertia(0.5);
+        heavy.driveForward().requestSpeed(1).until(Terminators.timeLimit(500, TimeUnit.MILLISECONDS)).afterExecution(() -> {}).go();
+        double distance = heavy.getDistanceTravelled(SimulatedRobotAutonomousControl.LEFT);
+        assertTrue(distance > 100 && distance < 0.5 * 1080 * 0.5);
+        assertTrue(heavy.getVelocity(SimulatedRobotAutonomousControl.LEFT) > 0);
+    }
+
+    @Test
+    public void noiseIsRepeatable()
+    {
+        SimulatedRobotAutonomousControl first = robot();
+        SimulatedRobotAutonomousControl second = robot();
+        first.setEncoderNoise(3);
+        second.setEncoderNoise(3);
+        first.setNoiseSeed(42);
+        second.setNoiseSeed(42);
+        first.driveForward(1000).requestSpeed(1).go();
+        second.driveForward(1000).requestSpeed(1).go();
+        assertEquals(first.getVirtualClock().nanoTime(), second.getVirtualClock().nanoTime());
+    }
+}
@@ -0,0 +1,160 @@
+package com.lincolnrobotics.api2018;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class StoppingModelTest
+{
+    @Test
+    public void testConfiguredModel()
+    {
+        StoppingModel model = new StoppingModel(0.1, 0.001);
+        assertEquals(0.1 * 100 + 0.001 * 100 * 100, model.getStoppingDistance(100), 1e-9);
+        assertEquals(model.getStoppingDistance(100), model.getStoppingDistance(-100), 1e-9);
+        assertEquals(0, new StoppingModel().getStoppingDistance(1000), 0);
+    }
+
+    @Test
+    public void testFitsRecordedStops()
+    {
+        StoppingModel model = new StoppingModel();
+        for (double v = 100; v <= 1000; v += 100)
+        {
+            model.record(v, 0.05 * v + 0.0002 * v * v);
+        }
+        assertEquals(10, model.getStopCount());
+        assertEquals(0.05, model.getLinear(), 1e-6);
+        assertEquals(0.0002, model.getQuadratic(), 1e-9);
+    }
+
+    @Test
+    public void testFitsSingleSpeed()
+    {
+        StoppingModel model = new StoppingModel();
+        model.record(500, 50);
+        assertEquals(50, model.getStoppingDistance(500), 1e-9);
+
+        model.setLearning(false);
+        model.record(500, 500);
+        assertEquals(1, model.getStopCount());
+
+        model.reset();
+        assertEquals(0, model.getStoppingDistance(500), 0);
+    }
+
+    @Test
+    public void testKeepsStopsAcrossRuns() throws IOException
+    {
+        File file = File.createTempFile("stopping", ".properties");
+        file.delete();
+        try
+        {
+            StoppingModel first = new StoppingModel();
+            first.load(file);
+            first.record(200, 20);
+            first.save(file);
+
+            StoppingModel second = new StoppingModel();
+            second.load(file);
+            assertEquals(1, second.getStopCount());
+            second.record(400, 60);
+            second.save(file);
+
+            StoppingModel third = new StoppingModel();
+            third.load(file);
+            assertEquals(2, third.getStopCount());
+            assertEquals(60, third.getStoppingDistance(400), 1e-6);
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    // Lets the robot coast to a stop
+    private static void settle(SimulatedRobotAutonomousControl robot)
+    {
+        robot.getVirtualClock().advance(1_000_000_000L);
+    }
+
+    @Test
+    public void testBrakesOnTarget()
+    {
+        SimulatedRobotAutonomousControl robot = new SimulatedRobotAutonomousControl(new StandardRobotMovementControl(1080, 1440, 5));
+        robot.setInertia(0.2);
+        StoppingModel model = new StoppingModel();
+
+        // Cutting power at the target overshoots by the distance the robot coasts
+        robot.driveForward(1500).requestSpeed(1).go();
+        settle(robot);
+        double plainOvershoot = robot.getDistanceTravelled(SimulatedRobotAutonomousControl.LEFT) - 1500;
+        assertTrue("Overshoot " + plainOvershoot, plainOvershoot > 100);
+
+        robot.setStoppingModel(model);
+        double overshoot = 0;
+        for (int i = 0; i < 4; i++)
+        {
+            robot.driveForward(1500).requestSpeed(i % 2 == 0 ? 1 : 0.6).go();
+            settle(robot);
+            overshoot = robot.getDistanceTravelled(SimulatedRobotAutonomousControl.LEFT) - 1500;
+        }
+        assertEquals(4, model.getStopCount());
+        assertTrue("Overshoot " + overshoot, Math.abs(overshoot) < 0.2 * plainOvershoot);
+        assertTrue(robot.getLastTerminator().toString().startsWith("brake"));
+
+        robot.turnLeft(700).requestSpeed(1).go();
+        settle(robot);
+        assertEquals(-700, robot.getDistanceTravelled(SimulatedRobotAutonomousControl.LEFT), 0.2 * plainOvershoot);
+    }
+
+    @Test
+    public void testRecordsWholeCoastAtHighLoopRates()
+    {
+        SimulatedRobotAutonomousControl robot = new SimulatedRobotAutonomousControl(new StandardRobotMovementControl(1080, 1440, 5), 0, 0, 1000);
+        robot.setInertia(0.2);
+        double[] recorded = new double[1];
+        StoppingModel model = new StoppingModel()
+        {
+            @Override
+            public synchronized void record(double speed, double distance)
+            {
+                recorded[0] = distance;
+                super.record(speed, distance);
+            }
+        };
+        robot.setStoppingModel(model);
+
+        // At 1 kHz the robot moves about one tick per loop at full speed, so a stop judged by travel per loop would end the move at once
+        robot.driveForward(1500).requestSpeed(1).go();
+        double recordedTravel = robot.getDistanceTravelled(SimulatedRobotAutonomousControl.LEFT);
+        settle(robot);
+        double coast = robot.getDistanceTravelled(SimulatedRobotAutonomousControl.LEFT) - 1500;
+        assertEquals(1, model.getStopCount());
+        assertTrue("Coasted " + coast, coast > 100);
+        assertEquals(recordedTravel, robot.getDistanceTravelled(SimulatedRobotAutonomousControl.LEFT), 0.1 * coast);
+        assertEquals(coast, recorded[0], 0.1 * coast);
+    }
+
+    @Test
+    public void testLearnsDrivesAndTurnsSeparately()
+    {
+        SimulatedRobotAutonomousControl robot = new SimulatedRobotAutonomousControl(new StandardRobotMovementControl(1080, 1440, 5));
+        robot.setInertia(0.2);
+        StoppingModel driveModel = new StoppingModel();
+        StoppingModel turnModel = new StoppingModel();
+        robot.setStoppingModel(driveModel, turnModel);
+
+        robot.driveForward(1500).requestSpeed(1).go();
+        settle(robot);
+        robot.turnRight(700).requestSpeed(1).go();
+        settle(robot);
+        robot.turnLeft(700).requestSpeed(1).go();
+        assertEquals(1, driveModel.getStopCount());
+        assertEquals(2, turnModel.getStopCount());
+        assertSame(turnModel, robot.getTurnStoppingModel());
+    }
+}
@@ -0,0 +1,129 @@
+package com.lincolnrobotics.api2018;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static com.lincolnrobotics.api2018.Terminators.*;
+
+public class TerminatorsTest
+{
+    private int tick;
+
+    private final Terminator afterTen = robot -> tick >= 10;
+    private final Terminator even = robot -> tick % 2 == 0;
+    private final Terminator multipleOfSeven = robot -> tick % 7 == 0;
+
+    @Test
+    public void testCombinators()
+    {
+        tick = 4;
+        assertTrue(any(afterTen, even).shouldTerminate(null));
+        assertFalse(all(afterTen, even).shouldTerminate(null));
+        assertTrue(not(afterTen).shouldTerminate(null));
+
+        tick = 14;
+        assertTrue(all(afterTen, even, multipleOfSeven).shouldTerminate(null));
+        assertFalse(not(any(afterTen, even)).shouldTerminate(null));
+    }
+
+    @Test
+    public void testSequence()
+    {
+        Terminator sequence = sequence(multipleOfSeven, afterTen);
+        tick = 10;
+        assertFalse(sequence.shouldTerminate(null));
+        tick = 7;
+        assertFalse(sequence.shouldTerminate(null));
+        tick = 9;
+        assertFalse(sequence.shouldTerminate(null));
+        tick = 11;
+        assertTrue(sequence.shouldTerminate(null));
+
+        sequence.reset();
+        assertFalse(sequence.shouldTerminate(null));
+    }
+
+    @Test
+    public void testSetReportsFirstTerminator()
+    {
+        TerminatorSet set = new TerminatorSet();
+        set.addAll(afterTen, even, multipleOfSeven, robot -> false, robot -> false);
+        assertEquals(5, set.size());
+
+        tick = 7;
+        assertEquals(2, set.evaluate(null));
+        tick = 12;
+        assertEquals(0, set.evaluate(null));
+        tick = 3;
+        assertEquals(-1, set.evaluate(null));
+    }
+
+    @Test
+    public void testEvaluationDoesNotAllocate()
+    {
+        TerminatorSet set = new TerminatorSet();
+        set.add(any(all(afterTen, even), not(multipleOfSeven)));
+        set.add(sequence(even, multipleOfSeven, afterTen));
+        set.add(robot -> tick < 0);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        // Warm up, so that the evaluation runs compiled
+        int fired = 0;
+        for (tick = 0; tick < 200_000; tick++)
+        {
+            fired += set.evaluate(null);
+        }
+
+        set.reset();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (tick = 0; tick < 1_000_000; tick++)
+        {
+            fired += set.evaluate(null);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertTrue(fired != 0);
+        // Leaves room for the measurement itself, which is far less than one byte per tick
+        assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    @Test
+    public void testTimeLimit()
+    {
+        VirtualClock clock = new VirtualClock();
+        FakeRobot robot = new FakeRobot(new ControlLoop(1000, clock));
+        Terminator timeLimit = timeLimit(30, TimeUnit.MILLISECONDS);
+        timeLimit.reset();
+        assertFalse(timeLimit.shouldTerminate(robot));
+        clock.advance(TimeUnit.MILLISECONDS.toNanos(29));
+        assertFalse(timeLimit.shouldTerminate(robot));
+        clock.advance(TimeUnit.MILLISECONDS.toNanos(1));
+        assertTrue(timeLimit.shouldTerminate(robot));
+
+        timeLimit.reset();
+        assertFalse(timeLimit.shouldTerminate(robot));
+        assertEquals("timeLimit(30 ms)", timeLimit.toString());
+    }
+
+    @Test
+    public void testStall() throws InterruptedException
+    {
+        FakeRobot robot = new FakeRobot();
+        Terminator stall = stall(0, 30, TimeUnit.MILLISECONDS);
+        stall.reset();
+
+        for (int i = 0; i < 4; i++)
+        {
+            robot.encoders[0] += 5;
+            assertFalse(stall.shouldTerminate(robot));
+            Thread.sleep(10);
+        }
+        Thread.sleep(40);
+        assertTrue(stall.shouldTerminate(robot));
+    }
+}
@@ -0,0 +1,178 @@
+package com.lincolnrobotics.api2018;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static com.lincolnrobotics.api2018.Terminators.*;
+
+public class ThresholdTerminatorTest
+{
+    /**
+     * A robot whose left encoder is set directly by the test, counting how often it is read.
+     */
+    private static class CountingRobot extends FakeRobot
+    {
+        int position, reads;
+
+        @Override
+        protected int readMotorEncoder(int id)
+        {
+            reads++;
+            return position;
+        }
+    }
+
+    @Test
+    public void testReadsSensorOncePerUpdate()
+    {
+        CountingRobot robot = new CountingRobot();
+        ThresholdIndex index = new ThresholdIndex();
+        TerminatorSet set = new TerminatorSet();
+        ThresholdTerminator[] waypoints = new ThresholdTerminator[10];
+        // Added out of order; the index sorts them
+        for (int i = 0; i < waypoints.length; i++)
+        {
+            waypoints[i] = distanceAtLeast(0, 100 * ((i * 7) % 10 + 1));
+            set.add(waypoints[i]);
+        }
+        robot.position = 50;
+        set.reset();
+        set.register(index, robot);
+        assertEquals(1, robot.reads);
+        assertEquals(-1, set.evaluate(robot));
+
+        robot.position = 350;
+        index.update(robot);
+        assertEquals(2, robot.reads);
+        assertTrue(set.evaluate(robot) >= 0);
+        for (ThresholdTerminator waypoint : waypoints)
+        {
+            assertEquals(waypoint.getTarget() <= 350, waypoint.shouldTerminate(robot));
+        }
+        // Checking the terminators themselves does not read the sensor again
+        assertEquals(2, robot.reads);
+
+        // Thresholds the value has moved back from are no longer crossed
+        robot.position = 150;
+        index.update(robot);
+        for (ThresholdTerminator waypoint : waypoints)
+        {
+            assertEquals(waypoint.getTarget() <= 150, waypoint.shouldTerminate(robot));
+        }
+        robot.position = 0;
+        index.update(robot);
+        assertEquals(-1, set.evaluate(robot));
+        assertEquals(4, robot.reads);
+    }
+
+    @Test
+    public void testSharesReadsBetweenSets()
+    {
+        CountingRobot robot = new CountingRobot();
+        ThresholdIndex index = new ThresholdIndex();
+        TerminatorSet first = new TerminatorSet();
+        first.add(distanceAtLeast(0, 10));
+        TerminatorSet second = new TerminatorSet();
+        second.addAll(distanceAtMost(0, -10), distanceAtLeast(0, 20));
+        first.register(index, robot);
+        second.register(index, robot);
+        assertEquals(2, robot.reads);
+
+        robot.position = 15;
+        index.update(robot);
+        assertEquals(3, robot.reads);
+        assertEquals(0, first.evaluate(robot));
+        assertEquals(-1, second.evaluate(robot));
+        robot.position = -20;
+        index.update(robot);
+        assertEquals(-1, first.evaluate(robot));
+        assertEquals(0, second.evaluate(robot));
+
+        // Once every set has been released there is nothing left to read the sensor for
+        first.release();
+        second.release();
+        index.update(robot);
+        assertEquals(4, robot.reads);
+    }
+
+    @Test
+    public void testWorksAlongsideLambdas()
+    {
+        CountingRobot robot = new CountingRobot();
+        ThresholdIndex index = new ThresholdIndex();
+        boolean[] stop = {false};
+        TerminatorSet set = new TerminatorSet();
+        set.add(r -> stop[0]);
+        set.add(distanceAtLeast(0, 100));
+        set.reset();
+        set.register(index, robot);
+
+        assertEquals(-1, set.evaluate(robot));
+        robot.position = 100;
+        index.update(robot);
+        assertEquals(1, set.evaluate(robot));
+        stop[0] = true;
+        assertEquals(0, set.evaluate(robot));
+    }
+
+    @Test
+    public void testStandaloneEvaluation()
+    {
+        CountingRobot robot = new CountingRobot();
+        ThresholdTerminator threshold = distanceAtMost(0, 5);
+        robot.position = 10;
+        assertFalse(threshold.shouldTerminate(robot));
+        robot.position = 5;
+        assertTrue(threshold.shouldTerminate(robot));
+        // Outside a set the current value is compared on every call
+        robot.position = 10;
+        assertFalse(threshold.shouldTerminate(robot));
+        assertEquals("distance(0) <= 5.0", threshold.toString());
+    }
+
+    @Test
+    public void testChecksItselfOnceReleased()
+    {
+        CountingRobot robot = new CountingRobot();
+        ThresholdIndex index = new ThresholdIndex();
+        ThresholdTerminator threshold = distanceAtLeast(0, 100);
+        TerminatorSet set = new TerminatorSet();
+        set.add(threshold);
+        Terminator wrapped = all(threshold, r -> true);
+
+        // Not yet started, so the index does not answer for it
+        robot.position = 150;
+        assertTrue(wrapped.shouldTerminate(robot));
+
+        robot.position = 0;
+        set.register(index, robot);
+        assertFalse(wrapped.shouldTerminate(robot));
+        robot.position = 150;
+        index.update(robot);
+        assertTrue(wrapped.shouldTerminate(robot));
+        // Between updates the index's answer stands
+        robot.position = 0;
+        assertTrue(wrapped.shouldTerminate(robot));
+
+        set.release();
+        assertFalse(wrapped.shouldTerminate(robot));
+        robot.position = 150;
+        assertTrue(wrapped.shouldTerminate(robot));
+    }
+
+    @Test
+    public void testRobotReleasesThresholdsWhenCommandEnds()
+    {
+        FakeRobot robot = new FakeRobot();
+        robot.setDefaultTimeout(1, TimeUnit.SECONDS);
+        ThresholdTerminator threshold = distanceAtLeast(0, 100);
+        robot.driveForward().requestSpeed(1).until(r -> true, threshold).go();
+
+        // Reused in a later command, only reachable through another terminator
+        robot.driveForward().requestSpeed(1).until(all(threshold, r -> true)).go();
+        assertTrue(robot.getDistanceTravelled(0) >= 100);
+        assertTrue(robot.getDistanceTravelled(0) < 200);
+    }
+}
@@ -1,288 +1,116 @@
 package com.lincolnrobotics.api2018;
 
+import com.qualcomm.robotcore.hardware.ColorSensor;
 import com.qualcomm.robotcore.hardware.DcMotor;
 
-import org.firstinspires.ftc.robotcore.external.Predicate;
-
-import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.List;
-
-import static java.lang.Math.abs;
-
 /**
  * An implementation of {@link RobotAutonomousControl} that runs the command on a physical 4-wheel drive FTC robot using the FTC SDK.
+ * Motor power goes through an {@link OutputCache}, so each motor's {@code setPower()} is only called once per tick, and only when its power changes.
  */
-public class FourWheelRobotAutonomousControl implements RobotAutonomousControl
+public class FourWheelRobotAutonomousControl extends AbstractRobotAutonomousControl
 {
-    private RunAction currentCommand = null;
-    private Runnable postExec = () -> {};
-    private List<Terminator> terminators = new LinkedList<>();
-    private double speed = -1;
-    private int FRONT_LEFT = 0, FRONT_RIGHT = 1, BACK_LEFT = 2, BACK_RIGHT = 3;
+    private static final int FRONT_LEFT = 0, FRONT_RIGHT = 1, BACK_LEFT = 2, BACK_RIGHT = 3;
+
+    /**
+     * The smallest change in motor power which is written to the motors unless {@link OutputCache#setTolerance(double)} is called.
+     */
+    public static final double DEFAULT_OUTPUT_TOLERANCE = 0.001;
+
     private DcMotor[] motors = new DcMotor[4];
-    private int[] motorBaseline = new int[motors.length];
+    private final ColorSensor[] colorSensors;
+    private final OutputCache outputs = new OutputCache(4, DEFAULT_OUTPUT_TOLERANCE);
+    private final OutputCache.Sink motorSink = (id, power) -> motors[id].setPower(power);
 
     public FourWheelRobotAutonomousControl(DcMotor frontLeft, DcMotor frontRight, DcMotor backLeft, DcMotor backRight)
     {
+        this(frontLeft, frontRight, backLeft, backRight, new ControlLoop(ControlLoop.DEFAULT_FREQUENCY));
+    }
+
+    /**
+     * Constructs an instance which runs its commands on the provided control loop.
+     * @param controlLoop The loop which sets the rate at which running commands are updated and checked for termination.
+     * @param colorSensors The color sensors of the robot, numbered in the order given.
+     */
+    public FourWheelRobotAutonomousControl(DcMotor frontLeft, DcMotor frontRight, DcMotor backLeft, DcMotor backRight, ControlLoop controlLoop, ColorSensor... colorSensors)
+    {
+        super(controlLoop, 4, 0, colorSensors.length, FRONT_LEFT, FRONT_RIGHT);
+        this.colorSensors = colorSensors.clone();
         motors[FRONT_LEFT] = frontLeft;
         motors[FRONT_RIGHT] = frontRight;
         motors[BACK_LEFT] = backLeft;
         motors[BACK_RIGHT] = backRight;
     }
 
-    private interface RunAction
-    {
-        void run(double speed);
-    }
-
-    @Override
-    public RobotAutonomousControl driveForward()
-    {
-        queueAction(this::ftcDriveForward);
-        afterExecution(this::ftcStop);
-        return this;
-    }
-
-    @Override
-    public RobotAutonomousControl driveBackward()
-    {
-        queueAction(this::ftcDriveBackward);
-        afterExecution(this::ftcStop);
-        return this;
-    }
-
-    @Override
-    public RobotAutonomousControl driveForward(double distance)
-    {
-        resetMotorDistance(FRONT_LEFT);
-        driveForward();
-        until(robot -> getDistanceTravelled(FRONT_LEFT) >= distance);
-        return this;
-    }
-
-    @Override
-    public RobotAutonomousControl driveBackward(double distance)
-    {
-        resetMotorDistance(FRONT_LEFT);
-        driveBackward();
-        until(robot -> getDistanceTravelled(FRONT_LEFT) >= distance);
-        return this;
-    }
-
-    private void ftcStop()
-    {
-        runMotors(0, 0);
-    }
-
-    private void ftcDriveForward(double targetSpeed)
-    {
-        runMotors(targetSpeed, targetSpeed);
-    }
-
-    private void ftcDriveBackward(double targetSpeed)
-    {
-        ftcDriveForward(-targetSpeed);
-    }
-
-    private void ftcTurnRight(double targetSpeed)
-    {
-        runMotors(targetSpeed, -targetSpeed);
-    }
-
-    private void ftcTurnLeft(double targetSpeed)
-    {
-        ftcTurnRight(-targetSpeed);
-    }
-
-    private void runMotors(double leftSpeed, double rightSpeed)
-    {
-        motors[FRONT_LEFT].setPower(leftSpeed);
-        motors[BACK_LEFT].setPower(leftSpeed);
-        motors[FRONT_RIGHT].setPower(rightSpeed);
-        motors[BACK_RIGHT].setPower(rightSpeed);
-    }
-
-    @Override
-    public RobotAutonomousControl turnRight()
-    {
-        queueAction(this::ftcTurnRight);
-        afterExecution(this::ftcStop);
-        return this;
-    }
-
-    @Override
-    public RobotAutonomousControl turnLeft()
-    {
-        queueAction(this::ftcTurnLeft);
-        afterExecution(this::ftcStop);
-        return this;
-    }
-
-    @Override
-    public RobotAutonomousControl turnRight(double angle)
-    {
-        resetMotorDistance(FRONT_LEFT, FRONT_RIGHT);
-        if (angle > 0)
-        {
-            turnRight();
-        } else
-        {
-            turnLeft();
-        }
-        until(robot -> abs(robot.getDistanceTravelled(FRONT_LEFT)) >= angle && abs(robot.getDistanceTravelled(FRONT_RIGHT)) >= angle);
-        return this;
-    }
-
-    @Override
-    public RobotAutonomousControl turnLeft(double angle)
-    {
-        return turnRight(-angle);
-    }
-
-    @Override
-    public RobotAutonomousControl extend(int id)
-    {
-        queueAction(speed -> {});
-        afterExecution(() -> {});
-        return this;
-    }
-
-    @Override
-    public RobotAutonomousControl retract(int id)
+    /**
+     * Constructs the movement control of a standard robot from the parameters the FTC SDK reports for its drive motors.
+     * @param ftcMotor The FTC DcMotor object corresponding to a drive motor.
+     * @param wheelRadius The radius of the wheel.
+     * @return The movement control for the robot.
+     */
+    public static StandardRobotMovementControl movementControlFor(DcMotor ftcMotor, int wheelRadius)
     {
-        queueAction(speed -> {});
-        afterExecution(() -> {});
-        return this;
+        return new StandardRobotMovementControl(ftcMotor.getMotorType().getAchieveableMaxTicksPerSecondRounded(), (int) ftcMotor.getMotorType().getTicksPerRev(), wheelRadius);
     }
 
-    @Override
-    public RobotAutonomousControl extendTo(int id, double pos)
+    /**
+     * Starts tracking the robot's position on the field from all four drive encoders, starting at the origin.
+     * @param movementControl The movement control of the robot, from which encoder ticks are converted to centimeters.
+     * @param trackWidth The distance between the left and right wheels, in centimeters.
+     * @return The position tracker, e.g. to set the starting pose or a heading source.
+     */
+    public OdometryPositionControl enableOdometry(StandardRobotMovementControl movementControl, double trackWidth)
     {
-        if(getExtensionValue(id) > pos)
-        {
-            extend(id);
-            until(robot -> getExtensionValue(id) >= pos);
-        }
-        else
-        {
-            retract(id);
-            until(robot -> getExtensionValue(id) <= pos);
-        }
-
-        return this;
+        OdometryPositionControl odometry = new OdometryPositionControl(movementControl.getTicksPerCentimeter(), trackWidth,
+                new int[]{FRONT_LEFT, BACK_LEFT}, new int[]{FRONT_RIGHT, BACK_RIGHT});
+        setPositionControl(odometry);
+        return odometry;
     }
 
-    @Override
-    public int getExtensionCount()
+    /**
+     * @return The cache through which motor power is written, e.g. to read how many writes it has saved.
+     */
+    public OutputCache getOutputCache()
     {
-        return 0;
+        return outputs;
     }
 
     @Override
-    public int getExtensionValue(int id)
+    protected int readMotorEncoder(int id)
     {
-        throw new ArrayIndexOutOfBoundsException();
+        return motors[id].getCurrentPosition();
     }
 
-
     @Override
-    public RgbColor senseColor(int id)
+    protected int readExtensionValue(int id)
     {
         throw new ArrayIndexOutOfBoundsException();
     }
 
     @Override
-    public int getColorSensorCount()
+    protected int readColorSensor(int id)
     {
-        return 0;
+        ColorSensor sensor = colorSensors[id];
+        return RgbColor.pack(sensor.red(), sensor.green(), sensor.blue());
     }
 
     @Override
-    public double getDistanceTravelled(int id)
+    protected void writeDrivePower(double leftPower, double rightPower)
     {
-        return motors[id].getCurrentPosition() - motorBaseline[id];
+        outputs.set(FRONT_LEFT, leftPower);
+        outputs.set(BACK_LEFT, leftPower);
+        outputs.set(FRONT_RIGHT, rightPower);
+        outputs.set(BACK_RIGHT, rightPower);
     }
 
     @Override
-    public void resetMotorDistance(int... id)
+    protected void flushOutputs()
     {
-        for(int i : id) {
-            motorBaseline[i] = motors[i].getCurrentPosition();
-        }
+        outputs.flush(motorSink);
     }
 
     @Override
-    public void resetAllMotorDistances()
+    protected void writeExtensionPower(int id, double power)
     {
-        for (int i = 0; i < getMotorCount(); i++)
-        {
-            resetMotorDistance(i);
-        }
-    }
-
-    @Override
-    public int getMotorCount()
-    {
-        return 4;
-    }
-
-    @Override
-    public RobotAutonomousControl pauseRobot()
-    {
-        queueAction(robot -> ftcStop());
-        return this;
-    }
-
-    @Override
-    public RobotAutonomousControl until(Terminator... terminators)
-    {
-        this.terminators.addAll(Arrays.asList(terminators));
-        return this;
-    }
-
-    @Override
-    public RobotAutonomousControl requestSpeed(double speed)
-    {
-        this.speed = speed;
-        return this;
-    }
-
-    private void queueAction(RunAction action)
-    {
-        terminators.clear();
-        speed = -1;
-        currentCommand = action;
-    }
-
-    @Override
-    public RobotAutonomousControl afterExecution(Runnable postExec)
-    {
-        this.postExec = postExec;
-        return this;
-    }
-
-    @Override
-    public void go()
-    {
-        currentCommand.run(speed);
-
-        // Returns true if all terminators return false
-        final Predicate<List<Terminator>> allFalse = terminators -> {
-            for (Terminator terminator : terminators)
-            {
-                if (terminator.shouldTerminate(FourWheelRobotAutonomousControl.this))
-                {
-                    return false;
-                }
-            }
-            return true;
-        };
-
-        // While no terminators return true, wait
-        // noinspection StatementWithEmptyBody
-        while (allFalse.test(terminators));
-
-        postExec.run();
+        throw new ArrayIndexOutOfBoundsException();
     }
 }
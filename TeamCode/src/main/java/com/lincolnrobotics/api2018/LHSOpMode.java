@@ -1,9 +1,28 @@
 package com.lincolnrobotics.api2018;
 
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.util.RobotLog;
+
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 public abstract class LHSOpMode extends LinearOpMode
 {
+    private static final String TAG = "LHSOpMode";
+
+    // Ticks kept by the flight recorder: a full 30 second autonomous period at the default 100 Hz
+    private static final int FLIGHT_RECORDER_CAPACITY = 3000;
+
+    // Stops recorded by the stopping model are shared by every OpMode, as they depend on the robot rather than the routine
+    private static final File STOPPING_MODEL_FILE = new File(AppUtil.ROBOT_DATA_DIR, "stopping-model.properties");
+    private static final File TURN_STOPPING_MODEL_FILE = new File(AppUtil.ROBOT_DATA_DIR, "turn-stopping-model.properties");
+
+    // Time for cancelled commands to end, a few ticks at any usual control loop rate
+    private static final long CANCEL_TIMEOUT_MILLIS = 500;
+
     private RobotAutonomousControl control;
     protected LHSOpMode(RobotAutonomousControl control) {
         this.control = control;
@@ -11,8 +30,140 @@ public abstract class LHSOpMode extends LinearOpMode
 
     @Override
     public void runOpMode() {
-        run(control);
+        if (control instanceof AbstractRobotAutonomousControl) {
+            AbstractRobotAutonomousControl robot = (AbstractRobotAutonomousControl) control;
+            robot.getControlLoop().setStopCondition(this::isStopRequested);
+            if (robot.getFlightRecorder() == null) {
+                robot.enableFlightRecorder(FLIGHT_RECORDER_CAPACITY);
+            }
+            loadStoppingModel(robot.getStoppingModel(), STOPPING_MODEL_FILE);
+            if (robot.getTurnStoppingModel() != robot.getStoppingModel()) {
+                loadStoppingModel(robot.getTurnStoppingModel(), TURN_STOPPING_MODEL_FILE);
+            }
+        }
+        try {
+            prepare(control);
+            waitForStart();
+            if (isStopRequested()) {
+                return;
+            }
+            run(control);
+        } finally {
+            control.cancelAll();
+            if (control instanceof AbstractRobotAutonomousControl) {
+                AbstractRobotAutonomousControl robot = (AbstractRobotAutonomousControl) control;
+                robot.disableColorSampling();
+                awaitIdle(robot);
+                // The robot belongs to this OpMode instance, so its control thread is not needed by the next run
+                robot.getExecutor().shutdown();
+            }
+            dumpDiagnostics();
+        }
+    }
+
+    // Waits for the cancelled commands to end, so that the diagnostics are not read while the control thread still writes them.
+    // The OpMode's thread is usually interrupted when it is stopped, so the interrupt is held back while waiting.
+    private void awaitIdle(AbstractRobotAutonomousControl robot) {
+        boolean interrupted = Thread.interrupted();
+        try {
+            if (!robot.awaitIdle(CANCEL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                RobotLog.ww(TAG, "Commands still running %d ms after being cancelled", CANCEL_TIMEOUT_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Writes the control loop's timing histograms to the robot log, and the flight record and the stops recorded by the
+    // stopping model to the robot's data directory, where they can be pulled after a match
+    private void dumpDiagnostics() {
+        if (control instanceof AbstractRobotAutonomousControl) {
+            AbstractRobotAutonomousControl robot = (AbstractRobotAutonomousControl) control;
+            RobotLog.ii(TAG, "Control loop metrics (%d overruns):%n%s",
+                    robot.getControlLoop().getOverrunCount(), robot.getMetrics());
+            if (robot instanceof FourWheelRobotAutonomousControl) {
+                RobotLog.ii(TAG, "Motor writes: %s", ((FourWheelRobotAutonomousControl) robot).getOutputCache());
+            }
+
+            File file = new File(AppUtil.ROBOT_DATA_DIR, "flight-" + getClass().getSimpleName() + "-" + System.currentTimeMillis() + ".bin");
+            try {
+                robot.writeFlightRecord(file);
+                RobotLog.ii(TAG, "Flight record written to %s", file);
+            } catch (IOException e) {
+                RobotLog.ee(TAG, e, "Could not write flight record to %s", file);
+            }
+
+            saveStoppingModel(robot.getStoppingModel(), STOPPING_MODEL_FILE);
+            if (robot.getTurnStoppingModel() != robot.getStoppingModel()) {
+                saveStoppingModel(robot.getTurnStoppingModel(), TURN_STOPPING_MODEL_FILE);
+            }
+        }
+    }
+
+    private static void loadStoppingModel(StoppingModel model, File file) {
+        if (model != null) {
+            try {
+                model.load(file);
+            } catch (IOException e) {
+                RobotLog.ee(TAG, e, "Could not load stopping model from %s", file);
+            }
+        }
+    }
+
+    private static void saveStoppingModel(StoppingModel model, File file) {
+        if (model != null) {
+            try {
+                model.save(file);
+                RobotLog.ii(TAG, "%s written to %s", model, file);
+            } catch (IOException e) {
+                RobotLog.ee(TAG, e, "Could not write stopping model to %s", file);
+            }
+        }
+    }
+
+    /**
+     * Called during the init phase, before start is pressed, for work which would otherwise delay the autonomous period,
+     * such as preloading the motion profiles of planned moves or warming up the control code with {@link #warmUp(long)}.
+     * Does nothing by default.
+     * @param control The robot.
+     */
+    protected void prepare(RobotAutonomousControl control) {
+    }
+
+    /**
+     * Runs the control code on a robot without hardware, with the default drive power controls, at the robot's control
+     * loop rate. See {@link #warmUp(ControlLoopWarmup, long)}.
+     * @param iterations The number of control ticks to run.
+     * @return The measured tick times.
+     */
+    protected ControlLoopWarmup.Result warmUp(long iterations) {
+        double frequency = ControlLoop.DEFAULT_FREQUENCY;
+        if (control instanceof AbstractRobotAutonomousControl) {
+            frequency = 1e9 / ((AbstractRobotAutonomousControl) control).getControlLoop().getPeriodNanos();
+        }
+        return warmUp(new ControlLoopWarmup(frequency), iterations);
+    }
+
+    /**
+     * Runs the control code on a robot without hardware, so that it has been compiled before the match starts,
+     * and writes to the robot log how many ticks it took for the tick times to settle. Call from {@link #prepare(RobotAutonomousControl)}.
+     * @param warmup The warm-up, given the same kinds of drive power controls as the robot.
+     * @param iterations The number of control ticks to run.
+     * @return The measured tick times.
+     */
+    protected ControlLoopWarmup.Result warmUp(ControlLoopWarmup warmup, long iterations) {
+        ControlLoopWarmup.Result result = warmup.run(iterations);
+        RobotLog.ii(TAG, "%s", result);
+        return result;
     }
 
+    /**
+     * Runs the autonomous routine, once start has been pressed.
+     * @param control The robot.
+     */
     public abstract void run(RobotAutonomousControl control);
 }
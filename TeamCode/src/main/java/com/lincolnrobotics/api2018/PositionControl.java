@@ -1,5 +0,0 @@
-package com.lincolnrobotics.api2018;
-
-public interface PositionControl
-{
-}
@@ -1,19 +1,17 @@
 package com.lincolnrobotics.api2018;
 
 import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.powermock.api.mockito.PowerMockito;
-import org.powermock.core.classloader.annotations.PrepareForTest;
-import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 import static com.lincolnrobotics.api2018.Constants.*;
 
-@RunWith(PowerMockRunner.class)
-@PrepareForTest({PIDMotorPowerControl.class})
 public class PowerControlTest
 {
+    private VirtualClock clock;
+
     @Test
     public void testBasicPowerControl()
     {
@@ -28,11 +26,8 @@ public class PowerControlTest
     @Test
     public void testPIDPowerControl()
     {
-        // PIDMotorPowerControl uses System.currentTimeMillis().
-        // If this changes¸ this test will likely fail. Update the test if that is the case.
-        PowerMockito.mockStatic(System.class);
-
-        PIDMotorPowerControl pmvc = new PIDMotorPowerControl(1, 1, 1, 1);
+        clock = new VirtualClock();
+        PIDMotorPowerControl pmvc = new PIDMotorPowerControl(1, 1, 1, 1, clock);
 
         setCurrentTimeMillis(0L);
         assertEquals(1.0, pmvc.calculateMotorPower(1, 1), DOUBLE_THRESHOLD);
@@ -47,7 +42,8 @@ public class PowerControlTest
         setCurrentTimeMillis(500L);
         assertEquals(-148.99, pmvc.calculateMotorPower(1, 1), DOUBLE_THRESHOLD);
 
-        PIDMotorPowerControl pmvc2 = new PIDMotorPowerControl(3, 0.2, 1.6, 0.84);
+        clock = new VirtualClock();
+        PIDMotorPowerControl pmvc2 = new PIDMotorPowerControl(3, 0.2, 1.6, 0.84, clock);
         setCurrentTimeMillis(0L);
         assertEquals(0.768, pmvc2.calculateMotorPower(0.87, 0.7), DOUBLE_THRESHOLD);
         setCurrentTimeMillis(100L);
@@ -65,7 +61,21 @@ public class PowerControlTest
 
     private void setCurrentTimeMillis(long currentTimeMillis)
     {
-        PowerMockito.when(System.currentTimeMillis()).thenReturn(currentTimeMillis);
+        clock.waitUntil(TimeUnit.MILLISECONDS.toNanos(currentTimeMillis));
+    }
+
+    @Test
+    public void testPIDPowerControlAtHighRate()
+    {
+        // At 10 kHz, calls are 0.1 ms apart: the derivative must be taken over the true interval, not rounded to 0 or 1 ms
+        clock = new VirtualClock();
+        PIDMotorPowerControl pmvc = new PIDMotorPowerControl(1, 0, 0, 1, clock);
+        assertEquals(1.0, pmvc.calculateMotorPower(1, 1), DOUBLE_THRESHOLD);
+        clock.advance(TimeUnit.MICROSECONDS.toNanos(100));
+        assertEquals(1 - 5.0, pmvc.calculateMotorPower(1, 0.5), DOUBLE_THRESHOLD);
+
+        // Calls with no time between them leave the derivative out rather than dividing by zero
+        assertEquals(1.0, pmvc.calculateMotorPower(1, 1), DOUBLE_THRESHOLD);
     }
 
     @Test